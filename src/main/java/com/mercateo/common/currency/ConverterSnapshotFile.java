@@ -0,0 +1,349 @@
+package com.mercateo.common.currency;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+/**
+ * A {@link FrozenCurrencyConverter} with all its derived rates saved to a local file,
+ * so a service can start converting before fresh rates are fetched.
+ *
+ * <p>Restoring a converter neither divides nor chains rates: the given rates and all
+ * routed rates are read with their rate values, only the routes are recomputed and
+ * checked. The file carries a version, e.g. the version of the rates or the last applied
+ * update, and its creation time. A checksum and the currencies known when writing the file
+ * are verified before anything is restored, so a corrupt, stale or incompatible file is
+ * rejected with an {@link IOException}.</p>
+ *
+ * <p>A file starts with a header of {@value #HEADER_SIZE} bytes:</p>
+ * <ul>
+ * <li>int magic number {@code 0x4D435353}</li>
+ * <li>short format version {@value #FORMAT_VERSION}</li>
+ * <li>short reserved</li>
+ * <li>int CRC32C of the names of all {@link ConvertableCurrency} constants in ordinal order</li>
+ * <li>long version</li>
+ * <li>long creation time in epoch milliseconds</li>
+ * <li>int payload length</li>
+ * <li>int CRC32C of the preceding header fields and the payload</li>
+ * </ul>
+ *
+ * <p>The payload starts with the distinct base and quote values of all rates, as their number
+ * as short followed by the values, each stored as byte currency ordinal and amount. It continues
+ * with the number of given rates as short followed by the given rates, and the number of routed
+ * rates between different currencies as int followed by these rates. Each rate is stored as
+ * short index of its base value, short index of its quote value and its rate value as amount.
+ * Each amount is stored as int scale, byte length and the unscaled amount in as many bytes in
+ * two's complement. All values are big endian.</p>
+ *
+ * <p>Example usage:</p>
+ * <pre>
+ * UpdateableCurrencyConverter converter;
+ * try {
+ *     converter = new UpdateableCurrencyConverter(ConverterSnapshotFile.read(path, now.minus(maxAge)).getConverter());
+ *     executor.execute(() -&gt; converter.set(fetchConverter()));
+ * } catch (IOException e) {
+ *     converter = new UpdateableCurrencyConverter(fetchConverter());
+ * }
+ * ...
+ * ConverterSnapshotFile.write(path, refreshedConverter, version, Instant.now());
+ * </pre>
+ */
+public final class ConverterSnapshotFile {
+    static final int MAGIC = 0x4D435353;
+    static final short FORMAT_VERSION = 1;
+    static final int HEADER_SIZE = 36;
+    private static final int CHECKSUM_OFFSET = HEADER_SIZE - Integer.BYTES;
+    private static final int MAX_VALUE_COUNT = 0xFFFF;
+
+    private static final ConvertableCurrency[] CURRENCIES = ConvertableCurrency.values();
+    static final int CURRENCIES_CHECKSUM = currenciesChecksum();
+
+    private final long version;
+    private final Instant createdAt;
+    private final FrozenCurrencyConverter converter;
+
+    private ConverterSnapshotFile(long version, Instant createdAt, FrozenCurrencyConverter converter) {
+        super();
+        this.version = version;
+        this.createdAt = createdAt;
+        this.converter = converter;
+    }
+
+    private static int currenciesChecksum() {
+        final CRC32C checksum = new CRC32C();
+        for (ConvertableCurrency currency : CURRENCIES) {
+            checksum.update(currency.name().getBytes(StandardCharsets.US_ASCII));
+            checksum.update(0);
+        }
+        return (int) checksum.getValue();
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public FrozenCurrencyConverter getConverter() {
+        return converter;
+    }
+
+    /**
+     * Saves the specified converter. The file is written to a new temporary file next to it,
+     * forced to the storage device and then moved atomically, so readers either see the
+     * previous or the complete new file. The temporary file is deleted if it can't be moved.
+     * The directory is forced after the move, so the new file survives a crash once this
+     * method returns.
+     *
+     * @throws IllegalArgumentException if an unscaled amount exceeds 127 bytes or the converter exceeds 65535 values
+     * @throws IOException if the file can't be written
+     */
+    public static void write(Path path, FrozenCurrencyConverter converter, long version, Instant createdAt)
+            throws IllegalArgumentException, IOException {
+        write(path, converter, version, createdAt, ConverterSnapshotFile::forceDirectory);
+    }
+
+    static void write(Path path, FrozenCurrencyConverter converter, long version, Instant createdAt, DirectoryForce directoryForce)
+            throws IllegalArgumentException, IOException {
+        final ByteBuffer buffer = encode(converter, version, createdAt);
+        final Path directory = path.toAbsolutePath().getParent();
+        final Path temporaryPath = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+        boolean moved = false;
+        try {
+            try (FileChannel channel = FileChannel.open(temporaryPath, StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining())
+                    channel.write(buffer);
+                channel.force(false);
+            }
+            Files.move(temporaryPath, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            moved = true;
+        } finally {
+            if(!moved)
+                Files.deleteIfExists(temporaryPath);
+        }
+        directoryForce.force(directory);
+    }
+
+    /**
+     * Forces the entries of a directory, replaced by tests to observe when files become durable.
+     */
+    interface DirectoryForce {
+        void force(Path directory) throws IOException;
+    }
+
+    /**
+     * Forces the entries of the specified directory to the storage device, so files created
+     * or moved into it survive a crash.
+     *
+     * @throws IOException if the directory can't be opened or forced
+     */
+    static void forceDirectory(Path directory) throws IOException {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Restores the converter saved in the specified file, regardless of its age.
+     *
+     * @throws IOException if the file can't be read or is corrupt
+     */
+    public static ConverterSnapshotFile read(Path path) throws IOException {
+        return read(path, Instant.MIN);
+    }
+
+    /**
+     * Restores the converter saved in the specified file unless it was created before the specified instant.
+     *
+     * @throws IOException if the file can't be read, is corrupt or is stale
+     */
+    public static ConverterSnapshotFile read(Path path, Instant notBefore) throws IOException {
+        return decode(ByteBuffer.wrap(Files.readAllBytes(path)), notBefore, path.toString());
+    }
+
+    static ByteBuffer encode(FrozenCurrencyConverter converter, long version, Instant createdAt) throws IllegalArgumentException {
+        final List<ExchangeRate> directRates = converter.getDirectRates();
+        final List<ExchangeRate> routedRates = new ArrayList<>();
+        converter.forEachRoutedRate(routedRates::add);
+        final Map<Money, Integer> valueIndexes = new LinkedHashMap<>();
+        int payloadLength = 2 * Short.BYTES + Integer.BYTES;
+        for (ExchangeRate rate : directRates)
+            payloadLength += sizeOf(rate, valueIndexes);
+        for (ExchangeRate rate : routedRates)
+            payloadLength += sizeOf(rate, valueIndexes);
+        if(valueIndexes.size() > MAX_VALUE_COUNT || directRates.size() > MAX_VALUE_COUNT)
+            throw new IllegalArgumentException("Converter exceeds " + MAX_VALUE_COUNT + " values or given rates");
+        final ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + payloadLength).order(ByteOrder.BIG_ENDIAN);
+        buffer.position(HEADER_SIZE);
+        buffer.putShort((short) valueIndexes.size());
+        for (Money value : valueIndexes.keySet()) {
+            buffer.put((byte) value.getCurrency().ordinal());
+            putAmount(buffer, value.getAmount());
+        }
+        buffer.putShort((short) directRates.size());
+        directRates.forEach(rate -> putRate(buffer, rate, valueIndexes));
+        buffer.putInt(routedRates.size());
+        routedRates.forEach(rate -> putRate(buffer, rate, valueIndexes));
+        buffer.rewind();
+        buffer.putInt(MAGIC);
+        buffer.putShort(FORMAT_VERSION);
+        buffer.putShort((short) 0);
+        buffer.putInt(CURRENCIES_CHECKSUM);
+        buffer.putLong(version);
+        buffer.putLong(createdAt.toEpochMilli());
+        buffer.putInt(payloadLength);
+        buffer.putInt(checksum(buffer));
+        buffer.rewind();
+        return buffer;
+    }
+
+    /**
+     * Computes the CRC32C of the specified file contents except the checksum field.
+     */
+    private static int checksum(ByteBuffer buffer) {
+        final CRC32C checksum = new CRC32C();
+        checksum.update(buffer.duplicate().position(0).limit(CHECKSUM_OFFSET));
+        checksum.update(buffer.duplicate().position(HEADER_SIZE).limit(buffer.capacity()));
+        return (int) checksum.getValue();
+    }
+
+    static ConverterSnapshotFile decode(ByteBuffer buffer, Instant notBefore, String source) throws IOException {
+        if(buffer.remaining() < HEADER_SIZE)
+            throw new IOException("Truncated converter snapshot file " + source);
+        final ByteBuffer header = buffer.slice().order(ByteOrder.BIG_ENDIAN);
+        if(header.getInt() != MAGIC)
+            throw new IOException("No converter snapshot file " + source);
+        final short formatVersion = header.getShort();
+        if(formatVersion != FORMAT_VERSION)
+            throw new IOException("Unsupported converter snapshot format version " + formatVersion + " in " + source);
+        header.getShort();
+        if(header.getInt() != CURRENCIES_CHECKSUM)
+            throw new IOException("Converter snapshot file " + source + " was written with different currencies");
+        final long version = header.getLong();
+        final Instant createdAt = Instant.ofEpochMilli(header.getLong());
+        final int payloadLength = header.getInt();
+        final int expectedChecksum = header.getInt();
+        if(payloadLength < 0 || header.remaining() != payloadLength)
+            throw new IOException("Truncated converter snapshot file " + source);
+        if(checksum(header) != expectedChecksum)
+            throw new IOException("Corrupt converter snapshot file " + source);
+        if(createdAt.isBefore(notBefore))
+            throw new IOException("Stale converter snapshot file " + source + " created at " + createdAt + " before " + notBefore);
+        try {
+            final Money[] values = new Money[Short.toUnsignedInt(header.getShort())];
+            for (int i = 0; i < values.length; i++) {
+                final ConvertableCurrency currency = getCurrency(header);
+                values[i] = new Money(getAmount(header), currency);
+            }
+            final int directRateCount = Short.toUnsignedInt(header.getShort());
+            final List<ExchangeRate> directRates = new ArrayList<>(directRateCount);
+            for (int i = 0; i < directRateCount; i++)
+                directRates.add(getRate(header, values));
+            final ExchangeRate[][] routedRates = new ExchangeRate[CURRENCIES.length][CURRENCIES.length];
+            final int routedRateCount = header.getInt();
+            for (int i = 0; i < routedRateCount; i++) {
+                final ExchangeRate rate = getRate(header, values);
+                final ExchangeRate[] row = routedRates[rate.getBaseCurrency().ordinal()];
+                if(row[rate.getQuoteCurrency().ordinal()] != null)
+                    throw new IllegalArgumentException("Duplicate rate " + rate);
+                row[rate.getQuoteCurrency().ordinal()] = rate;
+            }
+            if(header.hasRemaining())
+                throw new IllegalArgumentException(header.remaining() + " bytes after last rate");
+            return new ConverterSnapshotFile(version, createdAt, FrozenCurrencyConverter.restore(directRates, routedRates));
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException | IllegalStateException e) {
+            throw new IOException("Corrupt converter snapshot file " + source + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static int sizeOf(ExchangeRate rate, Map<Money, Integer> valueIndexes) throws IllegalArgumentException {
+        return 2 * Short.BYTES + sizeOf(rate.getBaseValue(), valueIndexes) + sizeOf(rate.getQuoteValue(), valueIndexes)
+                + sizeOf(rate.getRateValue().getAmount());
+    }
+
+    private static int sizeOf(Money value, Map<Money, Integer> valueIndexes) throws IllegalArgumentException {
+        if(valueIndexes.putIfAbsent(value, valueIndexes.size()) != null)
+            return 0;
+        return 1 + sizeOf(value.getAmount());
+    }
+
+    static int sizeOf(BigDecimal amount) throws IllegalArgumentException {
+        final int length = amount.unscaledValue().bitLength() / Byte.SIZE + 1;
+        if(length > Byte.MAX_VALUE)
+            throw new IllegalArgumentException("Amount " + amount + " exceeds " + Byte.MAX_VALUE + " bytes");
+        return Integer.BYTES + 1 + length;
+    }
+
+    private static void putRate(ByteBuffer buffer, ExchangeRate rate, Map<Money, Integer> valueIndexes) {
+        buffer.putShort(valueIndexes.get(rate.getBaseValue()).shortValue());
+        buffer.putShort(valueIndexes.get(rate.getQuoteValue()).shortValue());
+        putAmount(buffer, rate.getRateValue().getAmount());
+    }
+
+    static void putAmount(ByteBuffer buffer, BigDecimal amount) {
+        final byte[] unscaledAmount = amount.unscaledValue().toByteArray();
+        buffer.putInt(amount.scale());
+        buffer.put((byte) unscaledAmount.length);
+        buffer.put(unscaledAmount);
+    }
+
+    /**
+     * Reads a rate, without allocating its unscaled rate value if it fits into a long.
+     */
+    private static ExchangeRate getRate(ByteBuffer buffer, Money[] values) throws IllegalArgumentException {
+        final Money baseValue = values[Short.toUnsignedInt(buffer.getShort())];
+        final Money quoteValue = values[Short.toUnsignedInt(buffer.getShort())];
+        final int scale = buffer.getInt();
+        final int length = buffer.get();
+        if(length >= 1 && length <= Long.BYTES)
+            return new ExchangeRate(baseValue, quoteValue, getUnscaledAmount(buffer, length), scale);
+        return new ExchangeRate(baseValue, quoteValue, getBigAmount(buffer, length, scale));
+    }
+
+    static ConvertableCurrency getCurrency(ByteBuffer buffer) throws IllegalArgumentException {
+        final int ordinal = Byte.toUnsignedInt(buffer.get());
+        if(ordinal >= CURRENCIES.length)
+            throw new IllegalArgumentException("Unknown currency ordinal " + ordinal);
+        return CURRENCIES[ordinal];
+    }
+
+    static BigDecimal getAmount(ByteBuffer buffer) throws IllegalArgumentException {
+        final int scale = buffer.getInt();
+        final int length = buffer.get();
+        if(length >= 1 && length <= Long.BYTES)
+            return BigDecimal.valueOf(getUnscaledAmount(buffer, length), scale);
+        return getBigAmount(buffer, length, scale);
+    }
+
+    private static long getUnscaledAmount(ByteBuffer buffer, int length) {
+        long unscaledAmount = buffer.get();
+        for (int i = 1; i < length; i++)
+            unscaledAmount = unscaledAmount << Byte.SIZE | Byte.toUnsignedInt(buffer.get());
+        return unscaledAmount;
+    }
+
+    private static BigDecimal getBigAmount(ByteBuffer buffer, int length, int scale) throws IllegalArgumentException {
+        if(length < 1)
+            throw new IllegalArgumentException("Invalid amount length " + length);
+        final byte[] unscaledAmount = new byte[length];
+        buffer.get(unscaledAmount);
+        return new BigDecimal(new BigInteger(unscaledAmount), scale);
+    }
+}
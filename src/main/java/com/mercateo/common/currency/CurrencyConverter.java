@@ -50,4 +50,33 @@ public interface CurrencyConverter {
     ExchangeRate getExchangeRate(ConvertableCurrency fromCurrency, ConvertableCurrency toCurrency)
             throws IllegalArgumentException;
 
+    /**
+     * Converts an array of amounts given as unscaled values with a common scale,
+     * using the provided decimal places strategy and rounding mode.
+     * The exchange rate is resolved once for the whole array, each converted amount
+     * is numerically equal to the result of {@link #convert}.
+     *
+     * @param unscaledAmounts the unscaled amounts to convert
+     * @param scale the scale of all amounts
+     * @param convertedAmounts receives the unscaled converted amounts at the returned scale,
+     *        must be at least as long as {@code unscaledAmounts}
+     * @return the scale of the converted amounts
+     * @throws IllegalArgumentException if an exchange rate for either currency is not found
+     *         or if {@code convertedAmounts} is too short
+     * @throws ArithmeticException if a converted amount does not fit into a long
+     */
+    default int convertAll(long[] unscaledAmounts, int scale, ConvertableCurrency fromCurrency,
+            ConvertableCurrency toCurrency, DecimalPlacesStrategy decimalPlacesStrategy,
+            RoundingMode roundingMode, long[] convertedAmounts)
+            throws IllegalArgumentException, ArithmeticException {
+        if(convertedAmounts.length < unscaledAmounts.length)
+            throw new IllegalArgumentException("Expected at least " + unscaledAmounts.length
+                    + " converted amounts, got " + convertedAmounts.length);
+        final int newScale = decimalPlacesStrategy.getRequiredScale(scale, fromCurrency, toCurrency);
+        ExchangeRate exchangeRate = fromCurrency == toCurrency ? ExchangeRate.identity(fromCurrency)
+                : getExchangeRate(fromCurrency, toCurrency);
+        exchangeRate.convertAll(unscaledAmounts, scale, newScale, roundingMode, convertedAmounts);
+        return newScale;
+    }
+
 }
\ No newline at end of file
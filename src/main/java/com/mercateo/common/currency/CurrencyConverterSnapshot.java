@@ -0,0 +1,109 @@
+package com.mercateo.common.currency;
+
+import java.math.RoundingMode;
+
+/**
+ * An immutable, versioned handle to the converter set on an {@link UpdateableCurrencyConverter}.
+ *
+ * <p>A snapshot keeps converting with the same converter even after the updateable
+ * converter has been updated, so all conversions of a request or batch job can be pinned
+ * to the same rates. The version identifies the rates, e.g. for logging.</p>
+ *
+ * <p>Example usage:</p>
+ * <pre>
+ * CurrencyConverterSnapshot snapshot = updateableConverter.snapshot();
+ * log.info("converting order with rates version {}", snapshot.getVersion());
+ * for (Money price : orderLinePrices)
+ *     convertedPrices.add(snapshot.convertToPrice(price, targetCurrency));
+ * </pre>
+ */
+public final class CurrencyConverterSnapshot implements CurrencyConverter {
+
+    private final long version;
+    private final CurrencyConverter converter;
+
+    CurrencyConverterSnapshot(long version, CurrencyConverter converter) {
+        super();
+        this.version = version;
+        this.converter = converter;
+    }
+
+    /**
+     * Returns the version of this snapshot, increasing with every update of the
+     * {@link UpdateableCurrencyConverter} it was taken from.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns the converter this snapshot delegates to.
+     */
+    public CurrencyConverter getConverter() {
+        return converter;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Delegates to the pinned converter.
+     */
+    @Override
+    public Money convertToPrice(Money fromAmount, ConvertableCurrency toCurrency)
+            throws IllegalArgumentException {
+        return converter.convertToPrice(fromAmount, toCurrency);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Delegates to the pinned converter.
+     */
+    @Override
+    public Money convertProportionally(Money fromAmount, ConvertableCurrency toCurrency)
+            throws IllegalArgumentException {
+        return converter.convertProportionally(fromAmount, toCurrency);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Delegates to the pinned converter.
+     */
+    @Override
+    public Money convert(Money fromAmount, ConvertableCurrency toCurrency,
+            DecimalPlacesStrategy decimalPlacesStrategy, RoundingMode roundingMode)
+            throws IllegalArgumentException {
+        return converter.convert(fromAmount, toCurrency, decimalPlacesStrategy, roundingMode);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Delegates to the pinned converter.
+     */
+    @Override
+    public ExchangeRate getExchangeRate(ConvertableCurrency fromCurrency,
+            ConvertableCurrency toCurrency) throws IllegalArgumentException {
+        return converter.getExchangeRate(fromCurrency, toCurrency);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Delegates to the pinned converter.
+     */
+    @Override
+    public int convertAll(long[] unscaledAmounts, int scale, ConvertableCurrency fromCurrency,
+            ConvertableCurrency toCurrency, DecimalPlacesStrategy decimalPlacesStrategy,
+            RoundingMode roundingMode, long[] convertedAmounts)
+            throws IllegalArgumentException, ArithmeticException {
+        return converter.convertAll(unscaledAmounts, scale, fromCurrency, toCurrency,
+                decimalPlacesStrategy, roundingMode, convertedAmounts);
+    }
+
+    @Override
+    public String toString() {
+        return "CurrencyConverterSnapshot [version=" + version + ", converter=" + converter + "]";
+    }
+}
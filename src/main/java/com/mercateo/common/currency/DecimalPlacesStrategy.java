@@ -11,10 +11,10 @@ public enum DecimalPlacesStrategy {
      */
     PROPORTIONAL {
         @Override
-        public int getRequiredScale(Money convertedMoney, ConvertableCurrency targetCurrency) {
-            return convertedMoney.getAmount().scale()
+        public int getRequiredScale(int amountScale, ConvertableCurrency sourceCurrency, ConvertableCurrency targetCurrency) {
+            return amountScale
                     + targetCurrency.getDefaultScale()
-                    - convertedMoney .getCurrency().getDefaultScale();
+                    - sourceCurrency.getDefaultScale();
         }
     },
     /**
@@ -23,7 +23,7 @@ public enum DecimalPlacesStrategy {
      */
     TO_PRICE {
         @Override
-        public int getRequiredScale(Money convertedMoney, ConvertableCurrency targetCurrency) {
+        public int getRequiredScale(int amountScale, ConvertableCurrency sourceCurrency, ConvertableCurrency targetCurrency) {
             return targetCurrency.getDefaultScale();
         }
     };
@@ -35,5 +35,18 @@ public enum DecimalPlacesStrategy {
      * @param targetCurrency The target currency for the conversion
      * @return The number of decimal places to use in the result
      */
-    public abstract int getRequiredScale(Money convertedMoney, ConvertableCurrency targetCurrency);
+    public int getRequiredScale(Money convertedMoney, ConvertableCurrency targetCurrency) {
+        return getRequiredScale(convertedMoney.getAmount().scale(), convertedMoney.getCurrency(), targetCurrency);
+    }
+
+    /**
+     * Determines the required scale (decimal places) for a currency conversion
+     * of an amount given by its scale only.
+     *
+     * @param amountScale The scale of the amount being converted
+     * @param sourceCurrency The currency of the amount being converted
+     * @param targetCurrency The target currency for the conversion
+     * @return The number of decimal places to use in the result
+     */
+    public abstract int getRequiredScale(int amountScale, ConvertableCurrency sourceCurrency, ConvertableCurrency targetCurrency);
 }
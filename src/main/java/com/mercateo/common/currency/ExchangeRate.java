@@ -6,6 +6,7 @@
 package com.mercateo.common.currency;
 
 import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.math.RoundingMode;
 import java.util.Objects;
 
@@ -16,7 +17,8 @@ import com.mercateo.common.util.annotations.Nullable;
  *
  * An exchange rate consists of a base currency (with value 1.0) and a quote currency,
  * defining how much of the quote currency equals one unit of the base currency.
- * This class also handles caching of combined rates for efficient conversion between currencies.
+ * The rate value is computed once at construction, so instances are immutable
+ * and safe to share between threads.
  */
 public class ExchangeRate {
     /**
@@ -36,12 +38,45 @@ public class ExchangeRate {
 
     private final Money baseValue;
     private final Money quoteValue;
-    private @Nullable Money rateValue;
+    private final Money rateValue;
+    /**
+     * Unscaled value and scale of {@link #rateValue}, usable by long arithmetic
+     * if {@link #compactRate} is set.
+     */
+    private final long rateUnscaledValue;
+    private final int rateScale;
+    private final boolean compactRate;
 
 
     public ExchangeRate(Money baseValue, Money quoteValue) {
+        this(baseValue, quoteValue,
+                quoteValue.getAmount().divide(baseValue.getAmount(), DIVISION_SCALE, DIVISION_ROUNDING_MODE).stripTrailingZeros());
+    }
+
+    /**
+     * Restores a rate whose rate value was computed by {@link #ExchangeRate(Money, Money)} before,
+     * without dividing again.
+     */
+    ExchangeRate(Money baseValue, Money quoteValue, BigDecimal rate) {
         this.baseValue = baseValue;
         this.quoteValue = quoteValue;
+        this.rateValue = new Money(rate, quoteValue.getCurrency());
+        BigInteger unscaledRate = rate.unscaledValue();
+        this.compactRate = unscaledRate.bitLength() < Long.SIZE;
+        this.rateUnscaledValue = unscaledRate.longValue();
+        this.rateScale = rate.scale();
+    }
+
+    /**
+     * Restores a rate whose rate value fits into a long, see {@link #ExchangeRate(Money, Money, BigDecimal)}.
+     */
+    ExchangeRate(Money baseValue, Money quoteValue, long rateUnscaledValue, int rateScale) {
+        this.baseValue = baseValue;
+        this.quoteValue = quoteValue;
+        this.rateValue = new Money(BigDecimal.valueOf(rateUnscaledValue, rateScale), quoteValue.getCurrency());
+        this.compactRate = true;
+        this.rateUnscaledValue = rateUnscaledValue;
+        this.rateScale = rateScale;
     }
 
     public Money getBaseValue() {
@@ -53,27 +88,92 @@ public class ExchangeRate {
     }
 
     public Money getRateValue() {
-        if(rateValue != null)
-            return rateValue;
-        BigDecimal quoteAmount = quoteValue.getAmount();
-        BigDecimal baseAmount = baseValue.getAmount();
-        return rateValue = new Money(
-                quoteAmount.divide(baseAmount, DIVISION_SCALE, DIVISION_ROUNDING_MODE).stripTrailingZeros(),
-                quoteValue.getCurrency());
+        return rateValue;
+    }
+
+    /**
+     * Tells whether the unscaled rate value fits into a long.
+     */
+    boolean hasCompactRate() {
+        return compactRate;
+    }
+
+    /**
+     * Gets the unscaled rate value, only meaningful if {@link #hasCompactRate()}.
+     */
+    long getRateUnscaledValue() {
+        return rateUnscaledValue;
+    }
+
+    int getRateScale() {
+        return rateScale;
     }
 
     /**
      * Converts a monetary amount using this exchange rate with the specified decimal places strategy
      * and rounding mode.
+     *
+     * Multiplication and rounding run in long arithmetic as long as amount, rate and result fit,
+     * and fall back to {@link BigDecimal} otherwise. Both paths produce identical results.
      */
     Money convert(Money from, DecimalPlacesStrategy decimalPlacesStrategy, RoundingMode roundingMode) {
-        Money exchangeRate = getRateValue();
-        ConvertableCurrency rateCurrency = exchangeRate.getCurrency();
+        ConvertableCurrency rateCurrency = rateValue.getCurrency();
         final int newScale = decimalPlacesStrategy.getRequiredScale(from, rateCurrency);
-        BigDecimal convertedAmount = from.getAmount().multiply(exchangeRate.getAmount());
+        BigDecimal amount = from.getAmount();
+        if(compactRate) {
+            long unscaledAmount = FixedPoint.unscaledValue(amount);
+            if(unscaledAmount != FixedPoint.OVERFLOW) {
+                long convertedAmount = convertUnscaled(unscaledAmount, amount.scale(), newScale, roundingMode);
+                if(convertedAmount != FixedPoint.OVERFLOW)
+                    return new Money(BigDecimal.valueOf(convertedAmount, newScale), rateCurrency);
+            }
+        }
+        BigDecimal convertedAmount = amount.multiply(rateValue.getAmount());
         return new Money(convertedAmount.setScale(newScale, roundingMode), rateCurrency);
     }
 
+    /**
+     * Converts an amount given as unscaled value and scale in long arithmetic.
+     *
+     * @return the unscaled converted amount at the new scale,
+     *         or {@link FixedPoint#OVERFLOW} if the rate or the result does not fit into a long
+     */
+    long convertUnscaled(long unscaledAmount, int scale, int newScale, RoundingMode roundingMode) {
+        if(! compactRate)
+            return FixedPoint.OVERFLOW;
+        return FixedPoint.multiply(unscaledAmount, scale, rateUnscaledValue, rateScale, newScale, roundingMode);
+    }
+
+    /**
+     * Converts amounts given as unscaled values with a common scale, see
+     * {@link CurrencyConverter#convertAll(long[], int, ConvertableCurrency, ConvertableCurrency, DecimalPlacesStrategy, RoundingMode, long[])}.
+     *
+     * @throws ArithmeticException if a converted amount does not fit into a long
+     */
+    void convertAll(long[] unscaledAmounts, int scale, int newScale, RoundingMode roundingMode, long[] convertedAmounts)
+            throws ArithmeticException {
+        if(compactRate && FixedPoint.multiplyAll(unscaledAmounts, scale, rateUnscaledValue, rateScale, newScale,
+                roundingMode, convertedAmounts))
+            return;
+        for (int i = 0; i < unscaledAmounts.length; i++)
+            convertedAmounts[i] = convertUnscaledExactly(unscaledAmounts[i], scale, newScale, roundingMode);
+    }
+
+    /**
+     * Converts an amount given as unscaled value and scale, falling back to {@link BigDecimal}
+     * if long arithmetic overflows.
+     *
+     * @throws ArithmeticException if the converted amount does not fit into a long
+     */
+    long convertUnscaledExactly(long unscaledAmount, int scale, int newScale, RoundingMode roundingMode)
+            throws ArithmeticException {
+        long convertedAmount = convertUnscaled(unscaledAmount, scale, newScale, roundingMode);
+        if(convertedAmount != FixedPoint.OVERFLOW)
+            return convertedAmount;
+        return BigDecimal.valueOf(unscaledAmount, scale).multiply(rateValue.getAmount())
+                .setScale(newScale, roundingMode).unscaledValue().longValueExact();
+    }
+
     ConvertableCurrency getQuoteCurrency() {
         return quoteValue.getCurrency();
     }
@@ -86,15 +186,39 @@ public class ExchangeRate {
         return new ExchangeRate(quoteValue, baseValue);
     }
 
+    /**
+     * Chains this rate with a rate starting at this rate's quote currency.
+     * The chained rate is exact, its rate value is rounded only once.
+     *
+     * @throws IllegalArgumentException if the next rate does not start at this rate's quote currency
+     */
+    ExchangeRate compose(ExchangeRate next) throws IllegalArgumentException {
+        if(getQuoteCurrency() != next.getBaseCurrency())
+            throw new IllegalArgumentException("Can't chain " + this + " and " + next);
+        if(quoteValue.equals(next.baseValue))
+            return new ExchangeRate(baseValue, next.quoteValue);
+        return new ExchangeRate(
+                new Money(baseValue.getAmount().multiply(next.baseValue.getAmount()), getBaseCurrency()),
+                new Money(quoteValue.getAmount().multiply(next.quoteValue.getAmount()), next.getQuoteCurrency()));
+    }
+
+    boolean isInverseOf(ExchangeRate other) {
+        return baseValue.equals(other.quoteValue) && quoteValue.equals(other.baseValue);
+    }
+
+    boolean hasSameBase(ExchangeRate other) {
+        return baseValue.equals(other.baseValue);
+    }
+
     ExchangeRate withBase(ExchangeRate denominator) {
-        if(! baseValue.equals(denominator.baseValue))
+        if(! hasSameBase(denominator))
             throw new IllegalArgumentException("Different base values");
         return new ExchangeRate(denominator.quoteValue, quoteValue);
     }
 
     @Override
     public String toString() {
-        return "ExchangeRate [1 " + getBaseCurrency() + " -> " + getRateValue().getAmount() + " " + getQuoteCurrency() + "]";
+        return "ExchangeRate [1 " + getBaseCurrency() + " -> " + rateValue.getAmount() + " " + getQuoteCurrency() + "]";
     }
 
     @Override
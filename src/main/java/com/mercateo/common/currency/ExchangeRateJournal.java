@@ -0,0 +1,500 @@
+package com.mercateo.common.currency;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+/**
+ * An append-only journal of the rate changes applied to an {@link UpdateableCurrencyConverter},
+ * so intraday changes survive a restart until the next {@link ConverterSnapshotFile}.
+ *
+ * <p>Appending a change only encodes it into a memory buffer and assigns it the next
+ * sequence number. {@link #sync()} writes all buffered changes with a single
+ * {@link FileChannel} write and forces them to the storage device. It is meant to be
+ * called periodically from a background thread, appends do not wait for it.
+ * Changes appended after the last sync are lost on a crash. If a sync fails, its changes
+ * stay buffered in front of later appends and are written again by the next sync.</p>
+ *
+ * <p>{@link #replay(FrozenCurrencyConverter, long)} rebuilds the latest converter from a
+ * restored snapshot and the changes journaled after its version. The changes are merged
+ * per currency pair first, in either direction, so the converter is derived only once
+ * however many changes are replayed. {@link #writeSnapshot(Path, UpdateableCurrencyConverter, Instant)}
+ * replaces the journal by one holding only the changes after the snapshot, so the journal
+ * read on replay grows only with the changes between two snapshots.</p>
+ *
+ * <p>A file starts with a header of {@value #HEADER_SIZE} bytes:</p>
+ * <ul>
+ * <li>int magic number {@code 0x4D43524A}</li>
+ * <li>short format version {@value #FORMAT_VERSION}</li>
+ * <li>short reserved</li>
+ * <li>int CRC32C of the names of all {@link ConvertableCurrency} constants in ordinal order</li>
+ * <li>long sequence number preceding the first record</li>
+ * </ul>
+ *
+ * <p>It is followed by records of increasing sequence numbers:</p>
+ * <ul>
+ * <li>int payload length</li>
+ * <li>int CRC32C of sequence number and payload</li>
+ * <li>long sequence number</li>
+ * <li>payload: short number of rates followed by the rates, each as byte base currency
+ * ordinal, base amount, byte quote currency ordinal and quote amount, with amounts
+ * stored like in {@link ConverterSnapshotFile}</li>
+ * </ul>
+ *
+ * <p>All values are big endian. A record that is incomplete, fails its checksum or does
+ * not increase the sequence number ends the journal; it and all bytes after it are
+ * dropped when the journal is opened.</p>
+ *
+ * <p>Example usage:</p>
+ * <pre>
+ * ConverterSnapshotFile snapshot = ConverterSnapshotFile.read(snapshotPath);
+ * ExchangeRateJournal journal = ExchangeRateJournal.open(journalPath);
+ * UpdateableCurrencyConverter converter = new UpdateableCurrencyConverter(
+ *         journal.replay(snapshot.getConverter(), snapshot.getVersion()));
+ * scheduler.scheduleWithFixedDelay(syncTask(journal), 100, 100, TimeUnit.MILLISECONDS);
+ * ...
+ * journal.apply(converter, changedRates);
+ * ...
+ * journal.writeSnapshot(snapshotPath, converter, Instant.now());
+ * </pre>
+ */
+public final class ExchangeRateJournal implements Closeable {
+    static final int MAGIC = 0x4D43524A;
+    static final short FORMAT_VERSION = 1;
+    static final int HEADER_SIZE = 20;
+    static final int RECORD_HEADER_SIZE = 16;
+
+    private static final int BASE_SEQUENCE_OFFSET = 12;
+    private static final int INITIAL_BUFFER_SIZE = 1 << 16;
+
+    private final Path path;
+    /**
+     * Guards the channel, its base sequence and size, taken before the monitor of this journal.
+     */
+    private final Object writeLock = new Object();
+    private FileChannel channel;
+    private long baseSequence;
+
+    private ByteBuffer pending = ByteBuffer.allocate(INITIAL_BUFFER_SIZE).order(ByteOrder.BIG_ENDIAN);
+    private ByteBuffer spare = ByteBuffer.allocate(INITIAL_BUFFER_SIZE).order(ByteOrder.BIG_ENDIAN);
+    private long lastSequence;
+    private long size;
+    private volatile long syncedSequence;
+    ConverterSnapshotFile.DirectoryForce directoryForce = ConverterSnapshotFile::forceDirectory;
+
+    private ExchangeRateJournal(Path path, FileChannel channel, long baseSequence, long lastSequence, long size) {
+        super();
+        this.path = path;
+        this.channel = channel;
+        this.baseSequence = baseSequence;
+        this.lastSequence = lastSequence;
+        this.size = size;
+        this.syncedSequence = lastSequence;
+    }
+
+    /**
+     * Creates a new, empty journal whose first record gets the sequence number following
+     * the specified one, e.g. the version of the snapshot the journal starts from.
+     * The file and its directory entry are forced to the storage device before it is returned.
+     *
+     * @throws IOException if the file exists or can't be written
+     */
+    public static ExchangeRateJournal create(Path path, long lastSequence) throws IOException {
+        final FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            writeHeader(channel, lastSequence);
+            channel.force(true);
+            ConverterSnapshotFile.forceDirectory(path.toAbsolutePath().getParent());
+            return new ExchangeRateJournal(path, channel, lastSequence, lastSequence, HEADER_SIZE);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static void writeHeader(FileChannel channel, long baseSequence) throws IOException {
+        final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.BIG_ENDIAN);
+        header.putInt(MAGIC);
+        header.putShort(FORMAT_VERSION);
+        header.putShort((short) 0);
+        header.putInt(ConverterSnapshotFile.CURRENCIES_CHECKSUM);
+        header.putLong(baseSequence);
+        write(channel, header.flip(), 0);
+    }
+
+    /**
+     * Opens an existing journal for appending, dropping an incomplete or corrupt tail,
+     * or creates a new journal starting at sequence number 1.
+     *
+     * @throws IOException if the file can't be read or written or is no journal
+     */
+    public static ExchangeRateJournal open(Path path) throws IOException {
+        final FileChannel channel;
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        } catch (NoSuchFileException e) {
+            return create(path, 0);
+        }
+        return open(path, channel);
+    }
+
+    /**
+     * Opens the existing journal of the specified path through the specified channel,
+     * which is closed if it is no journal.
+     */
+    static ExchangeRateJournal open(Path path, FileChannel channel) throws IOException {
+        try {
+            final ByteBuffer content = readFully(channel, path, channel.size());
+            final long baseSequence = content.getLong(BASE_SEQUENCE_OFFSET);
+            long lastSequence = baseSequence;
+            content.position(HEADER_SIZE);
+            while (true) {
+                final long sequence = nextRecord(content, lastSequence);
+                if(sequence == lastSequence)
+                    break;
+                lastSequence = sequence;
+                content.position(content.position() + content.getInt(content.position()) + RECORD_HEADER_SIZE);
+            }
+            if(content.position() < channel.size()) {
+                channel.truncate(content.position());
+                channel.force(false);
+            }
+            return new ExchangeRateJournal(path, channel, baseSequence, lastSequence, content.position());
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads and validates the first bytes of the journal, up to the specified size.
+     */
+    private static ByteBuffer readFully(FileChannel channel, Path path, long fileSize) throws IOException {
+        if(fileSize > Integer.MAX_VALUE)
+            throw new IOException("Exchange rate journal " + path + " exceeds " + Integer.MAX_VALUE + " bytes");
+        final ByteBuffer content = ByteBuffer.allocate((int) fileSize).order(ByteOrder.BIG_ENDIAN);
+        while (content.hasRemaining()) {
+            if(channel.read(content, content.position()) < 0)
+                throw new IOException("Unexpected end of exchange rate journal " + path);
+        }
+        if(fileSize < HEADER_SIZE || content.getInt(0) != MAGIC)
+            throw new IOException("No exchange rate journal " + path);
+        if(content.getShort(4) != FORMAT_VERSION)
+            throw new IOException("Unsupported exchange rate journal format version " + content.getShort(4) + " in " + path);
+        if(content.getInt(8) != ConverterSnapshotFile.CURRENCIES_CHECKSUM)
+            throw new IOException("Exchange rate journal " + path + " was written with different currencies");
+        return content;
+    }
+
+    /**
+     * Validates the record at the position of the content.
+     *
+     * @return the sequence number of the record, or the last sequence number if there is no valid record
+     */
+    private static long nextRecord(ByteBuffer content, long lastSequence) {
+        final int position = content.position();
+        if(content.limit() - position < RECORD_HEADER_SIZE)
+            return lastSequence;
+        final int payloadLength = content.getInt(position);
+        if(payloadLength < 0 || content.limit() - position - RECORD_HEADER_SIZE < payloadLength)
+            return lastSequence;
+        final long sequence = content.getLong(position + 8);
+        if(sequence <= lastSequence)
+            return lastSequence;
+        final CRC32C checksum = new CRC32C();
+        checksum.update(content.slice(position + 8, payloadLength + Long.BYTES));
+        if((int) checksum.getValue() != content.getInt(position + 4))
+            return lastSequence;
+        return sequence;
+    }
+
+    /**
+     * Returns the sequence number of the last appended change.
+     */
+    public synchronized long getLastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * Returns the sequence number of the last change forced to the storage device.
+     */
+    public long getSyncedSequence() {
+        return syncedSequence;
+    }
+
+    /**
+     * Atomically replaces the current converter of the target by a converter derived from it
+     * for the specified changed rates and appends the changes. Converters set on the target or
+     * scheduled converters activated meanwhile are derived from, not overwritten; they are not
+     * journaled themselves but contained in the next snapshot. Concurrent applications are
+     * journaled in the order they are set.
+     *
+     * @return the sequence number of the change
+     * @throws IllegalArgumentException if the current converter of the target is no {@link FrozenCurrencyConverter},
+     *         an unscaled amount exceeds 127 bytes or there are more than 65535 rates
+     * @throws IllegalStateException if conflicting exchange rates are provided
+     */
+    public synchronized long apply(UpdateableCurrencyConverter target, Collection<ExchangeRate> changedRates)
+            throws IllegalArgumentException, IllegalStateException {
+        final int payloadLength = payloadLength(changedRates);
+        target.update(converter -> frozenConverter(converter).withChangedRates(changedRates));
+        return append(changedRates, payloadLength);
+    }
+
+    /**
+     * Appends the specified changed rates without applying them. Only used directly by tests,
+     * as a snapshot written afterwards would claim to contain them.
+     *
+     * @return the sequence number of the change
+     * @throws IllegalArgumentException if an unscaled amount exceeds 127 bytes or there are more than 65535 rates
+     */
+    synchronized long append(Collection<ExchangeRate> changedRates) throws IllegalArgumentException {
+        return append(changedRates, payloadLength(changedRates));
+    }
+
+    private static int payloadLength(Collection<ExchangeRate> changedRates) throws IllegalArgumentException {
+        if(changedRates.size() > 0xFFFF)
+            throw new IllegalArgumentException("Change of " + changedRates.size() + " rates exceeds 65535 rates");
+        int payloadLength = Short.BYTES;
+        for (ExchangeRate rate : changedRates)
+            payloadLength += 2 + ConverterSnapshotFile.sizeOf(rate.getBaseValue().getAmount())
+                    + ConverterSnapshotFile.sizeOf(rate.getQuoteValue().getAmount());
+        return payloadLength;
+    }
+
+    private synchronized long append(Collection<ExchangeRate> changedRates, int payloadLength) {
+        ensureCapacity(RECORD_HEADER_SIZE + payloadLength);
+        final long sequence = lastSequence + 1;
+        final int start = pending.position();
+        pending.putInt(payloadLength);
+        pending.putInt(0);
+        pending.putLong(sequence);
+        pending.putShort((short) changedRates.size());
+        for (ExchangeRate rate : changedRates) {
+            pending.put((byte) rate.getBaseCurrency().ordinal());
+            ConverterSnapshotFile.putAmount(pending, rate.getBaseValue().getAmount());
+            pending.put((byte) rate.getQuoteCurrency().ordinal());
+            ConverterSnapshotFile.putAmount(pending, rate.getQuoteValue().getAmount());
+        }
+        final CRC32C checksum = new CRC32C();
+        checksum.update(pending.array(), start + 8, payloadLength + Long.BYTES);
+        pending.putInt(start + 4, (int) checksum.getValue());
+        lastSequence = sequence;
+        return sequence;
+    }
+
+    private void ensureCapacity(int recordSize) {
+        if(pending.remaining() >= recordSize)
+            return;
+        final ByteBuffer grown = ByteBuffer.allocate(Math.max(2 * pending.capacity(), pending.position() + recordSize))
+                .order(ByteOrder.BIG_ENDIAN);
+        pending = grown.put(pending.flip());
+    }
+
+    /**
+     * Writes all appended changes with a single write and forces them to the storage device.
+     * Appends continue into a second buffer meanwhile. If the changes can't be written, they
+     * are kept in front of the changes appended meanwhile and written again by the next sync.
+     *
+     * @throws IOException if the journal can't be written
+     */
+    public void sync() throws IOException {
+        synchronized (writeLock) {
+            final ByteBuffer batch;
+            final long batchSequence;
+            synchronized (this) {
+                if(pending.position() == 0)
+                    return;
+                batch = pending.flip();
+                pending = spare.clear();
+                batchSequence = lastSequence;
+            }
+            final int batchSize = batch.limit();
+            try {
+                write(channel, batch, size);
+                channel.force(false);
+            } catch (IOException | RuntimeException e) {
+                synchronized (this) {
+                    final ByteBuffer appended = pending.flip();
+                    pending = batch.clear().position(batchSize);
+                    ensureCapacity(appended.remaining());
+                    pending.put(appended);
+                    spare = appended.clear();
+                }
+                throw e;
+            }
+            size += batchSize;
+            syncedSequence = batchSequence;
+            synchronized (this) {
+                spare = batch;
+            }
+        }
+    }
+
+    /**
+     * Writes a snapshot of the current converter of the target, versioned with the
+     * sequence number of the last change applied to it, after syncing that change.
+     * Once the snapshot file and its directory are forced to the storage device, the journal
+     * is replaced by a journal starting at that sequence number, holding only the changes
+     * synced after it. Syncs wait for the snapshot meanwhile, appends don't.
+     *
+     * @throws IllegalArgumentException if the current converter of the target is no {@link FrozenCurrencyConverter}
+     * @throws IOException if the journal or the snapshot file can't be written
+     */
+    public void writeSnapshot(Path snapshotPath, UpdateableCurrencyConverter target, Instant createdAt)
+            throws IllegalArgumentException, IOException {
+        synchronized (writeLock) {
+            final FrozenCurrencyConverter converter;
+            final long sequence;
+            final long snapshotEnd;
+            synchronized (this) {
+                converter = frozenConverter(target);
+                sequence = lastSequence;
+                snapshotEnd = size + pending.position();
+            }
+            sync();
+            ConverterSnapshotFile.write(snapshotPath, converter, sequence, createdAt, directoryForce);
+            compact(sequence, snapshotEnd);
+        }
+    }
+
+    /**
+     * Replaces the journal by a journal starting at the specified sequence number, holding the
+     * records synced after the specified end of its record. The new journal is written to a
+     * temporary file next to the journal and moved atomically, so a crash leaves either journal.
+     * The directory is forced after the move, before later records are synced to the new journal.
+     */
+    private void compact(long snapshotSequence, long snapshotEnd) throws IOException {
+        final Path directory = path.toAbsolutePath().getParent();
+        final Path temporaryPath = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+        final FileChannel compacted = FileChannel.open(temporaryPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        boolean moved = false;
+        try {
+            writeHeader(compacted, snapshotSequence);
+            compacted.position(HEADER_SIZE);
+            for (long position = snapshotEnd; position < size;)
+                position += channel.transferTo(position, size - position, compacted);
+            compacted.force(true);
+            Files.move(temporaryPath, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            moved = true;
+        } finally {
+            if(!moved) {
+                compacted.close();
+                Files.deleteIfExists(temporaryPath);
+            }
+        }
+        final FileChannel replaced = channel;
+        channel = compacted;
+        baseSequence = snapshotSequence;
+        size = HEADER_SIZE + size - snapshotEnd;
+        replaced.close();
+        directoryForce.force(directory);
+    }
+
+    private static FrozenCurrencyConverter frozenConverter(UpdateableCurrencyConverter target) throws IllegalArgumentException {
+        return frozenConverter(target.snapshot().getConverter());
+    }
+
+    private static FrozenCurrencyConverter frozenConverter(CurrencyConverter converter) throws IllegalArgumentException {
+        if(! (converter instanceof FrozenCurrencyConverter))
+            throw new IllegalArgumentException("Can't journal changes of " + converter);
+        return (FrozenCurrencyConverter) converter;
+    }
+
+    /**
+     * Applies all synced changes journaled after the specified snapshot version to the snapshot
+     * converter. Later appends continue after the snapshot version if the journal ends before it.
+     *
+     * @throws IOException if the journal can't be read or starts after the snapshot version
+     * @throws IllegalStateException if a journaled change conflicts with itself
+     */
+    public FrozenCurrencyConverter replay(FrozenCurrencyConverter snapshot, long snapshotVersion) throws IOException, IllegalStateException {
+        final Map<Integer, Money[]> changedRates = new LinkedHashMap<>();
+        synchronized (writeLock) {
+            if(baseSequence > snapshotVersion)
+                throw new IOException("Exchange rate journal " + path + " starts after sequence " + baseSequence
+                        + ", missing changes after snapshot version " + snapshotVersion);
+            final ByteBuffer content = readFully(channel, path, size);
+            content.position(HEADER_SIZE);
+            try {
+                while (content.hasRemaining()) {
+                    final int payloadLength = content.getInt();
+                    content.getInt();
+                    final long sequence = content.getLong();
+                    if(sequence <= snapshotVersion)
+                        content.position(content.position() + payloadLength);
+                    else
+                        readRates(content, changedRates);
+                }
+            } catch (BufferUnderflowException | IllegalArgumentException e) {
+                throw new IOException("Corrupt exchange rate journal " + path + ": " + e.getMessage(), e);
+            }
+        }
+        synchronized (this) {
+            lastSequence = Math.max(lastSequence, snapshotVersion);
+        }
+        if(changedRates.isEmpty())
+            return snapshot;
+        final List<ExchangeRate> rates = new ArrayList<>(changedRates.size());
+        for (Money[] values : changedRates.values())
+            rates.add(new ExchangeRate(values[0], values[1]));
+        return snapshot.withChangedRates(rates);
+    }
+
+    /**
+     * Reads the base and quote values of the rates of a record, keeping the latest values for
+     * each currency pair, in either direction, at the position of its first change.
+     */
+    private static void readRates(ByteBuffer content, Map<Integer, Money[]> changedRates) throws IllegalArgumentException {
+        final int rateCount = Short.toUnsignedInt(content.getShort());
+        for (int i = 0; i < rateCount; i++) {
+            final ConvertableCurrency baseCurrency = ConverterSnapshotFile.getCurrency(content);
+            final Money baseValue = new Money(ConverterSnapshotFile.getAmount(content), baseCurrency);
+            final ConvertableCurrency quoteCurrency = ConverterSnapshotFile.getCurrency(content);
+            final Money quoteValue = new Money(ConverterSnapshotFile.getAmount(content), quoteCurrency);
+            final int pair = Math.min(baseCurrency.ordinal(), quoteCurrency.ordinal()) << Byte.SIZE
+                    | Math.max(baseCurrency.ordinal(), quoteCurrency.ordinal());
+            changedRates.put(pair, new Money[] { baseValue, quoteValue });
+        }
+    }
+
+    private static void write(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        long writePosition = position;
+        while (buffer.hasRemaining())
+            writePosition += channel.write(buffer, writePosition);
+    }
+
+    /**
+     * Syncs all appended changes and closes the journal.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (writeLock) {
+            try {
+                sync();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ExchangeRateJournal [path=" + path + ", lastSequence=" + getLastSequence() + ", syncedSequence=" + syncedSequence + "]";
+    }
+}
@@ -0,0 +1,161 @@
+package com.mercateo.common.currency;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Static helpers for monetary amounts packed into a single {@code long}.
+ *
+ * <p>A packed value holds the currency ordinal in the lowest {@value #CURRENCY_BITS} bits,
+ * the scale in the next {@value #SCALE_BITS} bits and the signed unscaled amount in the
+ * remaining {@value #AMOUNT_BITS} bits. It represents amounts with a scale between 0 and
+ * {@value #MAX_SCALE} and an unscaled value between {@value #MIN_UNSCALED_AMOUNT} and
+ * {@value #MAX_UNSCALED_AMOUNT}. Negative scales are normalized to scale 0.</p>
+ *
+ * <p>Packed values are meant for large in-memory price collections. They can be converted
+ * through any {@link CurrencyConverter} without creating {@link BigDecimal} or {@link Money}
+ * objects as long as the exchange rate and the result fit into long arithmetic.</p>
+ */
+public final class FastMoney {
+    static final int CURRENCY_BITS = 6;
+    static final int SCALE_BITS = 5;
+    static final int AMOUNT_BITS = Long.SIZE - SCALE_BITS - CURRENCY_BITS;
+
+    public static final int MAX_SCALE = (1 << SCALE_BITS) - 1;
+    public static final long MAX_UNSCALED_AMOUNT = (1L << (AMOUNT_BITS - 1)) - 1;
+    public static final long MIN_UNSCALED_AMOUNT = -MAX_UNSCALED_AMOUNT;
+
+    private static final int SCALE_SHIFT = CURRENCY_BITS;
+    private static final int AMOUNT_SHIFT = CURRENCY_BITS + SCALE_BITS;
+    private static final long CURRENCY_MASK = (1L << CURRENCY_BITS) - 1;
+    private static final long SCALE_MASK = (1L << SCALE_BITS) - 1;
+    private static final ConvertableCurrency[] CURRENCIES = ConvertableCurrency.values();
+
+    private FastMoney() {/**/}
+
+    /**
+     * Packs an amount given as unscaled value and scale.
+     *
+     * @throws IllegalArgumentException if the amount can't be represented
+     */
+    public static long of(long unscaledAmount, int scale, ConvertableCurrency currency) throws IllegalArgumentException {
+        long packed = pack(unscaledAmount, scale, currency);
+        if(packed == FixedPoint.OVERFLOW)
+            throw new IllegalArgumentException("Amount " + BigDecimal.valueOf(unscaledAmount, scale) + " exceeds FastMoney range");
+        return packed;
+    }
+
+    /**
+     * Packs the given money.
+     *
+     * @throws IllegalArgumentException if the amount can't be represented
+     */
+    public static long of(Money money) throws IllegalArgumentException {
+        long packed = pack(money);
+        if(packed == FixedPoint.OVERFLOW)
+            throw new IllegalArgumentException("Amount " + money.getAmount() + " exceeds FastMoney range");
+        return packed;
+    }
+
+    /**
+     * Tells whether the given money can be packed.
+     */
+    public static boolean isRepresentable(Money money) {
+        return pack(money) != FixedPoint.OVERFLOW;
+    }
+
+    public static ConvertableCurrency getCurrency(long fastMoney) {
+        return CURRENCIES[(int) (fastMoney & CURRENCY_MASK)];
+    }
+
+    public static int getScale(long fastMoney) {
+        return (int) ((fastMoney >>> SCALE_SHIFT) & SCALE_MASK);
+    }
+
+    public static long getUnscaledAmount(long fastMoney) {
+        return fastMoney >> AMOUNT_SHIFT;
+    }
+
+    public static BigDecimal getAmount(long fastMoney) {
+        return BigDecimal.valueOf(getUnscaledAmount(fastMoney), getScale(fastMoney));
+    }
+
+    public static Money toMoney(long fastMoney) {
+        return new Money(getAmount(fastMoney), getCurrency(fastMoney));
+    }
+
+    /**
+     * Converts a packed amount like {@link CurrencyConverter#convertToPrice(Money, ConvertableCurrency)}.
+     *
+     * @throws IllegalArgumentException if an exchange rate for either currency is not found
+     * @throws ArithmeticException if the converted amount can't be represented
+     */
+    public static long convertToPrice(long fastMoney, ConvertableCurrency toCurrency, CurrencyConverter converter)
+            throws IllegalArgumentException, ArithmeticException {
+        return convert(fastMoney, toCurrency, converter, DecimalPlacesStrategy.TO_PRICE, toCurrency.getRoundingMode());
+    }
+
+    /**
+     * Converts a packed amount like {@link CurrencyConverter#convertProportionally(Money, ConvertableCurrency)}.
+     *
+     * @throws IllegalArgumentException if an exchange rate for either currency is not found
+     * @throws ArithmeticException if the converted amount can't be represented
+     */
+    public static long convertProportionally(long fastMoney, ConvertableCurrency toCurrency, CurrencyConverter converter)
+            throws IllegalArgumentException, ArithmeticException {
+        return convert(fastMoney, toCurrency, converter, DecimalPlacesStrategy.PROPORTIONAL, toCurrency.getRoundingMode());
+    }
+
+    /**
+     * Converts a packed amount like
+     * {@link CurrencyConverter#convert(Money, ConvertableCurrency, DecimalPlacesStrategy, RoundingMode)}.
+     * The result is numerically equal to the {@link Money} based conversion.
+     *
+     * @throws IllegalArgumentException if an exchange rate for either currency is not found
+     * @throws ArithmeticException if the converted amount can't be represented
+     */
+    public static long convert(long fastMoney, ConvertableCurrency toCurrency, CurrencyConverter converter,
+            DecimalPlacesStrategy decimalPlacesStrategy, RoundingMode roundingMode)
+            throws IllegalArgumentException, ArithmeticException {
+        final ConvertableCurrency fromCurrency = getCurrency(fastMoney);
+        final long unscaledAmount = getUnscaledAmount(fastMoney);
+        final int scale = getScale(fastMoney);
+        final int newScale = decimalPlacesStrategy.getRequiredScale(scale, fromCurrency, toCurrency);
+        final long converted;
+        if(fromCurrency == toCurrency)
+            converted = pack(FixedPoint.rescale(unscaledAmount, scale, newScale, roundingMode), newScale, toCurrency);
+        else {
+            ExchangeRate exchangeRate = converter.getExchangeRate(fromCurrency, toCurrency);
+            long convertedAmount = exchangeRate.convertUnscaled(unscaledAmount, scale, newScale, roundingMode);
+            converted = convertedAmount != FixedPoint.OVERFLOW
+                    ? pack(convertedAmount, newScale, toCurrency)
+                    : pack(exchangeRate.convert(toMoney(fastMoney), decimalPlacesStrategy, roundingMode));
+        }
+        if(converted == FixedPoint.OVERFLOW)
+            throw new ArithmeticException("Converted amount of " + toString(fastMoney) + " exceeds FastMoney range");
+        return converted;
+    }
+
+    public static String toString(long fastMoney) {
+        return "FastMoney [amount=" + getAmount(fastMoney) + ", currency=" + getCurrency(fastMoney) + "]";
+    }
+
+    private static long pack(Money money) {
+        BigDecimal amount = money.getAmount();
+        return pack(FixedPoint.unscaledValue(amount), amount.scale(), money.getCurrency());
+    }
+
+    /**
+     * @return the packed amount or {@link FixedPoint#OVERFLOW} if it can't be represented
+     */
+    static long pack(long unscaledAmount, int scale, ConvertableCurrency currency) {
+        if(scale < 0) {
+            unscaledAmount = FixedPoint.rescale(unscaledAmount, scale, 0, RoundingMode.UNNECESSARY);
+            scale = 0;
+        }
+        if(unscaledAmount == FixedPoint.OVERFLOW || scale > MAX_SCALE
+                || unscaledAmount < MIN_UNSCALED_AMOUNT || unscaledAmount > MAX_UNSCALED_AMOUNT)
+            return FixedPoint.OVERFLOW;
+        return unscaledAmount << AMOUNT_SHIFT | (long) scale << SCALE_SHIFT | currency.ordinal();
+    }
+}
@@ -0,0 +1,223 @@
+package com.mercateo.common.currency;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+
+/**
+ * Long arithmetic on decimals given as unscaled value and scale.
+ *
+ * Results are identical to the corresponding {@link BigDecimal} operations.
+ * Methods return {@link #OVERFLOW} instead of a result which does not fit
+ * into a long, callers are expected to fall back to {@link BigDecimal} then.
+ */
+final class FixedPoint {
+    /**
+     * Marker for results not representable by a long.
+     * {@link Long#MIN_VALUE} itself is never returned as a regular result.
+     */
+    static final long OVERFLOW = Long.MIN_VALUE;
+
+    private static final long[] POWERS_OF_TEN = {
+            1L,
+            10L,
+            100L,
+            1_000L,
+            10_000L,
+            100_000L,
+            1_000_000L,
+            10_000_000L,
+            100_000_000L,
+            1_000_000_000L,
+            10_000_000_000L,
+            100_000_000_000L,
+            1_000_000_000_000L,
+            10_000_000_000_000L,
+            100_000_000_000_000L,
+            1_000_000_000_000_000L,
+            10_000_000_000_000_000L,
+            100_000_000_000_000_000L,
+            1_000_000_000_000_000_000L };
+
+    private static final int MAX_POWER_OF_TEN = POWERS_OF_TEN.length - 1;
+
+    /**
+     * Products handled by {@link #multiplyAll} must be smaller than 2 to the power of this.
+     */
+    private static final int BATCH_PRODUCT_BITS = 61;
+
+    /**
+     * Reciprocals replacing the division by powers of ten in {@link #multiplyAll}:
+     * For 0 &lt;= n &lt; 2^61, n / 10^k equals
+     * {@code Math.multiplyHigh(n, RECIPROCALS[k]) >>> RECIPROCAL_SHIFTS[k]}.
+     */
+    private static final long[] RECIPROCALS = new long[POWERS_OF_TEN.length];
+    private static final int[] RECIPROCAL_SHIFTS = new int[POWERS_OF_TEN.length];
+
+    static {
+        for (int exponent = 1; exponent <= MAX_POWER_OF_TEN; exponent++) {
+            final long divisor = POWERS_OF_TEN[exponent];
+            final int divisorBits = Long.SIZE - Long.numberOfLeadingZeros(divisor - 1);
+            BigInteger[] quotientAndRemainder = BigInteger.ONE.shiftLeft(BATCH_PRODUCT_BITS + divisorBits)
+                    .divideAndRemainder(BigInteger.valueOf(divisor));
+            RECIPROCALS[exponent] = quotientAndRemainder[0].longValueExact() + (quotientAndRemainder[1].signum() != 0 ? 1 : 0);
+            RECIPROCAL_SHIFTS[exponent] = BATCH_PRODUCT_BITS + divisorBits - Long.SIZE;
+        }
+    }
+
+    private FixedPoint() {/**/}
+
+    /**
+     * Gets the unscaled value of the given amount, or {@link #OVERFLOW} if it does not fit.
+     */
+    static long unscaledValue(BigDecimal amount) {
+        if(amount.precision() > MAX_POWER_OF_TEN)
+            return OVERFLOW;
+        return amount.unscaledValue().longValue();
+    }
+
+    /**
+     * Gets 10 to the power of the given exponent, or {@link #OVERFLOW} if it does not fit.
+     */
+    static long powerOfTen(int exponent) {
+        return exponent >= 0 && exponent <= MAX_POWER_OF_TEN ? POWERS_OF_TEN[exponent] : OVERFLOW;
+    }
+
+    /**
+     * Multiplies two decimals and rounds the product to the given scale,
+     * like {@code BigDecimal.multiply(BigDecimal).setScale(int, RoundingMode)}.
+     *
+     * @throws ArithmeticException if rounding is necessary with {@link RoundingMode#UNNECESSARY}
+     */
+    static long multiply(long amount, int amountScale, long rate, int rateScale, int newScale,
+            RoundingMode roundingMode) throws ArithmeticException {
+        final long product = amount * rate;
+        if(Math.multiplyHigh(amount, rate) != (product >> 63))
+            return OVERFLOW;
+        return rescale(product, (long) amountScale + rateScale, newScale, roundingMode);
+    }
+
+    /**
+     * Multiplies all amounts by the same rate and rounds the products to the given scale like
+     * {@link #multiply}, but without division and overflow checks inside the loop.
+     *
+     * <p>Only {@link RoundingMode#HALF_EVEN} and {@link RoundingMode#UP}, the rounding modes of
+     * {@link ConvertableCurrency#getRoundingMode()}, and scale reductions from 0 to 18 are supported,
+     * and all products must stay below 2^61 in magnitude. Nothing is written if these
+     * preconditions are not met.</p>
+     *
+     * @return {@code false} if the preconditions are not met and the caller has to use {@link #multiply}
+     */
+    static boolean multiplyAll(long[] amounts, int amountScale, long rate, int rateScale, int newScale,
+            RoundingMode roundingMode, long[] products) {
+        final long scaleReduction = (long) amountScale + rateScale - newScale;
+        if(scaleReduction < 0 || scaleReduction > MAX_POWER_OF_TEN
+                || roundingMode != RoundingMode.HALF_EVEN && roundingMode != RoundingMode.UP
+                || rate == OVERFLOW)
+            return false;
+        long maxMagnitude = 0;
+        for (long amount : amounts)
+            maxMagnitude = Math.max(maxMagnitude, amount ^ (amount >> 63));
+        if(rate != 0 && maxMagnitude >= ((1L << BATCH_PRODUCT_BITS) - 1) / Math.abs(rate))
+            return false;
+        if(scaleReduction == 0) {
+            for (int i = 0; i < amounts.length; i++)
+                products[i] = amounts[i] * rate;
+            return true;
+        }
+        final long divisor = POWERS_OF_TEN[(int) scaleReduction];
+        final long reciprocal = RECIPROCALS[(int) scaleReduction];
+        final int shift = RECIPROCAL_SHIFTS[(int) scaleReduction];
+        if(roundingMode == RoundingMode.HALF_EVEN) {
+            for (int i = 0; i < amounts.length; i++) {
+                final long product = amounts[i] * rate;
+                final long sign = product >> 63;
+                final long magnitude = (product ^ sign) - sign;
+                final long quotient = Math.multiplyHigh(magnitude, reciprocal) >>> shift;
+                final long doubleRemainder = (magnitude - quotient * divisor) << 1;
+                final long rounded = quotient + (doubleRemainder > divisor
+                        || doubleRemainder == divisor && (quotient & 1) != 0 ? 1 : 0);
+                products[i] = (rounded ^ sign) - sign;
+            }
+        }
+        else {
+            for (int i = 0; i < amounts.length; i++) {
+                final long product = amounts[i] * rate;
+                final long sign = product >> 63;
+                final long magnitude = (product ^ sign) - sign;
+                final long quotient = Math.multiplyHigh(magnitude, reciprocal) >>> shift;
+                final long rounded = quotient + (magnitude != quotient * divisor ? 1 : 0);
+                products[i] = (rounded ^ sign) - sign;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Changes the scale of a decimal like {@code BigDecimal.setScale(int, RoundingMode)}.
+     *
+     * @throws ArithmeticException if rounding is necessary with {@link RoundingMode#UNNECESSARY}
+     */
+    static long rescale(long unscaled, long scale, int newScale, RoundingMode roundingMode)
+            throws ArithmeticException {
+        if(unscaled == OVERFLOW)
+            return OVERFLOW;
+        final long scaleReduction = scale - newScale;
+        if(scaleReduction == 0)
+            return unscaled;
+        if(scaleReduction < 0) {
+            if(unscaled == 0)
+                return 0;
+            if(scaleReduction < -MAX_POWER_OF_TEN)
+                return OVERFLOW;
+            final long factor = POWERS_OF_TEN[(int) -scaleReduction];
+            final long result = unscaled * factor;
+            if(Math.multiplyHigh(unscaled, factor) != (result >> 63) || result == OVERFLOW)
+                return OVERFLOW;
+            return result;
+        }
+        if(scaleReduction > MAX_POWER_OF_TEN)
+            return OVERFLOW;
+        return divide(unscaled, POWERS_OF_TEN[(int) scaleReduction], roundingMode);
+    }
+
+    /**
+     * Divides by a positive divisor and rounds the quotient to an integer.
+     */
+    static long divide(long dividend, long divisor, RoundingMode roundingMode) throws ArithmeticException {
+        final long quotient = dividend / divisor;
+        final long remainder = dividend - quotient * divisor;
+        if(remainder == 0)
+            return quotient;
+        final int sign = dividend < 0 ? -1 : 1;
+        final boolean increment;
+        switch (roundingMode) {
+        case UP:
+            increment = true;
+            break;
+        case DOWN:
+            increment = false;
+            break;
+        case CEILING:
+            increment = sign > 0;
+            break;
+        case FLOOR:
+            increment = sign < 0;
+            break;
+        case UNNECESSARY:
+            throw new ArithmeticException("Rounding necessary");
+        default:
+            final long absoluteRemainder = Math.abs(remainder);
+            final int comparedToHalf = Long.compare(absoluteRemainder, divisor - absoluteRemainder);
+            if(comparedToHalf != 0)
+                increment = comparedToHalf > 0;
+            else if(roundingMode == RoundingMode.HALF_UP)
+                increment = true;
+            else if(roundingMode == RoundingMode.HALF_DOWN)
+                increment = false;
+            else
+                increment = (quotient & 1) != 0;
+        }
+        return increment ? quotient + sign : quotient;
+    }
+}
@@ -6,45 +6,383 @@
 package com.mercateo.common.currency;
 
 import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.EnumMap;
-import java.util.function.Function;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
 
 import com.mercateo.common.util.annotations.NonNull;
+import com.mercateo.common.util.annotations.Nullable;
 
 /**
  * Handles conversion of monetary amounts between different currencies.
  *
  * This class manages a collection of exchange rates and provides methods
- * to convert between any supported currencies. It requires all exchange
- * rates to be specified relative to a common base currency.
+ * to convert between any supported currencies. Exchange rates may be given
+ * for arbitrary currency pairs; each of them can be used in both directions.
+ *
+ * <p>At construction, the rate between every pair of connected currencies is
+ * derived by chaining the given rates along a route with the fewest hops. Ties
+ * between equally short routes are broken deterministically in favour of
+ * intermediate currencies declared first in {@link ConvertableCurrency}.
+ * A given rate always takes precedence over its inverse and over derived rates.</p>
+ *
+ * <p>All rates are stored in a dense matrix indexed by currency ordinals. Lookups
+ * are plain array reads, so a single instance can be shared by any number of threads.
+ * {@link #withChangedRates(Collection)} derives a converter for a few changed rates
+ * sharing all unaffected rates with the original one.</p>
  */
 public class FrozenCurrencyConverter implements CurrencyConverter {
-    private final EnumMap<ConvertableCurrency, ExchangeRate> directRates;
-    private final EnumMap<ConvertableCurrency, EnumMap<ConvertableCurrency, ExchangeRate>> rates;
+    private static final ConvertableCurrency[] CURRENCIES = ConvertableCurrency.values();
+    private static final byte NO_PREDECESSOR = -1;
+    private static final byte UNVISITED = 0;
+    private static final byte UNCHANGED = 1;
+    private static final byte CHANGED = 2;
+    private static final ExchangeRate[] IDENTITIES = Arrays.stream(CURRENCIES)
+            .map(ExchangeRate::identity)
+            .toArray(ExchangeRate[]::new);
+
+    private final List<ExchangeRate> directRates;
+    /**
+     * Given and inverse rates indexed by [baseCurrency.ordinal()][quoteCurrency.ordinal()].
+     */
+    private final @Nullable ExchangeRate[][] edges;
+    /**
+     * Route trees indexed by [fromCurrency.ordinal()][toCurrency.ordinal()],
+     * holding the ordinal of the last currency before the target on its route.
+     */
+    private final byte[][] predecessors;
+    /**
+     * Rates indexed by [fromCurrency.ordinal()][toCurrency.ordinal()],
+     * {@code null} where no rate can be derived.
+     */
+    private final @Nullable ExchangeRate[][] rates;
 
     /**
      * Creates a new currency converter with the specified exchange rates.
      *
-     * @throws IllegalStateException if duplicate exchange rates are provided
+     * @throws IllegalStateException if conflicting exchange rates are provided
      */
     public FrozenCurrencyConverter(Collection<ExchangeRate> rateCollection) throws IllegalStateException {
+        this(new ArrayList<>(new LinkedHashSet<>(rateCollection)), null);
+    }
+
+    private FrozenCurrencyConverter(List<ExchangeRate> directRates, @Nullable FrozenCurrencyConverter previous) throws IllegalStateException {
         super();
-        this.directRates = new EnumMap<>(ConvertableCurrency.class);
-        rateCollection.forEach(rate -> directRates.put(rate.getQuoteCurrency(),  rate));
-        this.rates = new EnumMap<>(ConvertableCurrency.class);
-        rateCollection.forEach(this::addExchangeRate);
-        rateCollection.stream().map(ExchangeRate::invert)
-        .forEach(rate -> computeExchangeRateIfAbsent(rate.getBaseCurrency(), rate.getQuoteCurrency(), x -> rate));
+        this.directRates = directRates;
+        this.edges = calculateEdges(directRates, previous);
+        this.predecessors = new byte[CURRENCIES.length][];
+        this.rates = new ExchangeRate[CURRENCIES.length][];
+        if(previous != null && hasSameRoutes(edges, previous.edges)) {
+            for (ConvertableCurrency fromCurrency : CURRENCIES)
+                updateRoutedRates(fromCurrency.ordinal(), previous);
+        }
+        else {
+            for (ConvertableCurrency fromCurrency : CURRENCIES)
+                calculateRoutedRates(fromCurrency, previous);
+        }
     }
 
+    private FrozenCurrencyConverter(List<ExchangeRate> directRates, @Nullable ExchangeRate[][] edges, byte[][] predecessors,
+            @Nullable ExchangeRate[][] rates) {
+        super();
+        this.directRates = directRates;
+        this.edges = edges;
+        this.predecessors = predecessors;
+        this.rates = rates;
+    }
 
+    /**
+     * Restores a converter from its given rates and all its routed rates except the rates
+     * from each currency to itself, as written by {@link ConverterSnapshotFile}, without
+     * deriving any rate again. The routes are recomputed and checked against the routed rates.
+     *
+     * @param routedRates rates indexed by [fromCurrency.ordinal()][toCurrency.ordinal()], filled in place
+     * @throws IllegalArgumentException if the routed rates do not match the given rates
+     * @throws IllegalStateException if conflicting exchange rates are provided
+     */
+    @SuppressWarnings("null")
+    static FrozenCurrencyConverter restore(List<ExchangeRate> directRates, @Nullable ExchangeRate[][] routedRates)
+            throws IllegalArgumentException, IllegalStateException {
+        final ExchangeRate[][] edges = new ExchangeRate[CURRENCIES.length][CURRENCIES.length];
+        directRates.forEach(rate -> addExchangeRate(edges, rate));
+        for (ExchangeRate rate : directRates) {
+            final int base = rate.getBaseCurrency().ordinal();
+            final int quote = rate.getQuoteCurrency().ordinal();
+            if(edges[quote][base] == null) {
+                final ExchangeRate inverse = routedRates[quote][base];
+                if(inverse == null || ! inverse.isInverseOf(rate))
+                    throw new IllegalArgumentException("No inverse rate for " + rate);
+                edges[quote][base] = inverse;
+            }
+        }
+        final int[][] neighbors = new int[CURRENCIES.length][];
+        for (int via = 0; via < CURRENCIES.length; via++) {
+            final int v = via;
+            neighbors[via] = IntStream.range(0, CURRENCIES.length).filter(to -> to != v && edges[v][to] != null).toArray();
+        }
+        final byte[][] predecessors = new byte[CURRENCIES.length][];
+        for (int from = 0; from < CURRENCIES.length; from++) {
+            final ExchangeRate[] row = routedRates[from];
+            if(row[from] != null)
+                throw new IllegalArgumentException("Unexpected rate " + row[from]);
+            row[from] = edges[from][from] != null ? edges[from][from] : IDENTITIES[from];
+            predecessors[from] = restoreRoutes(from, edges, neighbors, row);
+        }
+        return new FrozenCurrencyConverter(directRates, edges, predecessors, routedRates);
+    }
+
+    /**
+     * Recomputes the route tree from one currency like {@link #calculateRoutedRates(ConvertableCurrency, FrozenCurrencyConverter)}
+     * and checks that exactly the reachable currencies have a rate.
+     *
+     * @param neighbors ordinals of the other currencies each currency has an edge to, in ascending order
+     */
     @SuppressWarnings("null")
-    private void addExchangeRate(@NonNull ExchangeRate rate) {
-        ExchangeRate knownRate = rates.computeIfAbsent(rate.getBaseCurrency(), x -> new EnumMap<>(ConvertableCurrency.class))
-                .put(rate.getQuoteCurrency(),  rate);
+    private static byte[] restoreRoutes(int from, @Nullable ExchangeRate[][] edges, int[][] neighbors, @Nullable ExchangeRate[] row)
+            throws IllegalArgumentException {
+        final byte[] rowPredecessors = new byte[CURRENCIES.length];
+        Arrays.fill(rowPredecessors, NO_PREDECESSOR);
+        int[] queue = new int[CURRENCIES.length];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = from;
+        while (head < tail) {
+            final int via = queue[head++];
+            for (int to : neighbors[via]) {
+                ExchangeRate edge = edges[via][to];
+                if(to != from && rowPredecessors[to] == NO_PREDECESSOR) {
+                    if(row[to] == null || via == from && ! edge.equals(row[to]))
+                        throw new IllegalArgumentException("Missing rate from " + CURRENCIES[from] + " to " + CURRENCIES[to]);
+                    if(via == from)
+                        row[to] = edge;
+                    rowPredecessors[to] = (byte) via;
+                    queue[tail++] = to;
+                }
+            }
+        }
+        for (int to = 0; to < CURRENCIES.length; to++) {
+            if(row[to] != null && to != from && rowPredecessors[to] == NO_PREDECESSOR)
+                throw new IllegalArgumentException("Unexpected rate " + row[to]);
+        }
+        return rowPredecessors;
+    }
+
+    /**
+     * Passes all routed rates between different currencies to the consumer.
+     */
+    void forEachRoutedRate(Consumer<ExchangeRate> consumer) {
+        for (int from = 0; from < CURRENCIES.length; from++) {
+            final ExchangeRate[] row = rates[from];
+            for (int to = 0; to < CURRENCIES.length; to++) {
+                final ExchangeRate rate = row[to];
+                if(rate != null && to != from)
+                    consumer.accept(rate);
+            }
+        }
+    }
+
+    /**
+     * Returns the given exchange rates without duplicates, in the order they were provided.
+     */
+    public List<ExchangeRate> getDirectRates() {
+        return Collections.unmodifiableList(directRates);
+    }
+
+    /**
+     * Creates a builder collecting exchange rates one by one, e.g. while streaming them from a file.
+     */
+    public static Builder builder() {
+        return new Builder(null);
+    }
+
+    /**
+     * Creates a builder whose converters share all rates unaffected by the collected rates with the
+     * specified converter, e.g. while loading a complete refresh of its rates. Unlike
+     * {@link #withChangedRates(Collection)}, the built converters only use the collected rates.
+     */
+    public static Builder builder(FrozenCurrencyConverter previous) {
+        return new Builder(previous);
+    }
+
+    /**
+     * Creates a new currency converter replacing the given exchange rates between the same
+     * two currencies as a changed rate, in either direction, and adding all other changed rates.
+     *
+     * <p>Only rates whose route uses a changed rate or whose route changes are
+     * recomputed. All other rates and every unaffected row of rates are shared
+     * with this converter, which stays unchanged.</p>
+     *
+     * @throws IllegalStateException if conflicting exchange rates are provided
+     */
+    public FrozenCurrencyConverter withChangedRates(Collection<ExchangeRate> changedRates) throws IllegalStateException {
+        ExchangeRate[][] changes = new ExchangeRate[CURRENCIES.length][CURRENCIES.length];
+        boolean[][] changedPairs = new boolean[CURRENCIES.length][CURRENCIES.length];
+        for (ExchangeRate rate : changedRates) {
+            addExchangeRate(changes, rate);
+            changedPairs[rate.getBaseCurrency().ordinal()][rate.getQuoteCurrency().ordinal()] = true;
+            changedPairs[rate.getQuoteCurrency().ordinal()][rate.getBaseCurrency().ordinal()] = true;
+        }
+        List<ExchangeRate> newDirectRates = new ArrayList<>(directRates.size() + changedRates.size());
+        for (ExchangeRate rate : directRates) {
+            final int base = rate.getBaseCurrency().ordinal();
+            final int quote = rate.getQuoteCurrency().ordinal();
+            if(! changedPairs[base][quote])
+                newDirectRates.add(rate);
+            else {
+                takeChange(changes, base, quote, newDirectRates);
+                takeChange(changes, quote, base, newDirectRates);
+            }
+        }
+        for (ExchangeRate rate : changedRates)
+            takeChange(changes, rate.getBaseCurrency().ordinal(), rate.getQuoteCurrency().ordinal(), newDirectRates);
+        return new FrozenCurrencyConverter(newDirectRates, this);
+    }
+
+    private static void takeChange(@Nullable ExchangeRate[][] changes, int base, int quote, List<ExchangeRate> newDirectRates) {
+        final ExchangeRate change = changes[base][quote];
+        if(change != null) {
+            changes[base][quote] = null;
+            newDirectRates.add(change);
+        }
+    }
+
+    private static @Nullable ExchangeRate[][] calculateEdges(List<ExchangeRate> directRates, @Nullable FrozenCurrencyConverter previous) {
+        ExchangeRate[][] edges = new ExchangeRate[CURRENCIES.length][CURRENCIES.length];
+        directRates.forEach(rate -> addExchangeRate(edges, rate));
+        for (ExchangeRate rate : directRates) {
+            final int base = rate.getBaseCurrency().ordinal();
+            final int quote = rate.getQuoteCurrency().ordinal();
+            final ExchangeRate previousRate = previous != null ? previous.edges[base][quote] : null;
+            if(previousRate != null && previousRate.equals(rate))
+                edges[base][quote] = previousRate;
+            if(edges[quote][base] == null) {
+                final ExchangeRate previousInverse = previous != null ? previous.edges[quote][base] : null;
+                edges[quote][base] = previousInverse != null && previousInverse.isInverseOf(rate) ? previousInverse : rate.invert();
+            }
+        }
+        return edges;
+    }
+
+    private static void addExchangeRate(@Nullable ExchangeRate[][] edges, @NonNull ExchangeRate rate) {
+        ExchangeRate[] row = edges[rate.getBaseCurrency().ordinal()];
+        ExchangeRate knownRate = row[rate.getQuoteCurrency().ordinal()];
         if(knownRate != null && ! knownRate.equals(rate))
             throw new IllegalStateException("conflicting rates " + rate + " and " + knownRate);
+        row[rate.getQuoteCurrency().ordinal()] = rate;
+    }
+
+    /**
+     * Given and inverse rates for the same currency pairs result in the same routes.
+     */
+    private static boolean hasSameRoutes(@Nullable ExchangeRate[][] edges, @Nullable ExchangeRate[][] previousEdges) {
+        for (int base = 0; base < CURRENCIES.length; base++) {
+            for (int quote = 0; quote < CURRENCIES.length; quote++) {
+                if((edges[base][quote] == null) != (previousEdges[base][quote] == null))
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Recomputes the rates from one currency along the routes of the previous converter,
+     * only where a rate along the route changed.
+     */
+    @SuppressWarnings("null")
+    private void updateRoutedRates(int from, FrozenCurrencyConverter previous) {
+        final ExchangeRate[] previousRow = previous.rates[from];
+        final byte[] rowPredecessors = previous.predecessors[from];
+        final ExchangeRate[] row = previousRow.clone();
+        final byte[] states = new byte[CURRENCIES.length];
+        boolean rowChanged = false;
+        if(edges[from][from] != previous.edges[from][from]) {
+            row[from] = edges[from][from];
+            rowChanged = true;
+        }
+        for (int to = 0; to < CURRENCIES.length; to++) {
+            if(to != from && rowPredecessors[to] != NO_PREDECESSOR)
+                rowChanged |= updateRoutedRate(from, to, rowPredecessors, row, states, previous);
+        }
+        rates[from] = rowChanged ? row : previousRow;
+        predecessors[from] = rowPredecessors;
+    }
+
+    @SuppressWarnings("null")
+    private boolean updateRoutedRate(int from, int to, byte[] rowPredecessors, @Nullable ExchangeRate[] row, byte[] states,
+            FrozenCurrencyConverter previous) {
+        if(states[to] == UNVISITED) {
+            final int via = rowPredecessors[to];
+            final ExchangeRate edge = edges[via][to];
+            final boolean viaChanged = via != from && updateRoutedRate(from, via, rowPredecessors, row, states, previous);
+            if(viaChanged || edge != previous.edges[via][to]) {
+                row[to] = via == from ? edge : row[via].compose(edge);
+                states[to] = CHANGED;
+            }
+            else
+                states[to] = UNCHANGED;
+        }
+        return states[to] == CHANGED;
+    }
+
+    /**
+     * Calculates the rates from one currency to all others by a breadth first search
+     * visiting currencies in ordinal order. Rates of the previous converter are reused
+     * wherever the route and all rates along it are unchanged.
+     */
+    @SuppressWarnings("null")
+    private void calculateRoutedRates(ConvertableCurrency fromCurrency, @Nullable FrozenCurrencyConverter previous) {
+        final int from = fromCurrency.ordinal();
+        final ExchangeRate[] previousRow = previous != null ? previous.rates[from] : null;
+        final byte[] previousPredecessors = previous != null ? previous.predecessors[from] : null;
+        final ExchangeRate[] row = new ExchangeRate[CURRENCIES.length];
+        final byte[] rowPredecessors = new byte[CURRENCIES.length];
+        Arrays.fill(rowPredecessors, NO_PREDECESSOR);
+        final boolean[] unchanged = new boolean[CURRENCIES.length];
+        boolean rowUnchanged = previous != null;
+
+        if(previous != null && edges[from][from] == previous.edges[from][from])
+            row[from] = previousRow[from];
+        else {
+            row[from] = edges[from][from] != null ? edges[from][from] : IDENTITIES[from];
+            rowUnchanged = false;
+        }
+        int[] queue = new int[CURRENCIES.length];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = from;
+        while (head < tail) {
+            final int via = queue[head++];
+            for (int to = 0; to < CURRENCIES.length; to++) {
+                ExchangeRate edge = edges[via][to];
+                if(edge != null && row[to] == null) {
+                    rowPredecessors[to] = (byte) via;
+                    unchanged[to] = previous != null
+                            && previousPredecessors[to] == via
+                            && edge == previous.edges[via][to]
+                            && (via == from || unchanged[via]);
+                    if(unchanged[to])
+                        row[to] = previousRow[to];
+                    else {
+                        row[to] = via == from ? edge : row[via].compose(edge);
+                        rowUnchanged = false;
+                    }
+                    queue[tail++] = to;
+                }
+            }
+        }
+        if(rowUnchanged && Arrays.equals(rowPredecessors, previousPredecessors)) {
+            rates[from] = previousRow;
+            predecessors[from] = previousPredecessors;
+        }
+        else {
+            rates[from] = row;
+            predecessors[from] = rowPredecessors;
+        }
     }
 
 
@@ -85,30 +423,82 @@ public class FrozenCurrencyConverter implements CurrencyConverter {
      */
     @Override
     public ExchangeRate getExchangeRate(ConvertableCurrency fromCurrency, ConvertableCurrency toCurrency) throws IllegalArgumentException {
-        return computeExchangeRateIfAbsent(fromCurrency, toCurrency,
-                fromCurrency == toCurrency ? ExchangeRate::identity : x -> calculateDerivedRate(fromCurrency, toCurrency));
+        ExchangeRate rate = rates[fromCurrency.ordinal()][toCurrency.ordinal()];
+        if(rate == null)
+            throw unknownRate(fromCurrency, toCurrency);
+        return rate;
     }
 
-    @SuppressWarnings("null")
-    private ExchangeRate calculateDerivedRate(ConvertableCurrency fromCurrency, ConvertableCurrency toCurrency) {
-        ExchangeRate knownRate = directRates.get(toCurrency);
-        if(knownRate == null)
-            throw new IllegalArgumentException("Unknown Currency " + toCurrency);
-        ExchangeRate newBaseRate = directRates.get(fromCurrency);
-        if(newBaseRate == null)
-            throw new IllegalArgumentException("Unknown Currency " + fromCurrency);
-        return knownRate.withBase(newBaseRate);
+    private IllegalArgumentException unknownRate(ConvertableCurrency fromCurrency, ConvertableCurrency toCurrency) {
+        if(! isKnown(toCurrency))
+            return new IllegalArgumentException("Unknown Currency " + toCurrency);
+        if(! isKnown(fromCurrency))
+            return new IllegalArgumentException("Unknown Currency " + fromCurrency);
+        return new IllegalArgumentException("No exchange rate path from " + fromCurrency + " to " + toCurrency);
     }
 
-
-    private ExchangeRate computeExchangeRateIfAbsent(ConvertableCurrency fromCurrency,
-            ConvertableCurrency toCurrency, Function<ConvertableCurrency, ExchangeRate> rateCalculator) {
-        return rates.computeIfAbsent(fromCurrency, x -> new EnumMap<>(ConvertableCurrency.class))
-        .computeIfAbsent(toCurrency, rateCalculator);
+    private boolean isKnown(ConvertableCurrency currency) {
+        return directRates.stream().anyMatch(rate -> rate.getBaseCurrency() == currency || rate.getQuoteCurrency() == currency);
     }
 
     @Override
     public String toString() {
         return "MoneyExchange [rates=" + directRates + "]";
     }
-}
\ No newline at end of file
+
+    /**
+     * Collects exchange rates for a {@link FrozenCurrencyConverter}.
+     *
+     * <p>Conflicting rates are rejected when they are added, duplicates are ignored. A builder
+     * can build any number of converters and continue collecting rates afterwards. Builders
+     * are not thread-safe.</p>
+     */
+    public static final class Builder {
+        private final List<ExchangeRate> rates = new ArrayList<>();
+        private final @Nullable ExchangeRate[][] edges = new ExchangeRate[CURRENCIES.length][CURRENCIES.length];
+        private final @Nullable FrozenCurrencyConverter previous;
+
+        private Builder(@Nullable FrozenCurrencyConverter previous) {
+            super();
+            this.previous = previous;
+        }
+
+        /**
+         * Adds the specified exchange rate.
+         *
+         * @throws IllegalStateException if a different rate for the same currency pair was added
+         */
+        public Builder add(ExchangeRate rate) throws IllegalStateException {
+            final ExchangeRate knownRate = edges[rate.getBaseCurrency().ordinal()][rate.getQuoteCurrency().ordinal()];
+            if(knownRate == null)
+                rates.add(rate);
+            addExchangeRate(edges, rate);
+            return this;
+        }
+
+        /**
+         * Adds all specified exchange rates.
+         *
+         * @throws IllegalStateException if a different rate for the same currency pair was added
+         */
+        public Builder addAll(Collection<ExchangeRate> rateCollection) throws IllegalStateException {
+            rateCollection.forEach(this::add);
+            return this;
+        }
+
+        /**
+         * Returns the number of distinct exchange rates added.
+         */
+        public int size() {
+            return rates.size();
+        }
+
+        public boolean isEmpty() {
+            return rates.isEmpty();
+        }
+
+        public FrozenCurrencyConverter build() {
+            return new FrozenCurrencyConverter(new ArrayList<>(rates), previous);
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.mercateo.common.currency;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import com.mercateo.common.util.annotations.Nullable;
+
+/**
+ * Accumulates monetary amounts in mixed currencies as exact per-currency subtotals.
+ *
+ * <p>Amounts are only converted when a total is requested, and then each subtotal is
+ * converted once. Bags can be merged, which makes them suitable as mutable containers
+ * of parallel stream reductions, see {@link MoneyCollectors}.</p>
+ *
+ * <p>Subtotals are held in dense arrays indexed by currency ordinal as unscaled long
+ * and scale. Adding and subtracting allocates nothing as long as a subtotal fits into
+ * a long; a subtotal exceeding it continues as {@link BigDecimal}. Subtotals have the
+ * largest scale of their summands, exactly like {@link BigDecimal#add(BigDecimal)}.</p>
+ *
+ * <p>Instances are not thread-safe.</p>
+ */
+public final class MoneyBag {
+    private static final ConvertableCurrency[] CURRENCIES = ConvertableCurrency.values();
+
+    private final boolean[] present = new boolean[CURRENCIES.length];
+    private final long[] unscaledSubtotals = new long[CURRENCIES.length];
+    private final int[] scales = new int[CURRENCIES.length];
+    /**
+     * Subtotals which no longer fit into a long, these take precedence over the long subtotals.
+     */
+    private final @Nullable BigDecimal[] largeSubtotals = new BigDecimal[CURRENCIES.length];
+
+    /**
+     * Adds the given money to the subtotal of its currency.
+     *
+     * @return this bag
+     */
+    public MoneyBag add(Money money) {
+        BigDecimal amount = money.getAmount();
+        long unscaledAmount = FixedPoint.unscaledValue(amount);
+        if(unscaledAmount == FixedPoint.OVERFLOW)
+            addLarge(money.getCurrency().ordinal(), amount);
+        else
+            add(money.getCurrency().ordinal(), unscaledAmount, amount.scale());
+        return this;
+    }
+
+    /**
+     * Adds an amount given as unscaled value and scale to the subtotal of its currency.
+     *
+     * @return this bag
+     */
+    public MoneyBag add(long unscaledAmount, int scale, ConvertableCurrency currency) {
+        if(unscaledAmount == Long.MIN_VALUE)
+            addLarge(currency.ordinal(), BigDecimal.valueOf(unscaledAmount, scale));
+        else
+            add(currency.ordinal(), unscaledAmount, scale);
+        return this;
+    }
+
+    /**
+     * Subtracts the given money from the subtotal of its currency.
+     *
+     * @return this bag
+     */
+    public MoneyBag subtract(Money money) {
+        BigDecimal amount = money.getAmount();
+        long unscaledAmount = FixedPoint.unscaledValue(amount);
+        if(unscaledAmount == FixedPoint.OVERFLOW)
+            addLarge(money.getCurrency().ordinal(), amount.negate());
+        else
+            add(money.getCurrency().ordinal(), -unscaledAmount, amount.scale());
+        return this;
+    }
+
+    /**
+     * Subtracts an amount given as unscaled value and scale from the subtotal of its currency.
+     *
+     * @return this bag
+     */
+    public MoneyBag subtract(long unscaledAmount, int scale, ConvertableCurrency currency) {
+        if(unscaledAmount == Long.MIN_VALUE)
+            addLarge(currency.ordinal(), BigDecimal.valueOf(unscaledAmount, scale).negate());
+        else
+            add(currency.ordinal(), -unscaledAmount, scale);
+        return this;
+    }
+
+    /**
+     * Adds all subtotals of the other bag to this bag.
+     *
+     * @return this bag
+     */
+    public MoneyBag merge(MoneyBag other) {
+        for (int currency = 0; currency < present.length; currency++) {
+            BigDecimal otherLargeSubtotal = other.largeSubtotals[currency];
+            if(otherLargeSubtotal != null)
+                addLarge(currency, otherLargeSubtotal);
+            else if(other.present[currency])
+                add(currency, other.unscaledSubtotals[currency], other.scales[currency]);
+        }
+        return this;
+    }
+
+    /**
+     * Tells whether nothing was added to this bag.
+     */
+    public boolean isEmpty() {
+        for (boolean currencyPresent : present) {
+            if(currencyPresent)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Gets the exact sum of all added amounts in the given currency.
+     */
+    public Money getSubtotal(ConvertableCurrency currency) {
+        return new Money(subtotal(currency.ordinal()), currency);
+    }
+
+    /**
+     * Converts each subtotal like {@link CurrencyConverter#convertProportionally(Money, ConvertableCurrency)}
+     * and sums up the results.
+     *
+     * @throws IllegalArgumentException if an exchange rate for any contained currency is not found
+     */
+    public Money totalIn(ConvertableCurrency toCurrency, CurrencyConverter converter) throws IllegalArgumentException {
+        return totalIn(toCurrency, converter, DecimalPlacesStrategy.PROPORTIONAL, toCurrency.getRoundingMode());
+    }
+
+    /**
+     * Converts each subtotal like
+     * {@link CurrencyConverter#convert(Money, ConvertableCurrency, DecimalPlacesStrategy, RoundingMode)}
+     * and sums up the results.
+     *
+     * @throws IllegalArgumentException if an exchange rate for any contained currency is not found
+     */
+    public Money totalIn(ConvertableCurrency toCurrency, CurrencyConverter converter,
+            DecimalPlacesStrategy decimalPlacesStrategy, RoundingMode roundingMode) throws IllegalArgumentException {
+        BigDecimal total = BigDecimal.ZERO;
+        for (ConvertableCurrency currency : CURRENCIES) {
+            if(present[currency.ordinal()]) {
+                Money convertedSubtotal = converter.convert(getSubtotal(currency), toCurrency,
+                        decimalPlacesStrategy, roundingMode);
+                total = total.add(convertedSubtotal.getAmount());
+            }
+        }
+        return new Money(total, toCurrency);
+    }
+
+    private void add(int currency, long unscaledAmount, int scale) {
+        if(largeSubtotals[currency] != null) {
+            addLarge(currency, BigDecimal.valueOf(unscaledAmount, scale));
+            return;
+        }
+        if(! present[currency]) {
+            present[currency] = true;
+            unscaledSubtotals[currency] = unscaledAmount;
+            scales[currency] = scale;
+            return;
+        }
+        final int subtotalScale = scales[currency];
+        final int newScale = Math.max(subtotalScale, scale);
+        final long unscaledSubtotal = FixedPoint.rescale(unscaledSubtotals[currency], subtotalScale, newScale, RoundingMode.UNNECESSARY);
+        final long alignedAmount = FixedPoint.rescale(unscaledAmount, scale, newScale, RoundingMode.UNNECESSARY);
+        final long sum = unscaledSubtotal + alignedAmount;
+        if(unscaledSubtotal == FixedPoint.OVERFLOW || alignedAmount == FixedPoint.OVERFLOW
+                || ((unscaledSubtotal ^ sum) & (alignedAmount ^ sum)) < 0) {
+            addLarge(currency, BigDecimal.valueOf(unscaledAmount, scale));
+            return;
+        }
+        unscaledSubtotals[currency] = sum;
+        scales[currency] = newScale;
+    }
+
+    private void addLarge(int currency, BigDecimal amount) {
+        largeSubtotals[currency] = present[currency] ? subtotal(currency).add(amount) : amount;
+        present[currency] = true;
+    }
+
+    @SuppressWarnings("null")
+    private BigDecimal subtotal(int currency) {
+        if(! present[currency])
+            return BigDecimal.ZERO;
+        BigDecimal largeSubtotal = largeSubtotals[currency];
+        return largeSubtotal != null ? largeSubtotal : BigDecimal.valueOf(unscaledSubtotals[currency], scales[currency]);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("MoneyBag [");
+        for (ConvertableCurrency currency : CURRENCIES) {
+            if(present[currency.ordinal()]) {
+                if(builder.length() > "MoneyBag [".length())
+                    builder.append(", ");
+                builder.append(subtotal(currency.ordinal())).append(' ').append(currency);
+            }
+        }
+        return builder.append(']').toString();
+    }
+}
@@ -0,0 +1,46 @@
+package com.mercateo.common.currency;
+
+import java.math.RoundingMode;
+import java.util.stream.Collector;
+
+/**
+ * {@link Collector}s summing up monetary amounts in mixed currencies.
+ *
+ * <p>Amounts are accumulated per currency in a {@link MoneyBag} first, so each
+ * currency's subtotal is converted only once at the end. All collectors support
+ * parallel streams.</p>
+ */
+public final class MoneyCollectors {
+
+    private MoneyCollectors() {/**/}
+
+    /**
+     * Collects amounts into a {@link MoneyBag} holding exact per-currency subtotals.
+     */
+    public static Collector<Money, ?, MoneyBag> toMoneyBag() {
+        return Collector.of(MoneyBag::new, MoneyBag::add, MoneyBag::merge,
+                Collector.Characteristics.UNORDERED, Collector.Characteristics.IDENTITY_FINISH);
+    }
+
+    /**
+     * Sums up amounts in the target currency, see {@link MoneyBag#totalIn(ConvertableCurrency, CurrencyConverter)}.
+     *
+     * @throws IllegalArgumentException on collection, if an exchange rate for any contained currency is not found
+     */
+    public static Collector<Money, ?, Money> summingIn(ConvertableCurrency toCurrency, CurrencyConverter converter) {
+        return summingIn(toCurrency, converter, DecimalPlacesStrategy.PROPORTIONAL, toCurrency.getRoundingMode());
+    }
+
+    /**
+     * Sums up amounts in the target currency, see
+     * {@link MoneyBag#totalIn(ConvertableCurrency, CurrencyConverter, DecimalPlacesStrategy, RoundingMode)}.
+     *
+     * @throws IllegalArgumentException on collection, if an exchange rate for any contained currency is not found
+     */
+    public static Collector<Money, ?, Money> summingIn(ConvertableCurrency toCurrency, CurrencyConverter converter,
+            DecimalPlacesStrategy decimalPlacesStrategy, RoundingMode roundingMode) {
+        return Collector.of(MoneyBag::new, MoneyBag::add, MoneyBag::merge,
+                bag -> bag.totalIn(toCurrency, converter, decimalPlacesStrategy, roundingMode),
+                Collector.Characteristics.UNORDERED);
+    }
+}
@@ -0,0 +1,189 @@
+package com.mercateo.common.currency;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * A growable column of monetary amounts in mixed currencies, stored as parallel
+ * primitive arrays of currency ordinals, unscaled amounts and scales.
+ *
+ * <p>Compared to a list of {@link Money} objects a column needs 10 bytes per amount
+ * and no object per element. Amounts can be appended, sliced, iterated and converted
+ * in bulk without materializing {@link Money} instances.</p>
+ *
+ * <p>Instances are not thread-safe.</p>
+ */
+public final class MoneyColumn {
+    private static final ConvertableCurrency[] CURRENCIES = ConvertableCurrency.values();
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * Receives the amounts of a column one by one.
+     */
+    @FunctionalInterface
+    public interface AmountConsumer {
+        void accept(ConvertableCurrency currency, long unscaledAmount, int scale);
+    }
+
+    private byte[] currencies;
+    private long[] unscaledAmounts;
+    private byte[] scales;
+    private int size;
+
+    public MoneyColumn() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public MoneyColumn(int initialCapacity) {
+        this(new byte[initialCapacity], new long[initialCapacity], new byte[initialCapacity], 0);
+    }
+
+    private MoneyColumn(byte[] currencies, long[] unscaledAmounts, byte[] scales, int size) {
+        super();
+        this.currencies = currencies;
+        this.unscaledAmounts = unscaledAmounts;
+        this.scales = scales;
+        this.size = size;
+    }
+
+    /**
+     * Appends the given money.
+     *
+     * @throws IllegalArgumentException if the unscaled amount does not fit into a long
+     *         or the scale does not fit into a byte
+     */
+    public void append(Money money) throws IllegalArgumentException {
+        BigDecimal amount = money.getAmount();
+        long unscaledAmount = FixedPoint.unscaledValue(amount);
+        if(unscaledAmount == FixedPoint.OVERFLOW)
+            throw new IllegalArgumentException("Amount " + amount + " exceeds long range");
+        append(unscaledAmount, amount.scale(), money.getCurrency());
+    }
+
+    /**
+     * Appends an amount given as unscaled value and scale.
+     *
+     * @throws IllegalArgumentException if the scale does not fit into a byte
+     */
+    public void append(long unscaledAmount, int scale, ConvertableCurrency currency) throws IllegalArgumentException {
+        if(scale != (byte) scale)
+            throw new IllegalArgumentException("Scale " + scale + " exceeds byte range");
+        if(size == unscaledAmounts.length)
+            grow();
+        currencies[size] = (byte) currency.ordinal();
+        unscaledAmounts[size] = unscaledAmount;
+        scales[size] = (byte) scale;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public ConvertableCurrency getCurrency(int index) {
+        return CURRENCIES[currencies[checkIndex(index)]];
+    }
+
+    public long getUnscaledAmount(int index) {
+        return unscaledAmounts[checkIndex(index)];
+    }
+
+    public int getScale(int index) {
+        return scales[checkIndex(index)];
+    }
+
+    /**
+     * Materializes the amount at the given index.
+     */
+    public Money getMoney(int index) {
+        checkIndex(index);
+        return new Money(BigDecimal.valueOf(unscaledAmounts[index], scales[index]), CURRENCIES[currencies[index]]);
+    }
+
+    /**
+     * Passes all amounts in order to the given consumer.
+     */
+    public void forEach(AmountConsumer consumer) {
+        for (int i = 0; i < size; i++)
+            consumer.accept(CURRENCIES[currencies[i]], unscaledAmounts[i], scales[i]);
+    }
+
+    /**
+     * Copies the amounts from {@code fromIndex}, inclusive, to {@code toIndex}, exclusive, into a new column.
+     *
+     * @throws IndexOutOfBoundsException if the range is not within this column
+     */
+    public MoneyColumn slice(int fromIndex, int toIndex) throws IndexOutOfBoundsException {
+        if(fromIndex < 0 || toIndex > size || fromIndex > toIndex)
+            throw new IndexOutOfBoundsException("Range [" + fromIndex + ", " + toIndex + ") out of bounds for size " + size);
+        return new MoneyColumn(Arrays.copyOfRange(currencies, fromIndex, toIndex),
+                Arrays.copyOfRange(unscaledAmounts, fromIndex, toIndex),
+                Arrays.copyOfRange(scales, fromIndex, toIndex), toIndex - fromIndex);
+    }
+
+    /**
+     * Converts all amounts into a new column like
+     * {@link CurrencyConverter#convertToPrice(Money, ConvertableCurrency)}.
+     *
+     * @throws IllegalArgumentException if an exchange rate for any contained currency is not found
+     * @throws ArithmeticException if a converted amount does not fit into a long
+     */
+    public MoneyColumn convertAllTo(ConvertableCurrency toCurrency, CurrencyConverter converter)
+            throws IllegalArgumentException, ArithmeticException {
+        return convertAllTo(toCurrency, converter, DecimalPlacesStrategy.TO_PRICE, toCurrency.getRoundingMode());
+    }
+
+    /**
+     * Converts all amounts into a new column like
+     * {@link CurrencyConverter#convert(Money, ConvertableCurrency, DecimalPlacesStrategy, RoundingMode)}.
+     * Each exchange rate is fetched from the converter once per source currency.
+     *
+     * @throws IllegalArgumentException if an exchange rate for any contained currency is not found
+     * @throws ArithmeticException if a converted amount does not fit into a long
+     */
+    public MoneyColumn convertAllTo(ConvertableCurrency toCurrency, CurrencyConverter converter,
+            DecimalPlacesStrategy decimalPlacesStrategy, RoundingMode roundingMode)
+            throws IllegalArgumentException, ArithmeticException {
+        ExchangeRate[] exchangeRates = new ExchangeRate[CURRENCIES.length];
+        byte[] convertedCurrencies = new byte[size];
+        long[] convertedAmounts = new long[size];
+        byte[] convertedScales = new byte[size];
+        Arrays.fill(convertedCurrencies, (byte) toCurrency.ordinal());
+        for (int i = 0; i < size; i++) {
+            final int currency = currencies[i];
+            ExchangeRate exchangeRate = exchangeRates[currency];
+            if(exchangeRate == null)
+                exchangeRate = exchangeRates[currency] = fetchExchangeRate(CURRENCIES[currency], toCurrency, converter);
+            final int newScale = decimalPlacesStrategy.getRequiredScale(scales[i], CURRENCIES[currency], toCurrency);
+            if(newScale != (byte) newScale)
+                throw new ArithmeticException("Scale " + newScale + " exceeds byte range");
+            convertedAmounts[i] = exchangeRate.convertUnscaledExactly(unscaledAmounts[i], scales[i], newScale, roundingMode);
+            convertedScales[i] = (byte) newScale;
+        }
+        return new MoneyColumn(convertedCurrencies, convertedAmounts, convertedScales, size);
+    }
+
+    private static ExchangeRate fetchExchangeRate(ConvertableCurrency fromCurrency, ConvertableCurrency toCurrency,
+            CurrencyConverter converter) throws IllegalArgumentException {
+        return fromCurrency == toCurrency ? ExchangeRate.identity(fromCurrency)
+                : converter.getExchangeRate(fromCurrency, toCurrency);
+    }
+
+    private int checkIndex(int index) throws IndexOutOfBoundsException {
+        return Objects.checkIndex(index, size);
+    }
+
+    private void grow() {
+        int newCapacity = Math.max(DEFAULT_CAPACITY, unscaledAmounts.length + (unscaledAmounts.length >> 1));
+        currencies = Arrays.copyOf(currencies, newCapacity);
+        unscaledAmounts = Arrays.copyOf(unscaledAmounts, newCapacity);
+        scales = Arrays.copyOf(scales, newCapacity);
+    }
+
+    @Override
+    public String toString() {
+        return "MoneyColumn [size=" + size + "]";
+    }
+}
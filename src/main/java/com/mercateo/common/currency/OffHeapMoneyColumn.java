@@ -0,0 +1,183 @@
+package com.mercateo.common.currency;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A growable column of monetary amounts in mixed currencies stored outside the heap,
+ * see {@link MoneyColumn} for the on-heap variant.
+ *
+ * <p>Amounts are kept as fixed-width records of {@value #RECORD_SIZE} bytes
+ * (unscaled amount as long, currency ordinal and scale as bytes) in direct
+ * {@link ByteBuffer} chunks, so columns are not limited by the 2 GB limit of a
+ * single buffer. Conversion rewrites the records in place.</p>
+ *
+ * <p>Direct buffers are capped by {@code -XX:MaxDirectMemorySize}, which defaults
+ * to the maximum heap size. Columns larger than the heap need a higher limit,
+ * otherwise appending fails with {@code OutOfMemoryError: Direct buffer memory}.</p>
+ *
+ * <p>Instances are not thread-safe. Off-heap memory is released when the column
+ * becomes unreachable.</p>
+ */
+public final class OffHeapMoneyColumn {
+    static final int RECORD_SIZE = Long.BYTES + 2;
+    private static final int CURRENCY_OFFSET = Long.BYTES;
+    private static final int SCALE_OFFSET = Long.BYTES + 1;
+    private static final int DEFAULT_RECORDS_PER_CHUNK = 1 << 20;
+    private static final ConvertableCurrency[] CURRENCIES = ConvertableCurrency.values();
+
+    private final int recordsPerChunk;
+    private final List<ByteBuffer> chunks = new ArrayList<>();
+    private long size;
+
+    public OffHeapMoneyColumn() {
+        this(DEFAULT_RECORDS_PER_CHUNK);
+    }
+
+    /**
+     * @param recordsPerChunk number of amounts per allocated direct buffer
+     * @throws IllegalArgumentException if a chunk would exceed the maximum buffer size
+     */
+    public OffHeapMoneyColumn(int recordsPerChunk) throws IllegalArgumentException {
+        super();
+        if(recordsPerChunk <= 0 || recordsPerChunk > Integer.MAX_VALUE / RECORD_SIZE)
+            throw new IllegalArgumentException("Invalid number of records per chunk " + recordsPerChunk);
+        this.recordsPerChunk = recordsPerChunk;
+    }
+
+    /**
+     * Appends the given money.
+     *
+     * @throws IllegalArgumentException if the unscaled amount does not fit into a long
+     *         or the scale does not fit into a byte
+     */
+    public void append(Money money) throws IllegalArgumentException {
+        BigDecimal amount = money.getAmount();
+        long unscaledAmount = FixedPoint.unscaledValue(amount);
+        if(unscaledAmount == FixedPoint.OVERFLOW)
+            throw new IllegalArgumentException("Amount " + amount + " exceeds long range");
+        append(unscaledAmount, amount.scale(), money.getCurrency());
+    }
+
+    /**
+     * Appends an amount given as unscaled value and scale.
+     *
+     * @throws IllegalArgumentException if the scale does not fit into a byte
+     * @throws OutOfMemoryError if a new chunk exceeds {@code -XX:MaxDirectMemorySize}
+     */
+    public void append(long unscaledAmount, int scale, ConvertableCurrency currency) throws IllegalArgumentException {
+        if(scale != (byte) scale)
+            throw new IllegalArgumentException("Scale " + scale + " exceeds byte range");
+        if(size == (long) chunks.size() * recordsPerChunk)
+            chunks.add(ByteBuffer.allocateDirect(recordsPerChunk * RECORD_SIZE).order(ByteOrder.nativeOrder()));
+        ByteBuffer chunk = chunks.get(chunks.size() - 1);
+        final int position = (int) (size % recordsPerChunk) * RECORD_SIZE;
+        chunk.putLong(position, unscaledAmount);
+        chunk.put(position + CURRENCY_OFFSET, (byte) currency.ordinal());
+        chunk.put(position + SCALE_OFFSET, (byte) scale);
+        size++;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public ConvertableCurrency getCurrency(long index) {
+        return CURRENCIES[chunkOf(index).get(positionOf(index) + CURRENCY_OFFSET)];
+    }
+
+    public long getUnscaledAmount(long index) {
+        return chunkOf(index).getLong(positionOf(index));
+    }
+
+    public int getScale(long index) {
+        return chunkOf(index).get(positionOf(index) + SCALE_OFFSET);
+    }
+
+    /**
+     * Materializes the amount at the given index.
+     */
+    public Money getMoney(long index) {
+        return new Money(BigDecimal.valueOf(getUnscaledAmount(index), getScale(index)), getCurrency(index));
+    }
+
+    /**
+     * Passes all amounts in order to the given consumer.
+     */
+    public void forEach(MoneyColumn.AmountConsumer consumer) {
+        long remaining = size;
+        for (ByteBuffer chunk : chunks) {
+            final int records = (int) Math.min(remaining, recordsPerChunk);
+            for (int position = 0; position < records * RECORD_SIZE; position += RECORD_SIZE)
+                consumer.accept(CURRENCIES[chunk.get(position + CURRENCY_OFFSET)], chunk.getLong(position),
+                        chunk.get(position + SCALE_OFFSET));
+            remaining -= records;
+        }
+    }
+
+    /**
+     * Converts all amounts in place like
+     * {@link CurrencyConverter#convertToPrice(Money, ConvertableCurrency)}.
+     *
+     * @throws IllegalArgumentException if an exchange rate for any contained currency is not found
+     * @throws ArithmeticException if a converted amount does not fit into a record
+     */
+    public void convertAllInPlace(ConvertableCurrency toCurrency, CurrencyConverter converter)
+            throws IllegalArgumentException, ArithmeticException {
+        convertAllInPlace(toCurrency, converter, DecimalPlacesStrategy.TO_PRICE, toCurrency.getRoundingMode());
+    }
+
+    /**
+     * Converts all amounts in place like
+     * {@link CurrencyConverter#convert(Money, ConvertableCurrency, DecimalPlacesStrategy, RoundingMode)}.
+     * Each exchange rate is fetched from the converter once per source currency.
+     * If an exception is thrown, the amounts before the failing one are already converted.
+     *
+     * @throws IllegalArgumentException if an exchange rate for any contained currency is not found
+     * @throws ArithmeticException if a converted amount does not fit into a record
+     */
+    public void convertAllInPlace(ConvertableCurrency toCurrency, CurrencyConverter converter,
+            DecimalPlacesStrategy decimalPlacesStrategy, RoundingMode roundingMode)
+            throws IllegalArgumentException, ArithmeticException {
+        final ExchangeRate[] exchangeRates = new ExchangeRate[CURRENCIES.length];
+        final byte toOrdinal = (byte) toCurrency.ordinal();
+        long remaining = size;
+        for (ByteBuffer chunk : chunks) {
+            final int records = (int) Math.min(remaining, recordsPerChunk);
+            for (int position = 0; position < records * RECORD_SIZE; position += RECORD_SIZE) {
+                final int currency = chunk.get(position + CURRENCY_OFFSET);
+                final int scale = chunk.get(position + SCALE_OFFSET);
+                ExchangeRate exchangeRate = exchangeRates[currency];
+                if(exchangeRate == null)
+                    exchangeRate = exchangeRates[currency] = currency == toOrdinal ? ExchangeRate.identity(toCurrency)
+                            : converter.getExchangeRate(CURRENCIES[currency], toCurrency);
+                final int newScale = decimalPlacesStrategy.getRequiredScale(scale, CURRENCIES[currency], toCurrency);
+                if(newScale != (byte) newScale)
+                    throw new ArithmeticException("Scale " + newScale + " exceeds byte range");
+                chunk.putLong(position, exchangeRate.convertUnscaledExactly(chunk.getLong(position), scale, newScale, roundingMode));
+                chunk.put(position + CURRENCY_OFFSET, toOrdinal);
+                chunk.put(position + SCALE_OFFSET, (byte) newScale);
+            }
+            remaining -= records;
+        }
+    }
+
+    private ByteBuffer chunkOf(long index) throws IndexOutOfBoundsException {
+        Objects.checkIndex(index, size);
+        return chunks.get((int) (index / recordsPerChunk));
+    }
+
+    private int positionOf(long index) {
+        return (int) (index % recordsPerChunk) * RECORD_SIZE;
+    }
+
+    @Override
+    public String toString() {
+        return "OffHeapMoneyColumn [size=" + size + "]";
+    }
+}
@@ -6,6 +6,14 @@
 package com.mercateo.common.currency;
 
 import java.math.RoundingMode;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.UnaryOperator;
 
 /**
  * A thread-safe wrapper around a {@link CurrencyConverter} that allows updating the underlying 
@@ -14,8 +22,20 @@ import java.math.RoundingMode;
  * 
  * <p>This implementation uses the decorator pattern to provide a mutable converter that can 
  * switch between different conversion strategies without changing the client code that uses it.
- * The converter reference is declared as volatile to ensure thread-safe updates.</p>
+ * The current converter is held in a single volatile immutable state, so every
+ * conversion reads it once. Callers needing consistent rates across several conversions
+ * can pin a {@link #snapshot()} instead.</p>
+ *
+ * <p>The last {@code historySize} snapshots are kept in a ring indexed by version, so
+ * {@link #snapshot(long)} finds the rates of a recent version in constant time. Older
+ * snapshots are evicted on update. Each retained snapshot keeps its converter reachable,
+ * so the memory retained by the history is capped by {@code historySize} converters.</p>
  * 
+ * <p>Converters can be {@link #schedule(CurrencyConverter, Instant) scheduled} to become
+ * active at a given instant. While a converter is scheduled, readers compare the clock
+ * with the next activation time and switch to a due converter themselves, without locks
+ * and without timer threads. A scheduled converter is never used before its activation time.</p>
+ *
  * <p>Example usage:</p>
  * <pre>
  * CurrencyConverter initialConverter = new FixedRatesCurrencyConverter(rates);
@@ -27,35 +47,267 @@ import java.math.RoundingMode;
  * // Later, update to a different converter
  * CurrencyConverter newConverter = new FixedRatesCurrencyConverter(newRates);
  * converter.set(newConverter);
+ *
+ * // Convert all lines of an order with the same rates
+ * CurrencyConverterSnapshot snapshot = converter.snapshot();
+ *
+ * // Switch to tomorrow's rates at midnight
+ * converter.schedule(new FixedRatesCurrencyConverter(tomorrowsRates), midnight);
  * </pre>
  */
 public class UpdateableCurrencyConverter implements CurrencyConverter {
-    
+
+    private static final AtomicReferenceFieldUpdater<UpdateableCurrencyConverter, State> STATE =
+            AtomicReferenceFieldUpdater.newUpdater(UpdateableCurrencyConverter.class, State.class, "state");
+
     /**
-     * The current converter instance. Declared as volatile to ensure thread-safe updates.
+     * The current snapshot and the scheduled converters. Declared as volatile to ensure thread-safe updates.
      */
-    private volatile CurrencyConverter updatedConverter;
+    private volatile State state;
 
     /**
-     * Creates a new UpdateableCurrencyConverter with the specified initial converter.
+     * The retained snapshots indexed by version modulo the history size.
+     */
+    private final AtomicReferenceArray<CurrencyConverterSnapshot> history;
+
+    private final Clock clock;
+
+    /**
+     * Creates a new UpdateableCurrencyConverter with the specified initial converter,
+     * retaining only the current snapshot.
      * 
      * @param initialConverter the initial converter to delegate to; must not be null
      * @throws NullPointerException if initialConverter is null
      */
     public UpdateableCurrencyConverter(CurrencyConverter initialConverter) {
+        this(initialConverter, 1);
+    }
+
+    /**
+     * Creates a new UpdateableCurrencyConverter with the specified initial converter,
+     * retaining the specified number of most recent snapshots including the current one.
+     * 
+     * @param initialConverter the initial converter to delegate to; must not be null
+     * @param historySize the number of retained snapshots
+     * @throws IllegalArgumentException if historySize is not positive
+     */
+    public UpdateableCurrencyConverter(CurrencyConverter initialConverter, int historySize) throws IllegalArgumentException {
+        this(initialConverter, historySize, Clock.systemUTC());
+    }
+
+    /**
+     * Creates a new UpdateableCurrencyConverter with the specified initial converter,
+     * retaining the specified number of most recent snapshots including the current one
+     * and activating scheduled converters according to the specified clock.
+     * 
+     * @param initialConverter the initial converter to delegate to; must not be null
+     * @param historySize the number of retained snapshots
+     * @param clock the clock activation times are compared with
+     * @throws IllegalArgumentException if historySize is not positive
+     */
+    public UpdateableCurrencyConverter(CurrencyConverter initialConverter, int historySize, Clock clock) throws IllegalArgumentException {
         super();
-        this.updatedConverter = initialConverter;
+        if(historySize < 1)
+            throw new IllegalArgumentException("History size must be positive: " + historySize);
+        final CurrencyConverterSnapshot initialSnapshot = new CurrencyConverterSnapshot(1, initialConverter);
+        this.history = new AtomicReferenceArray<>(historySize);
+        this.clock = clock;
+        history.set(slot(initialSnapshot.getVersion()), initialSnapshot);
+        this.state = new State(initialSnapshot, State.NOTHING_SCHEDULED);
     }
 
     /**
      * Updates the underlying converter to the specified new converter.
      * This operation is thread-safe and will take effect immediately for all subsequent conversions.
+     * Converters scheduled before stay scheduled.
      * 
      * @param newConverter the new converter to delegate to; must not be null
      * @throws NullPointerException if newConverter is null
      */
-    public void set(CurrencyConverter newConverter) {
-        updatedConverter = newConverter;
+    public synchronized void set(CurrencyConverter newConverter) {
+        publish(current -> new State(
+                new CurrencyConverterSnapshot(current.snapshot.getVersion() + 1, newConverter),
+                current.scheduled));
+    }
+
+    /**
+     * Schedules the specified converter to replace the current one at the specified instant.
+     * Scheduled converters become active in order of their activation instants, each one
+     * getting the next version. Converters scheduled for a past instant become active immediately.
+     * 
+     * @param newConverter the converter to delegate to from the activation instant on
+     * @param activeFrom the first instant the converter is used at
+     */
+    public synchronized void schedule(CurrencyConverter newConverter, Instant activeFrom) {
+        final ScheduledConverter scheduledConverter = new ScheduledConverter(toActivationMillis(activeFrom), newConverter);
+        publish(current -> new State(current.snapshot, insert(current.scheduled, scheduledConverter)));
+    }
+
+    /**
+     * Atomically replaces the current converter by the converter derived from it by the specified
+     * function. Scheduled converters due by then are activated first, so neither they nor a
+     * concurrent {@link #set(CurrencyConverter)} are overwritten by a converter derived from an
+     * older one. The function may be called again if a reader activates a scheduled converter
+     * concurrently, so it must not have side effects. Nothing is changed if it throws.
+     *
+     * @param change derives the new converter from the current one
+     * @return the snapshot of the derived converter
+     */
+    public synchronized CurrencyConverterSnapshot update(UnaryOperator<CurrencyConverter> change) {
+        return publish(current -> new State(
+                new CurrencyConverterSnapshot(current.snapshot.getVersion() + 1, change.apply(current.snapshot.getConverter())),
+                current.scheduled)).snapshot;
+    }
+
+    /**
+     * Returns the number of scheduled converters not active yet.
+     */
+    public int getScheduledCount() {
+        return activateDue().scheduled.length;
+    }
+
+    private static long toActivationMillis(Instant activeFrom) {
+        final long millis = activeFrom.toEpochMilli();
+        return activeFrom.getNano() % 1_000_000 == 0 ? millis : millis + 1;
+    }
+
+    private static ScheduledConverter[] insert(ScheduledConverter[] scheduled, ScheduledConverter scheduledConverter) {
+        int index = scheduled.length;
+        while (index > 0 && scheduled[index - 1].activationMillis > scheduledConverter.activationMillis)
+            index--;
+        final ScheduledConverter[] inserted = new ScheduledConverter[scheduled.length + 1];
+        System.arraycopy(scheduled, 0, inserted, 0, index);
+        inserted[index] = scheduledConverter;
+        System.arraycopy(scheduled, index, inserted, index + 1, scheduled.length - index);
+        return inserted;
+    }
+
+    /**
+     * Publishes the changed state. The snapshots published with the replaced state are retained
+     * before, so every version up to the current one stays available to {@link #snapshot(long)}.
+     */
+    private State publish(UnaryOperator<State> change) {
+        for (;;) {
+            final State current = state;
+            retainPublished(current);
+            final long now = clock.millis();
+            final List<CurrencyConverterSnapshot> published = new ArrayList<>();
+            final State activated = activate(current, now, published);
+            final State changed = change.apply(activated);
+            if(changed.snapshot != activated.snapshot)
+                published.add(changed.snapshot);
+            final State next = activate(changed, now, published).withPublished(published, history.length());
+            if(STATE.compareAndSet(this, current, next))
+                return next;
+        }
+    }
+
+    /**
+     * Switches to due scheduled converters. Readers never wait: if another thread
+     * changed the state meanwhile, the switch is retried on the changed state.
+     */
+    private State activateDue() {
+        for (;;) {
+            final State current = state;
+            if(current.nextActivationMillis == Long.MAX_VALUE)
+                return current;
+            final long now = clock.millis();
+            if(now < current.nextActivationMillis)
+                return current;
+            retainPublished(current);
+            final List<CurrencyConverterSnapshot> published = new ArrayList<>();
+            final State next = activate(current, now, published).withPublished(published, history.length());
+            if(STATE.compareAndSet(this, current, next))
+                return next;
+        }
+    }
+
+    private static State activate(State current, long now, List<CurrencyConverterSnapshot> activated) {
+        final ScheduledConverter[] scheduled = current.scheduled;
+        int due = 0;
+        while (due < scheduled.length && scheduled[due].activationMillis <= now)
+            due++;
+        if(due == 0)
+            return current;
+        CurrencyConverterSnapshot snapshot = current.snapshot;
+        for (int i = 0; i < due; i++) {
+            snapshot = new CurrencyConverterSnapshot(snapshot.getVersion() + 1, scheduled[i].converter);
+            activated.add(snapshot);
+        }
+        return new State(snapshot, Arrays.copyOfRange(scheduled, due, scheduled.length));
+    }
+
+    private void retainPublished(State current) {
+        for (CurrencyConverterSnapshot snapshot : current.published)
+            retain(snapshot);
+    }
+
+    /**
+     * Keeps the snapshot in the history unless its slot already holds the same or a later version.
+     */
+    private void retain(CurrencyConverterSnapshot snapshot) {
+        final int slot = slot(snapshot.getVersion());
+        CurrencyConverterSnapshot retained;
+        do {
+            retained = history.get(slot);
+            if(retained != null && retained.getVersion() >= snapshot.getVersion())
+                return;
+        } while (! history.compareAndSet(slot, retained, snapshot));
+    }
+
+    /**
+     * Returns an immutable handle to the current converter, unaffected by later updates.
+     * Its version starts at 1 for the initial converter and increases with every update
+     * and every activated scheduled converter.
+     */
+    public CurrencyConverterSnapshot snapshot() {
+        return activateDue().snapshot;
+    }
+
+    /**
+     * Returns the retained snapshot with the specified version.
+     * 
+     * @throws IllegalArgumentException if the version is unknown or already evicted
+     */
+    public CurrencyConverterSnapshot snapshot(long version) throws IllegalArgumentException {
+        final State currentState = activateDue();
+        final CurrencyConverterSnapshot current = currentState.snapshot;
+        if(version == current.getVersion())
+            return current;
+        if(version < 1 || version > current.getVersion())
+            throw new IllegalArgumentException("Unknown version " + version + ", current version is " + current.getVersion());
+        if(version < oldestVersion(current))
+            throw new IllegalArgumentException("Evicted version " + version + ", oldest retained version is " + oldestVersion(current));
+        for (CurrencyConverterSnapshot published : currentState.published) {
+            if(published.getVersion() == version)
+                return published;
+        }
+        final CurrencyConverterSnapshot snapshot = history.get(slot(version));
+        if(snapshot == null || snapshot.getVersion() != version)
+            throw new IllegalArgumentException("Evicted version " + version + ", oldest retained version is " + oldestVersion(current));
+        return snapshot;
+    }
+
+    /**
+     * Returns the maximal number of retained snapshots including the current one.
+     */
+    public int getHistorySize() {
+        return history.length();
+    }
+
+    /**
+     * Returns the oldest version {@link #snapshot(long)} can currently find.
+     */
+    public long getOldestVersion() {
+        return oldestVersion(snapshot());
+    }
+
+    private long oldestVersion(CurrencyConverterSnapshot current) {
+        return Math.max(1, current.getVersion() - history.length() + 1);
+    }
+
+    private int slot(long version) {
+        return (int) (version % history.length());
     }
 
     /**
@@ -66,7 +318,7 @@ public class UpdateableCurrencyConverter implements CurrencyConverter {
     @Override
     public Money convertToPrice(Money fromAmount, ConvertableCurrency toCurrency)
             throws IllegalArgumentException {
-        return updatedConverter.convertToPrice(fromAmount, toCurrency);
+        return snapshot().getConverter().convertToPrice(fromAmount, toCurrency);
     }
 
     /**
@@ -77,7 +329,7 @@ public class UpdateableCurrencyConverter implements CurrencyConverter {
     @Override
     public Money convertProportionally(Money fromAmount, ConvertableCurrency toCurrency)
             throws IllegalArgumentException {
-        return updatedConverter.convertProportionally(fromAmount, toCurrency);
+        return snapshot().getConverter().convertProportionally(fromAmount, toCurrency);
     }
 
     /**
@@ -89,7 +341,7 @@ public class UpdateableCurrencyConverter implements CurrencyConverter {
     public Money convert(Money fromAmount, ConvertableCurrency toCurrency,
             DecimalPlacesStrategy decimalPlacesStrategy, RoundingMode roundingMode)
             throws IllegalArgumentException {
-        return updatedConverter.convert(fromAmount, toCurrency, decimalPlacesStrategy,
+        return snapshot().getConverter().convert(fromAmount, toCurrency, decimalPlacesStrategy,
                 roundingMode);
     }
 
@@ -101,7 +353,65 @@ public class UpdateableCurrencyConverter implements CurrencyConverter {
     @Override
     public ExchangeRate getExchangeRate(ConvertableCurrency fromCurrency,
             ConvertableCurrency toCurrency) throws IllegalArgumentException {
-        return updatedConverter.getExchangeRate(fromCurrency, toCurrency);
+        return snapshot().getConverter().getExchangeRate(fromCurrency, toCurrency);
     }
 
+    /**
+     * {@inheritDoc}
+     * 
+     * Delegates to the currently set converter.
+     */
+    @Override
+    public int convertAll(long[] unscaledAmounts, int scale, ConvertableCurrency fromCurrency,
+            ConvertableCurrency toCurrency, DecimalPlacesStrategy decimalPlacesStrategy,
+            RoundingMode roundingMode, long[] convertedAmounts)
+            throws IllegalArgumentException, ArithmeticException {
+        return snapshot().getConverter().convertAll(unscaledAmounts, scale, fromCurrency, toCurrency,
+                decimalPlacesStrategy, roundingMode, convertedAmounts);
+    }
+
+    private static final class ScheduledConverter {
+        final long activationMillis;
+        final CurrencyConverter converter;
+
+        ScheduledConverter(long activationMillis, CurrencyConverter converter) {
+            this.activationMillis = activationMillis;
+            this.converter = converter;
+        }
+    }
+
+    /**
+     * Immutable current snapshot, converters scheduled in order of activation and the
+     * snapshots published with this state, which may not be retained in the history yet.
+     */
+    private static final class State {
+        static final ScheduledConverter[] NOTHING_SCHEDULED = {};
+        static final CurrencyConverterSnapshot[] NOTHING_PUBLISHED = {};
+
+        final CurrencyConverterSnapshot snapshot;
+        final ScheduledConverter[] scheduled;
+        final CurrencyConverterSnapshot[] published;
+        final long nextActivationMillis;
+
+        State(CurrencyConverterSnapshot snapshot, ScheduledConverter[] scheduled) {
+            this(snapshot, scheduled, NOTHING_PUBLISHED);
+        }
+
+        private State(CurrencyConverterSnapshot snapshot, ScheduledConverter[] scheduled, CurrencyConverterSnapshot[] published) {
+            this.snapshot = snapshot;
+            this.scheduled = scheduled;
+            this.published = published;
+            this.nextActivationMillis = scheduled.length == 0 ? Long.MAX_VALUE : scheduled[0].activationMillis;
+        }
+
+        /**
+         * Returns this state publishing the last {@code historySize} of the specified snapshots,
+         * older ones would be evicted right away.
+         */
+        State withPublished(List<CurrencyConverterSnapshot> snapshots, int historySize) {
+            final int from = Math.max(0, snapshots.size() - historySize);
+            return new State(snapshot, scheduled,
+                    snapshots.subList(from, snapshots.size()).toArray(new CurrencyConverterSnapshot[0]));
+        }
+    }
 }
@@ -0,0 +1,279 @@
+package com.mercateo.common.currency.binary;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import com.mercateo.common.currency.ConvertableCurrency;
+import com.mercateo.common.currency.ExchangeRate;
+import com.mercateo.common.currency.FrozenCurrencyConverter;
+import com.mercateo.common.currency.Money;
+import com.mercateo.common.util.annotations.Nullable;
+
+/**
+ * Compact binary encoding of {@link Money}, {@link ExchangeRate} and {@link FrozenCurrencyConverter}.
+ *
+ * <p>Money is encoded as</p>
+ * <ul>
+ * <li>byte currency ordinal, with bit 7 set if the unscaled amount exceeds the long range</li>
+ * <li>zig-zag varint unscaled amount, or varint length and big endian two's complement
+ * bytes of the unscaled amount if it exceeds the long range</li>
+ * <li>zig-zag varint scale</li>
+ * </ul>
+ *
+ * <p>so typical prices take 3 to 6 bytes. An exchange rate is its base value followed by its
+ * quote value. A converter is encoded as int magic number {@code 0x4D434352}, byte format version
+ * {@value #FORMAT_VERSION}, varint number of direct rates and the direct rates; derived rates
+ * are computed again when decoding.</p>
+ *
+ * <p>Values are read and written at the current position of the buffer, advancing it.
+ * Apart from amounts exceeding the long range, decoding reads the buffer directly and only
+ * creates the decoded objects.</p>
+ */
+public final class MoneyBinaryCodec {
+    /**
+     * Magic number starting encoded converters.
+     */
+    public static final int MAGIC = 0x4D434352;
+    /**
+     * Format version of encoded converters.
+     */
+    public static final byte FORMAT_VERSION = 1;
+
+    private static final ConvertableCurrency[] CURRENCIES = ConvertableCurrency.values();
+    private static final int BIG_AMOUNT_FLAG = 0x80;
+    private static final int ORDINAL_MASK = 0x7F;
+    private static final int MAX_VARLONG_SIZE = 10;
+
+    private MoneyBinaryCodec() {
+    }
+
+    /**
+     * Returns the number of bytes of the encoded money value.
+     */
+    public static int sizeOf(Money money) {
+        final BigInteger unscaledAmount = money.getAmount().unscaledValue();
+        final int amountSize;
+        if(unscaledAmount.bitLength() < Long.SIZE)
+            amountSize = varLongSize(zigZag(unscaledAmount.longValue()));
+        else {
+            final int length = unscaledAmount.bitLength() / Byte.SIZE + 1;
+            amountSize = varLongSize(length) + length;
+        }
+        return 1 + amountSize + varLongSize(zigZag(money.getAmount().scale()));
+    }
+
+    /**
+     * Returns the number of bytes of the encoded exchange rate.
+     */
+    public static int sizeOf(ExchangeRate rate) {
+        return sizeOf(rate.getBaseValue()) + sizeOf(rate.getQuoteValue());
+    }
+
+    /**
+     * Returns the number of bytes of the encoded converter.
+     */
+    public static int sizeOf(FrozenCurrencyConverter converter) {
+        final List<ExchangeRate> rates = converter.getDirectRates();
+        int size = Integer.BYTES + 1 + varLongSize(rates.size());
+        for (ExchangeRate rate : rates)
+            size += sizeOf(rate);
+        return size;
+    }
+
+    /**
+     * Writes the money value.
+     *
+     * @throws java.nio.BufferOverflowException if the buffer has not enough remaining bytes
+     */
+    public static void writeMoney(ByteBuffer buffer, Money money) {
+        final BigInteger unscaledAmount = money.getAmount().unscaledValue();
+        final int ordinal = money.getCurrency().ordinal();
+        if(unscaledAmount.bitLength() < Long.SIZE) {
+            buffer.put((byte) ordinal);
+            writeVarLong(buffer, zigZag(unscaledAmount.longValue()));
+        }
+        else {
+            final byte[] bytes = unscaledAmount.toByteArray();
+            buffer.put((byte) (ordinal | BIG_AMOUNT_FLAG));
+            writeVarLong(buffer, bytes.length);
+            buffer.put(bytes);
+        }
+        writeVarLong(buffer, zigZag(money.getAmount().scale()));
+    }
+
+    /**
+     * Reads a money value.
+     *
+     * @throws IllegalArgumentException if the buffer holds no valid money value
+     */
+    public static Money readMoney(ByteBuffer buffer) throws IllegalArgumentException {
+        try {
+            return decodeMoney(buffer, null);
+        } catch (BufferUnderflowException e) {
+            throw truncated(e);
+        }
+    }
+
+    /**
+     * Writes the exchange rate.
+     *
+     * @throws java.nio.BufferOverflowException if the buffer has not enough remaining bytes
+     */
+    public static void writeExchangeRate(ByteBuffer buffer, ExchangeRate rate) {
+        writeMoney(buffer, rate.getBaseValue());
+        writeMoney(buffer, rate.getQuoteValue());
+    }
+
+    /**
+     * Reads an exchange rate.
+     *
+     * @throws IllegalArgumentException if the buffer holds no valid exchange rate
+     */
+    public static ExchangeRate readExchangeRate(ByteBuffer buffer) throws IllegalArgumentException {
+        try {
+            return decodeExchangeRate(buffer, null);
+        } catch (BufferUnderflowException e) {
+            throw truncated(e);
+        }
+    }
+
+    /**
+     * Writes the direct rates of the converter.
+     *
+     * @throws java.nio.BufferOverflowException if the buffer has not enough remaining bytes
+     */
+    public static void writeConverter(ByteBuffer buffer, FrozenCurrencyConverter converter) {
+        final List<ExchangeRate> rates = converter.getDirectRates();
+        buffer.putInt(MAGIC);
+        buffer.put(FORMAT_VERSION);
+        writeVarLong(buffer, rates.size());
+        for (ExchangeRate rate : rates)
+            writeExchangeRate(buffer, rate);
+    }
+
+    /**
+     * Reads a converter.
+     *
+     * @throws IllegalArgumentException if the buffer holds no valid converter of a supported format version
+     * @throws IllegalStateException if the encoded rates conflict
+     */
+    public static FrozenCurrencyConverter readConverter(ByteBuffer buffer) throws IllegalArgumentException, IllegalStateException {
+        return readConverter(buffer, FrozenCurrencyConverter.builder());
+    }
+
+    /**
+     * Reads a converter sharing all rates unaffected by changes with the specified converter.
+     *
+     * @throws IllegalArgumentException if the buffer holds no valid converter of a supported format version
+     * @throws IllegalStateException if the encoded rates conflict
+     */
+    public static FrozenCurrencyConverter readConverter(ByteBuffer buffer, FrozenCurrencyConverter previous)
+            throws IllegalArgumentException, IllegalStateException {
+        return readConverter(buffer, FrozenCurrencyConverter.builder(previous));
+    }
+
+    private static FrozenCurrencyConverter readConverter(ByteBuffer buffer, FrozenCurrencyConverter.Builder builder) {
+        try {
+            final int magic = buffer.getInt();
+            if(magic != MAGIC)
+                throw new IllegalArgumentException("No encoded converter, magic number " + Integer.toHexString(magic));
+            final byte version = buffer.get();
+            if(version != FORMAT_VERSION)
+                throw new IllegalArgumentException("Unsupported converter format version " + version);
+            final long count = readVarLong(buffer);
+            if(count < 0 || count > buffer.remaining())
+                throw new IllegalArgumentException("Invalid number of exchange rates " + count);
+            @Nullable Money lastBaseValue = null;
+            for (long i = 0; i < count; i++) {
+                final ExchangeRate rate = decodeExchangeRate(buffer, lastBaseValue);
+                builder.add(rate);
+                lastBaseValue = rate.getBaseValue();
+            }
+            return builder.build();
+        } catch (BufferUnderflowException e) {
+            throw truncated(e);
+        }
+    }
+
+    private static ExchangeRate decodeExchangeRate(ByteBuffer buffer, @Nullable Money knownBaseValue) {
+        return new ExchangeRate(decodeMoney(buffer, knownBaseValue), decodeMoney(buffer, null));
+    }
+
+    /**
+     * Decodes a money value, returning the known value if it is equal.
+     */
+    private static Money decodeMoney(ByteBuffer buffer, @Nullable Money knownValue) {
+        final int header = Byte.toUnsignedInt(buffer.get());
+        final int ordinal = header & ORDINAL_MASK;
+        if(ordinal >= CURRENCIES.length)
+            throw new IllegalArgumentException("Unknown currency ordinal " + ordinal);
+        final ConvertableCurrency currency = CURRENCIES[ordinal];
+        if((header & BIG_AMOUNT_FLAG) == 0) {
+            final long unscaledAmount = zigZagDecode(readVarLong(buffer));
+            final BigDecimal amount = BigDecimal.valueOf(unscaledAmount, readScale(buffer));
+            if(knownValue != null && knownValue.getCurrency() == currency && knownValue.getAmount().equals(amount))
+                return knownValue;
+            return new Money(amount, currency);
+        }
+        final long length = readVarLong(buffer);
+        if(length <= 0 || length > buffer.remaining())
+            throw new IllegalArgumentException("Invalid amount length " + length);
+        final BigInteger unscaledAmount;
+        if(buffer.hasArray()) {
+            unscaledAmount = new BigInteger(buffer.array(), buffer.arrayOffset() + buffer.position(), (int) length);
+            buffer.position(buffer.position() + (int) length);
+        }
+        else {
+            final byte[] bytes = new byte[(int) length];
+            buffer.get(bytes);
+            unscaledAmount = new BigInteger(bytes);
+        }
+        return new Money(new BigDecimal(unscaledAmount, readScale(buffer)), currency);
+    }
+
+    private static int readScale(ByteBuffer buffer) {
+        final long scale = zigZagDecode(readVarLong(buffer));
+        if(scale != (int) scale)
+            throw new IllegalArgumentException("Invalid scale " + scale);
+        return (int) scale;
+    }
+
+    private static IllegalArgumentException truncated(BufferUnderflowException e) {
+        return new IllegalArgumentException("Truncated encoded value", e);
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long zigZagDecode(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static int varLongSize(long value) {
+        return value == 0 ? 1 : (Long.SIZE - Long.numberOfLeadingZeros(value) + 6) / 7;
+    }
+
+    private static void writeVarLong(ByteBuffer buffer, long value) {
+        long remaining = value;
+        while ((remaining & ~0x7FL) != 0) {
+            buffer.put((byte) (remaining | 0x80));
+            remaining >>>= 7;
+        }
+        buffer.put((byte) remaining);
+    }
+
+    private static long readVarLong(ByteBuffer buffer) {
+        long value = 0;
+        for (int i = 0; i < MAX_VARLONG_SIZE; i++) {
+            final byte b = buffer.get();
+            value |= (long) (b & 0x7F) << (7 * i);
+            if(b >= 0)
+                return value;
+        }
+        throw new IllegalArgumentException("Invalid varint");
+    }
+}
@@ -0,0 +1,4 @@
+@NonNullByDefault
+package com.mercateo.common.currency.binary;
+
+import com.mercateo.common.util.annotations.NonNullByDefault;
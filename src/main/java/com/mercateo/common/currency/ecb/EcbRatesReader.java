@@ -0,0 +1,171 @@
+package com.mercateo.common.currency.ecb;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import com.mercateo.common.currency.ConvertableCurrency;
+import com.mercateo.common.currency.ExchangeRate;
+import com.mercateo.common.currency.FrozenCurrencyConverter;
+import com.mercateo.common.currency.Money;
+import com.mercateo.common.currency.history.ExchangeRateHistory;
+import com.mercateo.common.util.annotations.Nullable;
+
+/**
+ * Streams exchange rate files in the format of the European Central Bank reference rates.
+ *
+ * <p>The daily file as well as the 90 day and full history files are read in a single pass
+ * with StAX: every {@code Cube} element with a {@code time} attribute starts the rates of
+ * a date, its {@code Cube} children with {@code currency} and {@code rate} attributes are
+ * the amounts of the currency equal to one Euro. Currencies that are no
+ * {@link ConvertableCurrency} are skipped. Only the rates of one date are held in memory
+ * besides the result being built.</p>
+ *
+ * <p>DTDs and external entities are not supported, so files can be read from untrusted sources.</p>
+ */
+public final class EcbRatesReader {
+    private static final String CUBE = "Cube";
+    private static final String TIME = "time";
+    private static final String CURRENCY = "currency";
+    private static final String RATE = "rate";
+    private static final Money EUR_VALUE = new Money(BigDecimal.ONE, ConvertableCurrency.EUR);
+    private static final Map<String, ConvertableCurrency> CURRENCIES_BY_CODE = new HashMap<>();
+    private static final XMLInputFactory INPUT_FACTORY = XMLInputFactory.newInstance();
+
+    static {
+        for (ConvertableCurrency currency : ConvertableCurrency.values())
+            CURRENCIES_BY_CODE.put(currency.getCurrencyCode(), currency);
+        INPUT_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        INPUT_FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        INPUT_FACTORY.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+    }
+
+    private EcbRatesReader() {
+    }
+
+    /**
+     * Reads the rates of every date of the specified file and passes them to the consumer
+     * in file order, a new list per date.
+     *
+     * @throws IOException if the file can't be read or is no valid exchange rate file
+     */
+    public static void read(InputStream in, BiConsumer<LocalDate, List<ExchangeRate>> dailyRatesConsumer) throws IOException {
+        read(in, dailyRatesConsumer, date -> true);
+    }
+
+    /**
+     * Reads the rates of the dates matching the filter, skipping the rates of all other dates unparsed.
+     */
+    private static void read(InputStream in, BiConsumer<LocalDate, List<ExchangeRate>> dailyRatesConsumer, Predicate<LocalDate> dateFilter)
+            throws IOException {
+        XMLStreamReader reader = null;
+        try {
+            reader = INPUT_FACTORY.createXMLStreamReader(in);
+            @Nullable LocalDate date = null;
+            boolean skipped = false;
+            List<ExchangeRate> rates = new ArrayList<>();
+            while (reader.hasNext()) {
+                if(reader.next() != XMLStreamConstants.START_ELEMENT || ! CUBE.equals(reader.getLocalName()))
+                    continue;
+                final String time = reader.getAttributeValue(null, TIME);
+                if(time != null) {
+                    if(date != null && ! skipped)
+                        dailyRatesConsumer.accept(date, rates);
+                    date = LocalDate.parse(time);
+                    skipped = ! dateFilter.test(date);
+                    rates = new ArrayList<>();
+                    continue;
+                }
+                final String currencyCode = reader.getAttributeValue(null, CURRENCY);
+                final String rate = reader.getAttributeValue(null, RATE);
+                if(currencyCode == null || rate == null || skipped)
+                    continue;
+                if(date == null)
+                    throw new IOException("Exchange rate for " + currencyCode + " without date at line " + reader.getLocation().getLineNumber());
+                final ConvertableCurrency currency = CURRENCIES_BY_CODE.get(currencyCode);
+                if(currency != null && currency != ConvertableCurrency.EUR)
+                    rates.add(new ExchangeRate(EUR_VALUE, new Money(new BigDecimal(rate), currency)));
+            }
+            if(date != null && ! skipped)
+                dailyRatesConsumer.accept(date, rates);
+        } catch (XMLStreamException | DateTimeParseException | NumberFormatException e) {
+            throw new IOException("Invalid exchange rate file: " + e.getMessage(), e);
+        } finally {
+            if(reader != null)
+                close(reader);
+        }
+    }
+
+    private static void close(XMLStreamReader reader) throws IOException {
+        try {
+            reader.close();
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Returns a converter using the rates of the latest date of the specified file. Rates of
+     * dates before the latest date read so far are skipped, so reading a history file, which
+     * lists the latest date first, only creates the rates of that date.
+     *
+     * @throws IOException if the file can't be read, is no valid exchange rate file or has no rates
+     * @throws IllegalStateException if conflicting exchange rates are provided for the latest date
+     */
+    public static FrozenCurrencyConverter readLatest(InputStream in) throws IOException, IllegalStateException {
+        final LatestRates latestRates = new LatestRates();
+        read(in, latestRates, latestRates::isLatest);
+        if(latestRates.rates.isEmpty())
+            throw new IOException("No exchange rates in file");
+        return FrozenCurrencyConverter.builder().addAll(latestRates.rates).build();
+    }
+
+    /**
+     * Returns the history of all rates of the specified file relative to the Euro.
+     *
+     * @throws IOException if the file can't be read or is no valid exchange rate file
+     * @throws IllegalStateException if conflicting exchange rates are provided for the same date
+     */
+    public static ExchangeRateHistory readHistory(InputStream in) throws IOException, IllegalStateException {
+        final Map<LocalDate, List<ExchangeRate>> dailyRates = new HashMap<>();
+        read(in, (date, rates) -> dailyRates.merge(date, rates, (known, added) -> {
+            known.addAll(added);
+            return known;
+        }));
+        return new ExchangeRateHistory(ConvertableCurrency.EUR, dailyRates);
+    }
+
+    private static final class LatestRates implements BiConsumer<LocalDate, List<ExchangeRate>> {
+        private @Nullable LocalDate date;
+        private List<ExchangeRate> rates = new ArrayList<>();
+
+        boolean isLatest(LocalDate dailyDate) {
+            final LocalDate latestDate = date;
+            return latestDate == null || ! dailyDate.isBefore(latestDate);
+        }
+
+        @Override
+        public void accept(LocalDate dailyDate, List<ExchangeRate> dailyRates) {
+            final LocalDate latestDate = date;
+            if(latestDate == null || dailyDate.isAfter(latestDate)) {
+                date = dailyDate;
+                rates = dailyRates;
+            }
+            else if(dailyDate.equals(latestDate))
+                rates.addAll(dailyRates);
+        }
+    }
+}
@@ -0,0 +1,4 @@
+@NonNullByDefault
+package com.mercateo.common.currency.ecb;
+
+import com.mercateo.common.util.annotations.NonNullByDefault;
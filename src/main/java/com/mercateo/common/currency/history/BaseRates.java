@@ -0,0 +1,46 @@
+package com.mercateo.common.currency.history;
+
+import java.math.BigDecimal;
+
+import com.mercateo.common.currency.ConvertableCurrency;
+import com.mercateo.common.currency.ExchangeRate;
+
+/**
+ * Reads exchange rates relative to a base currency in either direction.
+ */
+final class BaseRates {
+    private BaseRates() {
+    }
+
+    /**
+     * Returns the currency the rate is quoted in relative to the base currency.
+     *
+     * @throws IllegalArgumentException if the rate is not relative to the base currency
+     */
+    static ConvertableCurrency quotedCurrency(ConvertableCurrency baseCurrency, ExchangeRate rate) throws IllegalArgumentException {
+        final ConvertableCurrency rateBaseCurrency = rate.getBaseValue().getCurrency();
+        final ConvertableCurrency rateQuoteCurrency = rate.getQuoteValue().getCurrency();
+        if(rateBaseCurrency == baseCurrency && rateQuoteCurrency != baseCurrency)
+            return rateQuoteCurrency;
+        if(rateQuoteCurrency == baseCurrency && rateBaseCurrency != baseCurrency)
+            return rateBaseCurrency;
+        throw new IllegalArgumentException("Exchange rate " + rate + " is not relative to base currency " + baseCurrency);
+    }
+
+    /**
+     * Returns the amount of the quoted currency equal to one unit of the base currency.
+     */
+    static BigDecimal rateValue(ConvertableCurrency baseCurrency, ExchangeRate rate) {
+        final ExchangeRate baseRate = rate.getBaseValue().getCurrency() == baseCurrency
+                ? rate : new ExchangeRate(rate.getQuoteValue(), rate.getBaseValue());
+        return baseRate.getRateValue().getAmount();
+    }
+
+    /**
+     * Returns the rate value as amount with a non negative scale.
+     */
+    static BigDecimal toAmount(long unscaledValue, int scale) {
+        final BigDecimal amount = BigDecimal.valueOf(unscaledValue, scale).stripTrailingZeros();
+        return amount.scale() < 0 ? amount.setScale(0) : amount;
+    }
+}
@@ -0,0 +1,238 @@
+package com.mercateo.common.currency.history;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.mercateo.common.currency.ConvertableCurrency;
+import com.mercateo.common.currency.ExchangeRate;
+import com.mercateo.common.currency.FrozenCurrencyConverter;
+import com.mercateo.common.currency.Money;
+import com.mercateo.common.util.annotations.Nullable;
+
+/**
+ * Immutable store of daily exchange rates relative to a base currency.
+ *
+ * <p>For every currency the dates and rates are kept in sorted primitive arrays, the rate
+ * as unscaled value with {@value #RATE_SCALE} decimal places, the scale of
+ * {@link ExchangeRate#getRateValue()}. Lookups as of a date use the latest rate of each
+ * currency on or before that date, found by binary search, so weekends and holidays
+ * use the rates of the last business day.</p>
+ *
+ * <p>Converters as of a date are built on first use and kept in a small least recently
+ * used cache. The most recently used converter is returned without locking.</p>
+ */
+public final class ExchangeRateHistory {
+    /**
+     * Number of decimal places of the stored rates.
+     */
+    public static final int RATE_SCALE = 10;
+    /**
+     * Number of converters cached by default.
+     */
+    public static final int DEFAULT_CACHE_SIZE = 16;
+
+    private static final ConvertableCurrency[] CURRENCIES = ConvertableCurrency.values();
+    private static final int[] NO_DAYS = {};
+    private static final long[] NO_RATES = {};
+
+    private final ConvertableCurrency baseCurrency;
+    /**
+     * Sorted epoch days having at least one rate.
+     */
+    private final int[] days;
+    /**
+     * Sorted epoch days per currency ordinal.
+     */
+    private final int[][] currencyDays;
+    /**
+     * Unscaled rates per currency ordinal, parallel to {@link #currencyDays}.
+     */
+    private final long[][] currencyRates;
+    private final Map<Integer, FrozenCurrencyConverter> converterCache;
+    private volatile @Nullable CachedConverter lastUsedConverter;
+
+    /**
+     * Creates a history of the specified daily exchange rates, caching {@value #DEFAULT_CACHE_SIZE} converters.
+     *
+     * @throws IllegalArgumentException if a rate is not relative to the base currency or exceeds the long range at {@value #RATE_SCALE} decimal places
+     * @throws IllegalStateException if conflicting exchange rates are provided for the same date
+     */
+    public ExchangeRateHistory(ConvertableCurrency baseCurrency, Map<LocalDate, ? extends Collection<ExchangeRate>> dailyRates)
+            throws IllegalArgumentException, IllegalStateException {
+        this(baseCurrency, dailyRates, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Creates a history of the specified daily exchange rates, caching the specified number of converters.
+     *
+     * @throws IllegalArgumentException if a rate is not relative to the base currency or exceeds the long range at {@value #RATE_SCALE} decimal places,
+     *  or if the cache size is not positive
+     * @throws IllegalStateException if conflicting exchange rates are provided for the same date
+     */
+    public ExchangeRateHistory(ConvertableCurrency baseCurrency, Map<LocalDate, ? extends Collection<ExchangeRate>> dailyRates, int cacheSize)
+            throws IllegalArgumentException, IllegalStateException {
+        super();
+        if(cacheSize < 1)
+            throw new IllegalArgumentException("Cache size must be positive: " + cacheSize);
+        this.baseCurrency = baseCurrency;
+        final int[] counts = new int[CURRENCIES.length];
+        dailyRates.values().forEach(rates -> rates.forEach(rate -> counts[BaseRates.quotedCurrency(baseCurrency, rate).ordinal()]++));
+        final int[][] days = new int[CURRENCIES.length][];
+        final long[][] rates = new long[CURRENCIES.length][];
+        for (int ordinal = 0; ordinal < CURRENCIES.length; ordinal++) {
+            days[ordinal] = counts[ordinal] == 0 ? NO_DAYS : new int[counts[ordinal]];
+            rates[ordinal] = counts[ordinal] == 0 ? NO_RATES : new long[counts[ordinal]];
+        }
+        final int[] sizes = new int[CURRENCIES.length];
+        final int[] allDays = new int[dailyRates.size()];
+        int dayCount = 0;
+        for (Map.Entry<LocalDate, ? extends Collection<ExchangeRate>> dailyEntry : new TreeMap<>(dailyRates).entrySet()) {
+            final int day = Math.toIntExact(dailyEntry.getKey().toEpochDay());
+            for (ExchangeRate rate : dailyEntry.getValue()) {
+                final int ordinal = BaseRates.quotedCurrency(baseCurrency, rate).ordinal();
+                final long unscaledRate = unscaledRate(rate);
+                final int size = sizes[ordinal];
+                if(size > 0 && days[ordinal][size - 1] == day) {
+                    if(rates[ordinal][size - 1] != unscaledRate)
+                        throw new IllegalStateException("conflicting rates for " + CURRENCIES[ordinal] + " on " + dailyEntry.getKey());
+                    continue;
+                }
+                days[ordinal][size] = day;
+                rates[ordinal][size] = unscaledRate;
+                sizes[ordinal] = size + 1;
+            }
+            if(! dailyEntry.getValue().isEmpty())
+                allDays[dayCount++] = day;
+        }
+        for (int ordinal = 0; ordinal < CURRENCIES.length; ordinal++) {
+            if(sizes[ordinal] != counts[ordinal]) {
+                days[ordinal] = Arrays.copyOf(days[ordinal], sizes[ordinal]);
+                rates[ordinal] = Arrays.copyOf(rates[ordinal], sizes[ordinal]);
+            }
+        }
+        this.days = Arrays.copyOf(allDays, dayCount);
+        this.currencyDays = days;
+        this.currencyRates = rates;
+        this.converterCache = new LinkedHashMap<Integer, FrozenCurrencyConverter>(cacheSize * 2, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, FrozenCurrencyConverter> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    private long unscaledRate(ExchangeRate rate) throws IllegalArgumentException {
+        try {
+            return BaseRates.rateValue(baseCurrency, rate).setScale(RATE_SCALE).unscaledValue().longValueExact();
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Exchange rate " + rate + " exceeds the long range", e);
+        }
+    }
+
+    public ConvertableCurrency getBaseCurrency() {
+        return baseCurrency;
+    }
+
+    /**
+     * Returns the first date having exchange rates, {@code null} if the history is empty.
+     */
+    public @Nullable LocalDate getFirstDate() {
+        return days.length == 0 ? null : LocalDate.ofEpochDay(days[0]);
+    }
+
+    /**
+     * Returns the last date having exchange rates, {@code null} if the history is empty.
+     */
+    public @Nullable LocalDate getLastDate() {
+        return days.length == 0 ? null : LocalDate.ofEpochDay(days[days.length - 1]);
+    }
+
+    /**
+     * Returns a converter using the latest rate of every currency on or before the specified date.
+     *
+     * @throws IllegalArgumentException if there are no exchange rates on or before the date
+     */
+    public FrozenCurrencyConverter converterAsOf(LocalDate date) throws IllegalArgumentException {
+        final int dayIndex = indexAsOf(days, days.length, date.toEpochDay());
+        if(dayIndex < 0)
+            throw new IllegalArgumentException("No exchange rates as of " + date);
+        final int day = days[dayIndex];
+        final CachedConverter lastUsed = lastUsedConverter;
+        if(lastUsed != null && lastUsed.day == day)
+            return lastUsed.converter;
+        FrozenCurrencyConverter converter;
+        synchronized (converterCache) {
+            converter = converterCache.get(day);
+        }
+        if(converter == null) {
+            final FrozenCurrencyConverter createdConverter = createConverter(day);
+            synchronized (converterCache) {
+                converter = converterCache.computeIfAbsent(day, x -> createdConverter);
+            }
+        }
+        lastUsedConverter = new CachedConverter(day, converter);
+        return converter;
+    }
+
+    /**
+     * Returns the exchange rate between the specified currencies as of the specified date.
+     *
+     * @throws IllegalArgumentException if no exchange rate is known for a currency on or before the date
+     */
+    public ExchangeRate getExchangeRate(ConvertableCurrency fromCurrency, ConvertableCurrency toCurrency, LocalDate date)
+            throws IllegalArgumentException {
+        return converterAsOf(date).getExchangeRate(fromCurrency, toCurrency);
+    }
+
+    private FrozenCurrencyConverter createConverter(int day) {
+        final Money baseValue = new Money(BigDecimal.ONE, baseCurrency);
+        final List<ExchangeRate> rates = new ArrayList<>(CURRENCIES.length);
+        for (ConvertableCurrency currency : CURRENCIES) {
+            final int[] days = currencyDays[currency.ordinal()];
+            final int index = indexAsOf(days, days.length, day);
+            if(index >= 0)
+                rates.add(new ExchangeRate(baseValue, new Money(BaseRates.toAmount(currencyRates[currency.ordinal()][index], RATE_SCALE), currency)));
+        }
+        return new FrozenCurrencyConverter(rates);
+    }
+
+    /**
+     * Returns the index of the latest day on or before the specified day, -1 if there is none.
+     */
+    static int indexAsOf(int[] days, int length, long day) {
+        final int index = Arrays.binarySearch(days, 0, length, (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, day)));
+        return index >= 0 ? index : -index - 2;
+    }
+
+    int[] getDays(ConvertableCurrency currency) {
+        return currencyDays[currency.ordinal()];
+    }
+
+    long[] getUnscaledRates(ConvertableCurrency currency) {
+        return currencyRates[currency.ordinal()];
+    }
+
+    @Override
+    public String toString() {
+        return "ExchangeRateHistory [baseCurrency=" + baseCurrency + ", firstDate=" + getFirstDate() + ", lastDate=" + getLastDate() + "]";
+    }
+
+    private static final class CachedConverter {
+        final int day;
+        final FrozenCurrencyConverter converter;
+
+        CachedConverter(int day, FrozenCurrencyConverter converter) {
+            this.day = day;
+            this.converter = converter;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.mercateo.common.currency.history;
+
+import static com.mercateo.common.currency.history.HistoryFileFormat.CURRENCY_OFFSET;
+import static com.mercateo.common.currency.history.HistoryFileFormat.DAY_OFFSET;
+import static com.mercateo.common.currency.history.HistoryFileFormat.HEADER_SIZE;
+import static com.mercateo.common.currency.history.HistoryFileFormat.RECORD_COUNT_OFFSET;
+import static com.mercateo.common.currency.history.HistoryFileFormat.RECORD_SIZE;
+import static com.mercateo.common.currency.history.HistoryFileFormat.SCALE_OFFSET;
+import static com.mercateo.common.currency.history.HistoryFileFormat.UNSCALED_RATE_OFFSET;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Collection;
+
+import com.mercateo.common.currency.ConvertableCurrency;
+import com.mercateo.common.currency.ExchangeRate;
+
+/**
+ * Appends daily exchange rates to an exchange rate history file read by
+ * {@link MappedExchangeRateHistory}.
+ *
+ * <p>Each {@link #append(LocalDate, Collection)} is atomic: the records are written
+ * and forced to the storage device before the record count in the header is updated
+ * and forced. Records written by an interrupted append are not committed and
+ * overwritten by the next append.</p>
+ */
+public final class ExchangeRateHistoryWriter implements Closeable {
+    private final FileChannel channel;
+    private final ConvertableCurrency baseCurrency;
+    private long recordCount;
+    private int lastDay;
+
+    private ExchangeRateHistoryWriter(FileChannel channel, ConvertableCurrency baseCurrency, long recordCount, int lastDay) {
+        super();
+        this.channel = channel;
+        this.baseCurrency = baseCurrency;
+        this.recordCount = recordCount;
+        this.lastDay = lastDay;
+    }
+
+    /**
+     * Creates a new, empty exchange rate history file.
+     *
+     * @throws IOException if the file exists or can't be written
+     */
+    public static ExchangeRateHistoryWriter create(Path path, ConvertableCurrency baseCurrency) throws IOException {
+        final FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            write(channel, HistoryFileFormat.header(baseCurrency, 0), 0);
+            channel.force(true);
+            return new ExchangeRateHistoryWriter(channel, baseCurrency, 0, Integer.MIN_VALUE);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens an existing exchange rate history file for appending.
+     *
+     * @throws IOException if the file can't be read or is no exchange rate history file
+     */
+    public static ExchangeRateHistoryWriter open(Path path) throws IOException {
+        final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            final ByteBuffer header = HistoryFileFormat.readHeader(channel, path);
+            final long recordCount = HistoryFileFormat.recordCount(header);
+            int lastDay = Integer.MIN_VALUE;
+            if(recordCount > 0) {
+                final ByteBuffer day = ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.BIG_ENDIAN);
+                read(channel, day, HEADER_SIZE + (recordCount - 1) * RECORD_SIZE + DAY_OFFSET);
+                lastDay = day.getInt(0);
+            }
+            return new ExchangeRateHistoryWriter(channel, HistoryFileFormat.baseCurrency(header), recordCount, lastDay);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public ConvertableCurrency getBaseCurrency() {
+        return baseCurrency;
+    }
+
+    /**
+     * Returns the number of committed records.
+     */
+    public synchronized long getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Appends the exchange rates of the specified date. Rates appended later for the same
+     * date and currency replace earlier ones.
+     *
+     * @throws IllegalArgumentException if the date is before the last appended date, or a rate
+     *  is not relative to the base currency or its rate value exceeds the long range
+     * @throws IOException if the file can't be written
+     */
+    public synchronized void append(LocalDate date, Collection<ExchangeRate> rates) throws IllegalArgumentException, IOException {
+        final int day = Math.toIntExact(date.toEpochDay());
+        if(day < lastDay)
+            throw new IllegalArgumentException("Date " + date + " is before the last appended date " + LocalDate.ofEpochDay(lastDay));
+        final ByteBuffer records = ByteBuffer.allocate(rates.size() * RECORD_SIZE).order(ByteOrder.BIG_ENDIAN);
+        int position = 0;
+        for (ExchangeRate rate : rates) {
+            final ConvertableCurrency currency = BaseRates.quotedCurrency(baseCurrency, rate);
+            final BigDecimal rateValue = BaseRates.rateValue(baseCurrency, rate);
+            final long unscaledRate;
+            try {
+                unscaledRate = rateValue.unscaledValue().longValueExact();
+            } catch (ArithmeticException e) {
+                throw new IllegalArgumentException("Exchange rate " + rate + " exceeds the long range", e);
+            }
+            records.putInt(position + DAY_OFFSET, day);
+            records.put(position + CURRENCY_OFFSET, (byte) currency.ordinal());
+            records.put(position + SCALE_OFFSET, (byte) rateValue.scale());
+            records.putLong(position + UNSCALED_RATE_OFFSET, unscaledRate);
+            position += RECORD_SIZE;
+        }
+        if(rates.isEmpty())
+            return;
+        write(channel, records, HEADER_SIZE + recordCount * RECORD_SIZE);
+        channel.force(false);
+        final long newRecordCount = recordCount + rates.size();
+        final ByteBuffer count = ByteBuffer.allocate(Long.BYTES).order(ByteOrder.BIG_ENDIAN).putLong(0, newRecordCount);
+        write(channel, count, RECORD_COUNT_OFFSET);
+        channel.force(false);
+        recordCount = newRecordCount;
+        lastDay = day;
+    }
+
+    private static void write(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        long writePosition = position;
+        while (buffer.hasRemaining())
+            writePosition += channel.write(buffer, writePosition);
+    }
+
+    private static void read(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        long readPosition = position;
+        while (buffer.hasRemaining()) {
+            final int read = channel.read(buffer, readPosition);
+            if(read < 0)
+                throw new IOException("Unexpected end of exchange rate history file");
+            readPosition += read;
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+}
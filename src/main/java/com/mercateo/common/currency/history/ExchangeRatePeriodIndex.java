@@ -0,0 +1,232 @@
+package com.mercateo.common.currency.history;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.mercateo.common.currency.ConvertableCurrency;
+import com.mercateo.common.currency.ExchangeRate;
+import com.mercateo.common.currency.FrozenCurrencyConverter;
+import com.mercateo.common.currency.Money;
+
+/**
+ * Answers average, minimum and maximum rates of an {@link ExchangeRateHistory} over date ranges.
+ *
+ * <p>Per currency, the daily rates relative to the base currency are summed up into exact
+ * 128 bit prefix sums of their unscaled values, so the average over any range takes two
+ * binary searches and one division. Minimum and maximum are answered by segment trees
+ * in logarithmic time.</p>
+ *
+ * <p>Averages are taken over the days having a rate within the range, like the monthly
+ * averages of central banks, and rounded to {@value ExchangeRateHistory#RATE_SCALE}
+ * decimal places with {@link RoundingMode#HALF_EVEN}. Average rates between two quoted
+ * currencies are the ratio of their average rates relative to the base currency.</p>
+ */
+public final class ExchangeRatePeriodIndex {
+    private static final ConvertableCurrency[] CURRENCIES = ConvertableCurrency.values();
+    private static final BigInteger UNSIGNED_LONG_MASK = BigInteger.ONE.shiftLeft(Long.SIZE).subtract(BigInteger.ONE);
+
+    private final ConvertableCurrency baseCurrency;
+    private final CurrencyIndex[] currencyIndexes;
+
+    /**
+     * Creates an index of all rates of the specified history.
+     */
+    public ExchangeRatePeriodIndex(ExchangeRateHistory history) {
+        super();
+        this.baseCurrency = history.getBaseCurrency();
+        this.currencyIndexes = new CurrencyIndex[CURRENCIES.length];
+        for (ConvertableCurrency currency : CURRENCIES)
+            currencyIndexes[currency.ordinal()] = new CurrencyIndex(history.getDays(currency), history.getUnscaledRates(currency));
+    }
+
+    public ConvertableCurrency getBaseCurrency() {
+        return baseCurrency;
+    }
+
+    /**
+     * Returns the number of days having a rate of the specified currency between the specified dates, both inclusive.
+     */
+    public int getObservationCount(ConvertableCurrency currency, LocalDate from, LocalDate to) {
+        if(currency == baseCurrency)
+            return 0;
+        final CurrencyIndex index = currencyIndexes[currency.ordinal()];
+        return Math.max(0, index.end(to) - index.start(from));
+    }
+
+    /**
+     * Returns the average amount of the specified currency equal to one unit of the base currency
+     * between the specified dates, both inclusive.
+     *
+     * @throws IllegalArgumentException if the currency has no rate between the dates
+     */
+    public BigDecimal getAverageRateValue(ConvertableCurrency currency, LocalDate from, LocalDate to) throws IllegalArgumentException {
+        if(currency == baseCurrency)
+            return BigDecimal.ONE;
+        final CurrencyIndex index = currencyIndexes[currency.ordinal()];
+        final int start = index.start(from);
+        final int end = index.end(to);
+        if(start >= end)
+            throw noRates(currency, from, to);
+        return index.average(start, end);
+    }
+
+    /**
+     * Returns the minimal amount of the specified currency equal to one unit of the base currency
+     * between the specified dates, both inclusive.
+     *
+     * @throws IllegalArgumentException if the currency has no rate between the dates
+     */
+    public BigDecimal getMinimumRateValue(ConvertableCurrency currency, LocalDate from, LocalDate to) throws IllegalArgumentException {
+        if(currency == baseCurrency)
+            return BigDecimal.ONE;
+        final CurrencyIndex index = currencyIndexes[currency.ordinal()];
+        final int start = index.start(from);
+        final int end = index.end(to);
+        if(start >= end)
+            throw noRates(currency, from, to);
+        return BaseRates.toAmount(index.minimum(start, end), ExchangeRateHistory.RATE_SCALE);
+    }
+
+    /**
+     * Returns the maximal amount of the specified currency equal to one unit of the base currency
+     * between the specified dates, both inclusive.
+     *
+     * @throws IllegalArgumentException if the currency has no rate between the dates
+     */
+    public BigDecimal getMaximumRateValue(ConvertableCurrency currency, LocalDate from, LocalDate to) throws IllegalArgumentException {
+        if(currency == baseCurrency)
+            return BigDecimal.ONE;
+        final CurrencyIndex index = currencyIndexes[currency.ordinal()];
+        final int start = index.start(from);
+        final int end = index.end(to);
+        if(start >= end)
+            throw noRates(currency, from, to);
+        return BaseRates.toAmount(index.maximum(start, end), ExchangeRateHistory.RATE_SCALE);
+    }
+
+    /**
+     * Returns the exchange rate between the average rates of the specified currencies
+     * between the specified dates, both inclusive.
+     *
+     * @throws IllegalArgumentException if a currency has no rate between the dates
+     */
+    public ExchangeRate getAverageExchangeRate(ConvertableCurrency fromCurrency, ConvertableCurrency toCurrency, LocalDate from, LocalDate to)
+            throws IllegalArgumentException {
+        return new ExchangeRate(new Money(getAverageRateValue(fromCurrency, from, to), fromCurrency),
+                new Money(getAverageRateValue(toCurrency, from, to), toCurrency));
+    }
+
+    /**
+     * Returns a converter using the average rates of all currencies having rates
+     * between the specified dates, both inclusive.
+     *
+     * @throws IllegalArgumentException if there are no rates between the dates
+     */
+    public FrozenCurrencyConverter converterForPeriodAverage(LocalDate from, LocalDate to) throws IllegalArgumentException {
+        final Money baseValue = new Money(BigDecimal.ONE, baseCurrency);
+        final List<ExchangeRate> rates = new ArrayList<>(CURRENCIES.length);
+        for (ConvertableCurrency currency : CURRENCIES) {
+            final CurrencyIndex index = currencyIndexes[currency.ordinal()];
+            final int start = index.start(from);
+            final int end = index.end(to);
+            if(currency != baseCurrency && start < end)
+                rates.add(new ExchangeRate(baseValue, new Money(index.average(start, end), currency)));
+        }
+        if(rates.isEmpty())
+            throw new IllegalArgumentException("No exchange rates between " + from + " and " + to);
+        return new FrozenCurrencyConverter(rates);
+    }
+
+    private static IllegalArgumentException noRates(ConvertableCurrency currency, LocalDate from, LocalDate to) {
+        return new IllegalArgumentException("No exchange rates for " + currency + " between " + from + " and " + to);
+    }
+
+    private static final class CurrencyIndex {
+        private final int[] days;
+        /**
+         * Upper and lower 64 bits of the sums of the first i unscaled rates.
+         */
+        private final long[] prefixSumsHigh;
+        private final long[] prefixSumsLow;
+        /**
+         * Segment trees with the unscaled rates as leaves at [days.length, 2 * days.length).
+         */
+        private final long[] minima;
+        private final long[] maxima;
+
+        CurrencyIndex(int[] days, long[] unscaledRates) {
+            final int length = days.length;
+            this.days = days;
+            this.prefixSumsHigh = new long[length + 1];
+            this.prefixSumsLow = new long[length + 1];
+            for (int i = 0; i < length; i++) {
+                final long rate = unscaledRates[i];
+                final long low = prefixSumsLow[i] + rate;
+                final long carry = Long.compareUnsigned(low, prefixSumsLow[i]) < 0 ? 1 : 0;
+                prefixSumsLow[i + 1] = low;
+                prefixSumsHigh[i + 1] = prefixSumsHigh[i] + (rate >> 63) + carry;
+            }
+            this.minima = new long[2 * length];
+            this.maxima = new long[2 * length];
+            System.arraycopy(unscaledRates, 0, minima, length, length);
+            System.arraycopy(unscaledRates, 0, maxima, length, length);
+            for (int node = length - 1; node > 0; node--) {
+                minima[node] = Math.min(minima[2 * node], minima[2 * node + 1]);
+                maxima[node] = Math.max(maxima[2 * node], maxima[2 * node + 1]);
+            }
+        }
+
+        /**
+         * Returns the index of the first day on or after the date.
+         */
+        int start(LocalDate from) {
+            return ExchangeRateHistory.indexAsOf(days, days.length, from.toEpochDay() - 1) + 1;
+        }
+
+        /**
+         * Returns the index after the last day on or before the date.
+         */
+        int end(LocalDate to) {
+            return ExchangeRateHistory.indexAsOf(days, days.length, to.toEpochDay()) + 1;
+        }
+
+        BigDecimal average(int start, int end) {
+            final long low = prefixSumsLow[end] - prefixSumsLow[start];
+            final long borrow = Long.compareUnsigned(prefixSumsLow[end], prefixSumsLow[start]) < 0 ? 1 : 0;
+            final long high = prefixSumsHigh[end] - prefixSumsHigh[start] - borrow;
+            final BigInteger sum = high == (low >> 63)
+                    ? BigInteger.valueOf(low)
+                    : BigInteger.valueOf(high).shiftLeft(Long.SIZE).or(BigInteger.valueOf(low).and(UNSIGNED_LONG_MASK));
+            final BigDecimal average = new BigDecimal(sum, ExchangeRateHistory.RATE_SCALE)
+                    .divide(BigDecimal.valueOf(end - start), ExchangeRateHistory.RATE_SCALE, RoundingMode.HALF_EVEN);
+            final BigDecimal stripped = average.stripTrailingZeros();
+            return stripped.scale() < 0 ? stripped.setScale(0) : stripped;
+        }
+
+        long minimum(int start, int end) {
+            long minimum = Long.MAX_VALUE;
+            for (int left = start + days.length, right = end + days.length; left < right; left >>= 1, right >>= 1) {
+                if((left & 1) == 1)
+                    minimum = Math.min(minimum, minima[left++]);
+                if((right & 1) == 1)
+                    minimum = Math.min(minimum, minima[--right]);
+            }
+            return minimum;
+        }
+
+        long maximum(int start, int end) {
+            long maximum = Long.MIN_VALUE;
+            for (int left = start + days.length, right = end + days.length; left < right; left >>= 1, right >>= 1) {
+                if((left & 1) == 1)
+                    maximum = Math.max(maximum, maxima[left++]);
+                if((right & 1) == 1)
+                    maximum = Math.max(maximum, maxima[--right]);
+            }
+            return maximum;
+        }
+    }
+}
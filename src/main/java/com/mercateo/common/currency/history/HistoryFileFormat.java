@@ -0,0 +1,95 @@
+package com.mercateo.common.currency.history;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+import com.mercateo.common.currency.ConvertableCurrency;
+
+/**
+ * Layout of exchange rate history files.
+ *
+ * <p>A file starts with a header of {@value #HEADER_SIZE} bytes:</p>
+ * <ul>
+ * <li>int magic number {@code 0x4D435248}</li>
+ * <li>short format version {@value #FORMAT_VERSION}</li>
+ * <li>byte base currency ordinal</li>
+ * <li>byte reserved</li>
+ * <li>long number of committed records</li>
+ * </ul>
+ *
+ * <p>It is followed by records of {@value #RECORD_SIZE} bytes in non-decreasing date order:</p>
+ * <ul>
+ * <li>int epoch day</li>
+ * <li>byte currency ordinal</li>
+ * <li>byte scale of the rate value</li>
+ * <li>short reserved</li>
+ * <li>long unscaled rate value, the amount of the currency equal to one unit of the base currency</li>
+ * </ul>
+ *
+ * <p>All values are big endian. Bytes after the committed records are ignored.</p>
+ */
+final class HistoryFileFormat {
+    static final int MAGIC = 0x4D435248;
+    static final short FORMAT_VERSION = 1;
+    static final int HEADER_SIZE = 16;
+    static final int RECORD_SIZE = 16;
+
+    static final int MAGIC_OFFSET = 0;
+    static final int VERSION_OFFSET = 4;
+    static final int BASE_CURRENCY_OFFSET = 6;
+    static final int RECORD_COUNT_OFFSET = 8;
+
+    static final int DAY_OFFSET = 0;
+    static final int CURRENCY_OFFSET = 4;
+    static final int SCALE_OFFSET = 5;
+    static final int UNSCALED_RATE_OFFSET = 8;
+
+    private static final ConvertableCurrency[] CURRENCIES = ConvertableCurrency.values();
+
+    private HistoryFileFormat() {
+    }
+
+    static ByteBuffer header(ConvertableCurrency baseCurrency, long recordCount) {
+        final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.BIG_ENDIAN);
+        header.putInt(MAGIC_OFFSET, MAGIC);
+        header.putShort(VERSION_OFFSET, FORMAT_VERSION);
+        header.put(BASE_CURRENCY_OFFSET, (byte) baseCurrency.ordinal());
+        header.putLong(RECORD_COUNT_OFFSET, recordCount);
+        return header;
+    }
+
+    /**
+     * Reads and validates the header of the specified file.
+     *
+     * @throws IOException if the file can't be read or is no exchange rate history file
+     */
+    static ByteBuffer readHeader(FileChannel channel, Path path) throws IOException {
+        final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.BIG_ENDIAN);
+        while (header.hasRemaining()) {
+            if(channel.read(header, header.position()) < 0)
+                throw new IOException("Truncated exchange rate history file " + path);
+        }
+        if(header.getInt(MAGIC_OFFSET) != MAGIC)
+            throw new IOException("No exchange rate history file " + path);
+        if(header.getShort(VERSION_OFFSET) != FORMAT_VERSION)
+            throw new IOException("Unsupported exchange rate history format version " + header.getShort(VERSION_OFFSET) + " in " + path);
+        final int baseOrdinal = Byte.toUnsignedInt(header.get(BASE_CURRENCY_OFFSET));
+        if(baseOrdinal >= CURRENCIES.length)
+            throw new IOException("Unknown base currency ordinal " + baseOrdinal + " in " + path);
+        final long recordCount = header.getLong(RECORD_COUNT_OFFSET);
+        if(recordCount < 0 || channel.size() < HEADER_SIZE + recordCount * RECORD_SIZE)
+            throw new IOException("Truncated exchange rate history file " + path);
+        return header;
+    }
+
+    static ConvertableCurrency baseCurrency(ByteBuffer header) {
+        return CURRENCIES[Byte.toUnsignedInt(header.get(BASE_CURRENCY_OFFSET))];
+    }
+
+    static long recordCount(ByteBuffer header) {
+        return header.getLong(RECORD_COUNT_OFFSET);
+    }
+}
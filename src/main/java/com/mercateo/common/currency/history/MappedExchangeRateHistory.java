@@ -0,0 +1,240 @@
+package com.mercateo.common.currency.history;
+
+import static com.mercateo.common.currency.history.HistoryFileFormat.CURRENCY_OFFSET;
+import static com.mercateo.common.currency.history.HistoryFileFormat.DAY_OFFSET;
+import static com.mercateo.common.currency.history.HistoryFileFormat.HEADER_SIZE;
+import static com.mercateo.common.currency.history.HistoryFileFormat.RECORD_SIZE;
+import static com.mercateo.common.currency.history.HistoryFileFormat.SCALE_OFFSET;
+import static com.mercateo.common.currency.history.HistoryFileFormat.UNSCALED_RATE_OFFSET;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.mercateo.common.currency.ConvertableCurrency;
+import com.mercateo.common.currency.ExchangeRate;
+import com.mercateo.common.currency.FrozenCurrencyConverter;
+import com.mercateo.common.currency.Money;
+import com.mercateo.common.util.annotations.Nullable;
+
+/**
+ * Exchange rate history served from a memory mapped file written by {@link ExchangeRateHistoryWriter}.
+ *
+ * <p>The records committed when the file is opened are mapped read only. Opening only builds
+ * a primitive index of record numbers per currency; lookups as of a date binary search that
+ * index reading dates and rates directly from the mapped buffer. Records appended later are
+ * seen after opening the file again.</p>
+ *
+ * <p>Instances are immutable apart from the most recently used converter and can be shared
+ * between threads. Closing releases the file; the mapping itself is released once the
+ * instance is garbage collected.</p>
+ */
+public final class MappedExchangeRateHistory implements Closeable {
+    private static final ConvertableCurrency[] CURRENCIES = ConvertableCurrency.values();
+    private static final int[] NO_RECORDS = {};
+
+    private final FileChannel channel;
+    private final ByteBuffer records;
+    private final ConvertableCurrency baseCurrency;
+    private final int recordCount;
+    /**
+     * Record numbers per currency ordinal in file order.
+     */
+    private final int[][] currencyRecords;
+    private volatile @Nullable CachedConverter lastUsedConverter;
+
+    private MappedExchangeRateHistory(FileChannel channel, ByteBuffer records, ConvertableCurrency baseCurrency,
+            int recordCount, int[][] currencyRecords) {
+        super();
+        this.channel = channel;
+        this.records = records;
+        this.baseCurrency = baseCurrency;
+        this.recordCount = recordCount;
+        this.currencyRecords = currencyRecords;
+    }
+
+    /**
+     * Maps the committed records of the specified exchange rate history file.
+     *
+     * @throws IOException if the file can't be read or is no valid exchange rate history file
+     */
+    public static MappedExchangeRateHistory open(Path path) throws IOException {
+        final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            final ByteBuffer header = HistoryFileFormat.readHeader(channel, path);
+            final long recordCount = HistoryFileFormat.recordCount(header);
+            if(recordCount > (Integer.MAX_VALUE - HEADER_SIZE) / RECORD_SIZE)
+                throw new IOException("Exchange rate history file " + path + " exceeds " + Integer.MAX_VALUE + " bytes");
+            final ByteBuffer records = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, recordCount * RECORD_SIZE)
+                    .order(ByteOrder.BIG_ENDIAN);
+            return new MappedExchangeRateHistory(channel, records, HistoryFileFormat.baseCurrency(header),
+                    (int) recordCount, indexRecords(records, (int) recordCount, path));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static int[][] indexRecords(ByteBuffer records, int recordCount, Path path) throws IOException {
+        final int[] counts = new int[CURRENCIES.length];
+        int lastDay = Integer.MIN_VALUE;
+        for (int record = 0; record < recordCount; record++) {
+            final int offset = record * RECORD_SIZE;
+            final int day = records.getInt(offset + DAY_OFFSET);
+            final int ordinal = Byte.toUnsignedInt(records.get(offset + CURRENCY_OFFSET));
+            if(day < lastDay || ordinal >= CURRENCIES.length)
+                throw new IOException("Corrupt record " + record + " in exchange rate history file " + path);
+            lastDay = day;
+            counts[ordinal]++;
+        }
+        final int[][] currencyRecords = new int[CURRENCIES.length][];
+        for (int ordinal = 0; ordinal < CURRENCIES.length; ordinal++)
+            currencyRecords[ordinal] = counts[ordinal] == 0 ? NO_RECORDS : new int[counts[ordinal]];
+        final int[] sizes = new int[CURRENCIES.length];
+        for (int record = 0; record < recordCount; record++) {
+            final int ordinal = Byte.toUnsignedInt(records.get(record * RECORD_SIZE + CURRENCY_OFFSET));
+            currencyRecords[ordinal][sizes[ordinal]++] = record;
+        }
+        return currencyRecords;
+    }
+
+    public ConvertableCurrency getBaseCurrency() {
+        return baseCurrency;
+    }
+
+    /**
+     * Returns the number of mapped records.
+     */
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Returns the first date having exchange rates, {@code null} if the history is empty.
+     */
+    public @Nullable LocalDate getFirstDate() {
+        return recordCount == 0 ? null : LocalDate.ofEpochDay(day(0));
+    }
+
+    /**
+     * Returns the last date having exchange rates, {@code null} if the history is empty.
+     */
+    public @Nullable LocalDate getLastDate() {
+        return recordCount == 0 ? null : LocalDate.ofEpochDay(day(recordCount - 1));
+    }
+
+    /**
+     * Returns the amount of the specified currency equal to one unit of the base currency
+     * according to the latest record on or before the specified date.
+     *
+     * @throws IllegalArgumentException if there is no such record
+     */
+    public BigDecimal getRateValue(ConvertableCurrency currency, LocalDate date) throws IllegalArgumentException {
+        if(currency == baseCurrency)
+            return BigDecimal.ONE;
+        final int record = recordAsOf(currency, date.toEpochDay());
+        if(record < 0)
+            throw new IllegalArgumentException("Unknown Currency " + currency + " as of " + date);
+        final int offset = record * RECORD_SIZE;
+        return BaseRates.toAmount(records.getLong(offset + UNSCALED_RATE_OFFSET), records.get(offset + SCALE_OFFSET));
+    }
+
+    /**
+     * Returns the exchange rate between the specified currencies as of the specified date.
+     *
+     * @throws IllegalArgumentException if no exchange rate is known for a currency on or before the date
+     */
+    public ExchangeRate getExchangeRate(ConvertableCurrency fromCurrency, ConvertableCurrency toCurrency, LocalDate date)
+            throws IllegalArgumentException {
+        return new ExchangeRate(new Money(getRateValue(fromCurrency, date), fromCurrency),
+                new Money(getRateValue(toCurrency, date), toCurrency));
+    }
+
+    /**
+     * Returns a converter using the latest rate of every currency on or before the specified date.
+     *
+     * @throws IllegalArgumentException if there are no exchange rates on or before the date
+     */
+    public FrozenCurrencyConverter converterAsOf(LocalDate date) throws IllegalArgumentException {
+        final int lastRecord = lastRecordAsOf(date.toEpochDay());
+        if(lastRecord < 0)
+            throw new IllegalArgumentException("No exchange rates as of " + date);
+        final CachedConverter lastUsed = lastUsedConverter;
+        if(lastUsed != null && lastUsed.lastRecord == lastRecord)
+            return lastUsed.converter;
+        final Money baseValue = new Money(BigDecimal.ONE, baseCurrency);
+        final List<ExchangeRate> rates = new ArrayList<>(CURRENCIES.length);
+        for (ConvertableCurrency currency : CURRENCIES) {
+            if(currency != baseCurrency && recordAsOf(currency, date.toEpochDay()) >= 0)
+                rates.add(new ExchangeRate(baseValue, new Money(getRateValue(currency, date), currency)));
+        }
+        final FrozenCurrencyConverter converter = new FrozenCurrencyConverter(rates);
+        lastUsedConverter = new CachedConverter(lastRecord, converter);
+        return converter;
+    }
+
+    private int day(int record) {
+        return records.getInt(record * RECORD_SIZE + DAY_OFFSET);
+    }
+
+    /**
+     * Returns the last record on or before the specified day, -1 if there is none.
+     */
+    private int lastRecordAsOf(long day) {
+        int low = 0;
+        int high = recordCount - 1;
+        while (low <= high) {
+            final int middle = (low + high) >>> 1;
+            if(day(middle) <= day)
+                low = middle + 1;
+            else
+                high = middle - 1;
+        }
+        return high;
+    }
+
+    /**
+     * Returns the last record of the currency on or before the specified day, -1 if there is none.
+     */
+    private int recordAsOf(ConvertableCurrency currency, long day) {
+        final int[] recordNumbers = currencyRecords[currency.ordinal()];
+        int low = 0;
+        int high = recordNumbers.length - 1;
+        while (low <= high) {
+            final int middle = (low + high) >>> 1;
+            if(day(recordNumbers[middle]) <= day)
+                low = middle + 1;
+            else
+                high = middle - 1;
+        }
+        return high < 0 ? -1 : recordNumbers[high];
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    @Override
+    public String toString() {
+        return "MappedExchangeRateHistory [baseCurrency=" + baseCurrency + ", records=" + recordCount + "]";
+    }
+
+    private static final class CachedConverter {
+        final int lastRecord;
+        final FrozenCurrencyConverter converter;
+
+        CachedConverter(int lastRecord, FrozenCurrencyConverter converter) {
+            this.lastRecord = lastRecord;
+            this.converter = converter;
+        }
+    }
+}
@@ -0,0 +1,4 @@
+@NonNullByDefault
+package com.mercateo.common.currency.history;
+
+import com.mercateo.common.util.annotations.NonNullByDefault;
\ No newline at end of file
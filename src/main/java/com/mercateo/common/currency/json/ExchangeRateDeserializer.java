@@ -0,0 +1,77 @@
+package com.mercateo.common.currency.json;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+import com.mercateo.common.currency.ExchangeRate;
+import com.mercateo.common.currency.Money;
+import com.mercateo.common.util.annotations.Nullable;
+
+/**
+ * Reads {@link ExchangeRate} objects directly from the token stream.
+ */
+final class ExchangeRateDeserializer extends StdDeserializer<ExchangeRate> {
+    private static final long serialVersionUID = 1L;
+
+    static final ExchangeRateDeserializer INSTANCE = new ExchangeRateDeserializer();
+
+    private static final String BASE_VALUE = "baseValue";
+    private static final String QUOTE_VALUE = "quoteValue";
+    /** Derived from the values and ignored on input, as the former mixin did. */
+    private static final String RATE_VALUE = "rateValue";
+    private static final List<Object> PROPERTY_NAMES = Arrays.asList(BASE_VALUE, QUOTE_VALUE, RATE_VALUE);
+
+    private ExchangeRateDeserializer() {
+        super(ExchangeRate.class);
+    }
+
+    @Override
+    public ExchangeRate deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+        return readExchangeRate(p, ctxt, null);
+    }
+
+    @Override
+    public Collection<Object> getKnownPropertyNames() {
+        return PROPERTY_NAMES;
+    }
+
+    /**
+     * Reads the exchange rate object at the current token, sharing the base value with the known
+     * base value if they are equal. A {@code rateValue} property is skipped; other unknown
+     * properties are passed to the context if there is one and skipped otherwise.
+     */
+    static ExchangeRate readExchangeRate(JsonParser p, @Nullable DeserializationContext ctxt, @Nullable Money knownBaseValue)
+            throws IOException {
+        JsonToken token = p.currentToken();
+        if(token == JsonToken.START_OBJECT)
+            token = p.nextToken();
+        else if(token != JsonToken.FIELD_NAME && token != JsonToken.END_OBJECT)
+            throw MismatchedInputException.from(p, ExchangeRate.class, "Expected an exchange rate but found " + token);
+        @Nullable Money baseValue = null;
+        @Nullable Money quoteValue = null;
+        for (; token == JsonToken.FIELD_NAME; token = p.nextToken()) {
+            final String name = p.currentName();
+            p.nextToken();
+            if(BASE_VALUE.equals(name))
+                baseValue = MoneyDeserializer.readMoney(p, ctxt, knownBaseValue);
+            else if(QUOTE_VALUE.equals(name))
+                quoteValue = MoneyDeserializer.readMoney(p, ctxt, null);
+            else if(RATE_VALUE.equals(name))
+                p.skipChildren();
+            else if(ctxt != null)
+                ctxt.handleUnknownProperty(p, INSTANCE, ExchangeRate.class, name);
+            else
+                p.skipChildren();
+        }
+        if(baseValue == null || quoteValue == null)
+            throw MismatchedInputException.from(p, ExchangeRate.class, "Exchange rate without baseValue or quoteValue");
+        return new ExchangeRate(baseValue, quoteValue);
+    }
+}
@@ -0,0 +1,80 @@
+package com.mercateo.common.currency.json;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.mercateo.common.currency.ExchangeRate;
+import com.mercateo.common.currency.FrozenCurrencyConverter;
+import com.mercateo.common.currency.Money;
+import com.mercateo.common.util.annotations.Nullable;
+
+/**
+ * Streams JSON arrays of exchange rates in the format written by {@link MoneyJacksonModule}
+ * into a {@link FrozenCurrencyConverter.Builder}.
+ *
+ * <p>The token stream is read directly, without data binding, tree nodes or intermediate
+ * lists: every array element becomes exactly one {@link ExchangeRate} added to the builder.
+ * Consecutive rates with equal base values share one {@link Money} instance. Amounts may
+ * be numbers or strings, unknown properties are skipped.</p>
+ *
+ * <p>When refreshing a converter from a complete snapshot, reading into
+ * {@link FrozenCurrencyConverter#builder(FrozenCurrencyConverter)} shares all unchanged
+ * rates with the previous converter.</p>
+ */
+public final class ExchangeRateJsonReader {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private ExchangeRateJsonReader() {
+    }
+
+    /**
+     * Returns a converter using the exchange rates of the JSON array in the specified stream.
+     *
+     * @throws IOException if the stream can't be read or contains no valid exchange rate array
+     * @throws IllegalStateException if conflicting exchange rates are provided
+     */
+    public static FrozenCurrencyConverter readConverter(InputStream in) throws IOException, IllegalStateException {
+        try (JsonParser parser = JSON_FACTORY.createParser(in)) {
+            return readConverter(parser);
+        }
+    }
+
+    /**
+     * Returns a converter using the exchange rates of the JSON array at the current or next token of the parser.
+     *
+     * @throws IOException if the parser can't read a valid exchange rate array
+     * @throws IllegalStateException if conflicting exchange rates are provided
+     */
+    public static FrozenCurrencyConverter readConverter(JsonParser parser) throws IOException, IllegalStateException {
+        return readRates(parser, FrozenCurrencyConverter.builder()).build();
+    }
+
+    /**
+     * Adds the exchange rates of the JSON array at the current or next token of the parser to the builder.
+     * The parser is left at the end of the array.
+     *
+     * @throws IOException if the parser can't read a valid exchange rate array
+     * @throws IllegalStateException if conflicting exchange rates are provided
+     */
+    public static FrozenCurrencyConverter.Builder readRates(JsonParser parser, FrozenCurrencyConverter.Builder builder)
+            throws IOException, IllegalStateException {
+        JsonToken token = parser.currentToken();
+        if(token == null)
+            token = parser.nextToken();
+        if(token != JsonToken.START_ARRAY)
+            throw new JsonParseException(parser, "Expected an array of exchange rates but found " + token);
+        @Nullable Money lastBaseValue = null;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if(token != JsonToken.START_OBJECT)
+                throw new JsonParseException(parser, "Expected an exchange rate but found " + token);
+            final ExchangeRate rate = ExchangeRateDeserializer.readExchangeRate(parser, null, lastBaseValue);
+            builder.add(rate);
+            lastBaseValue = rate.getBaseValue();
+        }
+        return builder;
+    }
+}
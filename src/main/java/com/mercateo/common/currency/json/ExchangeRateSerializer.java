@@ -0,0 +1,53 @@
+package com.mercateo.common.currency.json;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.core.type.WritableTypeId;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.mercateo.common.currency.ExchangeRate;
+
+/**
+ * Writes {@link ExchangeRate} as object with {@code baseValue} and {@code quoteValue} money values
+ * in a {@link MoneyFormat}. The rate value is derived and not written.
+ */
+final class ExchangeRateSerializer extends StdSerializer<ExchangeRate> {
+    private static final long serialVersionUID = 1L;
+
+    static final SerializableString BASE_VALUE = new SerializedString("baseValue");
+    static final SerializableString QUOTE_VALUE = new SerializedString("quoteValue");
+
+    private final MoneyFormat moneyFormat;
+
+    ExchangeRateSerializer(MoneyFormat moneyFormat) {
+        super(ExchangeRate.class);
+        this.moneyFormat = moneyFormat;
+    }
+
+    @Override
+    public void serialize(ExchangeRate value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        gen.writeStartObject(value);
+        writeFields(value, gen);
+        gen.writeEndObject();
+    }
+
+    @Override
+    public void serializeWithType(ExchangeRate value, JsonGenerator gen, SerializerProvider provider, TypeSerializer typeSer)
+            throws IOException {
+        final WritableTypeId typeId = typeSer.writeTypePrefix(gen, typeSer.typeId(value, JsonToken.START_OBJECT));
+        writeFields(value, gen);
+        typeSer.writeTypeSuffix(gen, typeId);
+    }
+
+    private void writeFields(ExchangeRate value, JsonGenerator gen) throws IOException {
+        gen.writeFieldName(BASE_VALUE);
+        MoneySerializer.writeMoney(value.getBaseValue(), gen, moneyFormat);
+        gen.writeFieldName(QUOTE_VALUE);
+        MoneySerializer.writeMoney(value.getQuoteValue(), gen, moneyFormat);
+    }
+}
@@ -0,0 +1,178 @@
+package com.mercateo.common.currency.json;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+import com.mercateo.common.currency.ConvertableCurrency;
+import com.mercateo.common.currency.Money;
+import com.mercateo.common.util.annotations.Nullable;
+
+/**
+ * Reads {@link Money} in any {@link MoneyFormat} directly from the token stream.
+ *
+ * <p>Amounts may be numbers or strings; both are parsed from the parser's buffer without
+ * intermediate strings. Currency codes are resolved by a precomputed table indexed by
+ * their three letters.</p>
+ */
+final class MoneyDeserializer extends StdDeserializer<Money> {
+    private static final long serialVersionUID = 1L;
+
+    static final MoneyDeserializer INSTANCE = new MoneyDeserializer();
+
+    private static final String AMOUNT = "amount";
+    private static final String CURRENCY = "currency";
+    private static final List<Object> PROPERTY_NAMES = Arrays.asList(AMOUNT, CURRENCY);
+    private static final ConvertableCurrency[] CURRENCIES = ConvertableCurrency.values();
+    private static final int CODE_LENGTH = 3;
+    private static final int CODE_LETTERS = 26;
+    /**
+     * Currency ordinals plus one indexed by the letters of their codes, 0 for unknown codes.
+     */
+    private static final byte[] CURRENCY_ORDINALS_BY_CODE = new byte[CODE_LETTERS * CODE_LETTERS * CODE_LETTERS];
+
+    static {
+        for (ConvertableCurrency currency : CURRENCIES)
+            CURRENCY_ORDINALS_BY_CODE[codeIndex(currency.getCurrencyCode().toCharArray(), 0)] = (byte) (currency.ordinal() + 1);
+    }
+
+    private MoneyDeserializer() {
+        super(Money.class);
+    }
+
+    @Override
+    public Money deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+        return readMoney(p, ctxt, null);
+    }
+
+    @Override
+    public Collection<Object> getKnownPropertyNames() {
+        return PROPERTY_NAMES;
+    }
+
+    /**
+     * Reads the money value at the current token, returning the known value if it is equal.
+     * Unknown properties are passed to the context if there is one and skipped otherwise.
+     */
+    static Money readMoney(JsonParser p, @Nullable DeserializationContext ctxt, @Nullable Money knownValue) throws IOException {
+        final JsonToken token = p.currentToken();
+        if(token == JsonToken.VALUE_STRING)
+            return readMoneyString(p, knownValue);
+        if(token == JsonToken.START_ARRAY)
+            return readMoneyArray(p, knownValue);
+        if(token == JsonToken.START_OBJECT)
+            return readMoneyObject(p, p.nextToken(), ctxt, knownValue);
+        if(token == JsonToken.FIELD_NAME || token == JsonToken.END_OBJECT)
+            return readMoneyObject(p, token, ctxt, knownValue);
+        throw MismatchedInputException.from(p, Money.class, "Expected a money value but found " + token);
+    }
+
+    private static Money readMoneyObject(JsonParser p, @Nullable JsonToken firstToken, @Nullable DeserializationContext ctxt,
+            @Nullable Money knownValue) throws IOException {
+        JsonToken token = firstToken;
+        @Nullable BigDecimal amount = null;
+        @Nullable ConvertableCurrency currency = null;
+        for (; token == JsonToken.FIELD_NAME; token = p.nextToken()) {
+            final String name = p.currentName();
+            final JsonToken valueToken = p.nextToken();
+            if(AMOUNT.equals(name))
+                amount = readAmount(p, valueToken);
+            else if(CURRENCY.equals(name))
+                currency = readCurrency(p, valueToken);
+            else if(ctxt != null)
+                ctxt.handleUnknownProperty(p, INSTANCE, Money.class, name);
+            else
+                p.skipChildren();
+        }
+        if(amount == null || currency == null)
+            throw MismatchedInputException.from(p, Money.class, "Money without amount or currency");
+        return money(amount, currency, knownValue);
+    }
+
+    private static Money readMoneyString(JsonParser p, @Nullable Money knownValue) throws IOException {
+        final char[] chars = p.getTextCharacters();
+        final int offset = p.getTextOffset();
+        final int separator = offset + p.getTextLength() - CODE_LENGTH - 1;
+        if(separator <= offset || chars[separator] != ' ')
+            throw MismatchedInputException.from(p, Money.class, "Expected amount and currency code but found " + p.getText());
+        final ConvertableCurrency currency = currency(chars, separator + 1);
+        if(currency == null)
+            throw MismatchedInputException.from(p, ConvertableCurrency.class, "Unknown Currency " + new String(chars, separator + 1, CODE_LENGTH));
+        try {
+            return money(new BigDecimal(chars, offset, separator - offset), currency, knownValue);
+        } catch (NumberFormatException e) {
+            throw MismatchedInputException.from(p, BigDecimal.class, "Invalid amount " + new String(chars, offset, separator - offset));
+        }
+    }
+
+    private static Money readMoneyArray(JsonParser p, @Nullable Money knownValue) throws IOException {
+        final BigDecimal amount = readAmount(p, p.nextToken());
+        final ConvertableCurrency currency = readCurrency(p, p.nextToken());
+        if(amount == null || currency == null)
+            throw MismatchedInputException.from(p, Money.class, "Money without amount or currency");
+        if(p.nextToken() != JsonToken.END_ARRAY)
+            throw MismatchedInputException.from(p, Money.class, "Expected end of money array but found " + p.currentToken());
+        return money(amount, currency, knownValue);
+    }
+
+    private static Money money(BigDecimal amount, ConvertableCurrency currency, @Nullable Money knownValue) {
+        if(knownValue != null && knownValue.getCurrency() == currency && knownValue.getAmount().equals(amount))
+            return knownValue;
+        return new Money(amount, currency);
+    }
+
+    private static @Nullable BigDecimal readAmount(JsonParser p, JsonToken token) throws IOException {
+        switch (token) {
+        case VALUE_NUMBER_INT:
+        case VALUE_NUMBER_FLOAT:
+            return p.getDecimalValue();
+        case VALUE_STRING:
+            try {
+                return new BigDecimal(p.getTextCharacters(), p.getTextOffset(), p.getTextLength());
+            } catch (NumberFormatException e) {
+                throw MismatchedInputException.from(p, BigDecimal.class, "Invalid amount " + p.getText());
+            }
+        case VALUE_NULL:
+            return null;
+        default:
+            throw MismatchedInputException.from(p, BigDecimal.class, "Expected an amount but found " + token);
+        }
+    }
+
+    private static @Nullable ConvertableCurrency readCurrency(JsonParser p, JsonToken token) throws IOException {
+        if(token == JsonToken.VALUE_NULL)
+            return null;
+        if(token == JsonToken.VALUE_STRING && p.getTextLength() == CODE_LENGTH) {
+            final ConvertableCurrency currency = currency(p.getTextCharacters(), p.getTextOffset());
+            if(currency != null)
+                return currency;
+        }
+        throw MismatchedInputException.from(p, ConvertableCurrency.class, "Unknown Currency " + p.getText());
+    }
+
+    private static @Nullable ConvertableCurrency currency(char[] chars, int offset) {
+        final int index = codeIndex(chars, offset);
+        return index >= 0 && CURRENCY_ORDINALS_BY_CODE[index] != 0 ? CURRENCIES[CURRENCY_ORDINALS_BY_CODE[index] - 1] : null;
+    }
+
+    /**
+     * Returns the table index of the currency code starting at the offset, -1 if it is no upper case code.
+     */
+    private static int codeIndex(char[] chars, int offset) {
+        int index = 0;
+        for (int i = offset; i < offset + CODE_LENGTH; i++) {
+            final int letter = chars[i] - 'A';
+            if(letter < 0 || letter >= CODE_LETTERS)
+                return -1;
+            index = index * CODE_LETTERS + letter;
+        }
+        return index;
+    }
+}
@@ -0,0 +1,30 @@
+package com.mercateo.common.currency.json;
+
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * JSON representations of {@link com.mercateo.common.currency.Money} written by {@link MoneyJacksonModule}.
+ * All representations are accepted when reading, regardless of the configured one.
+ */
+public enum MoneyFormat {
+    /**
+     * Object with amount number and currency code, e.g. {@code {"amount":12.34,"currency":"EUR"}}.
+     */
+    OBJECT(JsonToken.START_OBJECT),
+
+    /**
+     * String of amount and currency code separated by a single space, e.g. {@code "12.34 EUR"}.
+     */
+    STRING(JsonToken.VALUE_STRING),
+
+    /**
+     * Array of amount number and currency code, e.g. {@code [12.34,"EUR"]}.
+     */
+    ARRAY(JsonToken.START_ARRAY);
+
+    final JsonToken firstToken;
+
+    private MoneyFormat(JsonToken firstToken) {
+        this.firstToken = firstToken;
+    }
+}
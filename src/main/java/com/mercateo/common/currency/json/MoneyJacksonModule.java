@@ -8,15 +8,29 @@ import com.mercateo.common.currency.Money;
 /**
  * Jackson module for serializing and deserializing Money and ExchangeRate classes
  * without adding JSON annotations to the domain classes.
+ *
+ * <p>Dedicated serializers and deserializers read and write the properties directly
+ * from and to the token stream, without bean introspection or property buffering.</p>
+ *
+ * <p>Money is written as {@link MoneyFormat#OBJECT} unless a compact {@link MoneyFormat}
+ * is chosen. Money in any format is accepted when reading.</p>
  */
 public class MoneyJacksonModule extends SimpleModule {
     private static final long serialVersionUID = 1L;
 
     public MoneyJacksonModule() {
+        this(MoneyFormat.OBJECT);
+    }
+
+    /**
+     * Creates a module writing money in the specified format.
+     */
+    public MoneyJacksonModule(MoneyFormat moneyFormat) {
         super("MoneyJacksonModule", new Version(1, 0, 0, null, "com.mercateo.common.i18n", "money-json"));
 
-        // Register mixins
-        setMixInAnnotation(Money.class, MoneyMixin.class);
-        setMixInAnnotation(ExchangeRate.class, ExchangeRateMixin.class);
+        addSerializer(Money.class, new MoneySerializer(moneyFormat));
+        addSerializer(ExchangeRate.class, new ExchangeRateSerializer(moneyFormat));
+        addDeserializer(Money.class, MoneyDeserializer.INSTANCE);
+        addDeserializer(ExchangeRate.class, ExchangeRateDeserializer.INSTANCE);
     }
 }
\ No newline at end of file
@@ -0,0 +1,90 @@
+package com.mercateo.common.currency.json;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.core.type.WritableTypeId;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.mercateo.common.currency.ConvertableCurrency;
+import com.mercateo.common.currency.Money;
+
+/**
+ * Writes {@link Money} in a {@link MoneyFormat}, using pre-encoded property names and currency codes.
+ */
+final class MoneySerializer extends StdSerializer<Money> {
+    private static final long serialVersionUID = 1L;
+
+    static final SerializableString AMOUNT = new SerializedString("amount");
+    static final SerializableString CURRENCY = new SerializedString("currency");
+
+    private static final SerializableString[] CURRENCY_CODES = new SerializableString[ConvertableCurrency.values().length];
+
+    static {
+        for (ConvertableCurrency currency : ConvertableCurrency.values())
+            CURRENCY_CODES[currency.ordinal()] = new SerializedString(currency.getCurrencyCode());
+    }
+
+    private final MoneyFormat format;
+
+    MoneySerializer(MoneyFormat format) {
+        super(Money.class);
+        this.format = format;
+    }
+
+    @Override
+    public void serialize(Money value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        writeMoney(value, gen, format);
+    }
+
+    @Override
+    public void serializeWithType(Money value, JsonGenerator gen, SerializerProvider provider, TypeSerializer typeSer) throws IOException {
+        final WritableTypeId typeId = typeSer.writeTypePrefix(gen, typeSer.typeId(value, format.firstToken));
+        writeContents(value, gen, format);
+        typeSer.writeTypeSuffix(gen, typeId);
+    }
+
+    static void writeMoney(Money value, JsonGenerator gen, MoneyFormat format) throws IOException {
+        switch (format) {
+        case OBJECT:
+            gen.writeStartObject(value);
+            writeContents(value, gen, format);
+            gen.writeEndObject();
+            break;
+        case ARRAY:
+            gen.writeStartArray(value, 2);
+            writeContents(value, gen, format);
+            gen.writeEndArray();
+            break;
+        default:
+            writeContents(value, gen, format);
+        }
+    }
+
+    /**
+     * Writes the properties, elements or string of the money value without enclosing object or array.
+     */
+    private static void writeContents(Money value, JsonGenerator gen, MoneyFormat format) throws IOException {
+        final SerializableString currencyCode = CURRENCY_CODES[value.getCurrency().ordinal()];
+        switch (format) {
+        case OBJECT:
+            gen.writeFieldName(AMOUNT);
+            gen.writeNumber(value.getAmount());
+            gen.writeFieldName(CURRENCY);
+            gen.writeString(currencyCode);
+            break;
+        case ARRAY:
+            gen.writeNumber(value.getAmount());
+            gen.writeString(currencyCode);
+            break;
+        default:
+            final BigDecimal amount = value.getAmount();
+            final String amountText = gen.isEnabled(JsonGenerator.Feature.WRITE_BIGDECIMAL_AS_PLAIN) ? amount.toPlainString() : amount.toString();
+            gen.writeString(amountText + ' ' + currencyCode.getValue());
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.mercateo.common.currency;
+
+import static java.util.Arrays.asList;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Fork(value = 3, warmups = 1)
+@Measurement(iterations = 5, time = 4, timeUnit = TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 4, timeUnit = TimeUnit.SECONDS)
+public class BatchConversionBenchmark {
+
+    private static final Money EUR_RATE = new Money(BigDecimal.ONE, ConvertableCurrency.EUR);
+    private static final Money USD_RATE = new Money(new BigDecimal("1.09"), ConvertableCurrency.USD);
+    private static final Money GBP_RATE = new Money(new BigDecimal("0.84"), ConvertableCurrency.GBP);
+    private static final FrozenCurrencyConverter moneyExchange = new FrozenCurrencyConverter(asList(
+            new ExchangeRate(EUR_RATE, GBP_RATE), new ExchangeRate(EUR_RATE, USD_RATE)));
+
+    @Param({ "1000", "100000", "10000000" })
+    public int size;
+
+    private long[] amounts;
+    private long[] convertedAmounts;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(4217);
+        amounts = new long[size];
+        convertedAmounts = new long[size];
+        for (int i = 0; i < size; i++)
+            amounts[i] = random.nextInt(100_000_000);
+    }
+
+    @Benchmark
+    public long[] convertAll() {
+        moneyExchange.convertAll(amounts, 2, ConvertableCurrency.GBP, ConvertableCurrency.USD,
+                DecimalPlacesStrategy.TO_PRICE, RoundingMode.HALF_EVEN, convertedAmounts);
+        return convertedAmounts;
+    }
+
+    /**
+     * Baseline running the general per element kernel with division and overflow checks.
+     */
+    @Benchmark
+    public long[] convertAll_generalKernel() {
+        ExchangeRate exchangeRate = moneyExchange.getExchangeRate(ConvertableCurrency.GBP, ConvertableCurrency.USD);
+        final int newScale = DecimalPlacesStrategy.TO_PRICE.getRequiredScale(2, ConvertableCurrency.GBP, ConvertableCurrency.USD);
+        for (int i = 0; i < amounts.length; i++)
+            convertedAmounts[i] = exchangeRate.convertUnscaledExactly(amounts[i], 2, newScale, RoundingMode.HALF_EVEN);
+        return convertedAmounts;
+    }
+
+    @Benchmark
+    public long[] convertToPrice_perMoney() {
+        for (int i = 0; i < amounts.length; i++) {
+            Money price = new Money(BigDecimal.valueOf(amounts[i], 2), ConvertableCurrency.GBP);
+            convertedAmounts[i] = moneyExchange.convertToPrice(price, ConvertableCurrency.USD).getAmount().unscaledValue().longValue();
+        }
+        return convertedAmounts;
+    }
+}
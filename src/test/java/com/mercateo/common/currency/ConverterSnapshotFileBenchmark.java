@@ -0,0 +1,62 @@
+package com.mercateo.common.currency;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Compares restoring a converter of all currencies from a {@link ConverterSnapshotFile}
+ * with deriving it from its given rates.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Fork(value = 3, warmups = 1)
+@Measurement(iterations = 5, time = 4, timeUnit = TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 4, timeUnit = TimeUnit.SECONDS)
+public class ConverterSnapshotFileBenchmark {
+    private static final Money ONE_EUR = new Money(BigDecimal.ONE, ConvertableCurrency.EUR);
+    private static final List<ExchangeRate> ALL_CURRENCY_RATES = Stream.of(ConvertableCurrency.values())
+            .map(currency -> new ExchangeRate(ONE_EUR, new Money(BigDecimal.valueOf(100_000 + 3_737 * currency.ordinal(), 5), currency)))
+            .collect(Collectors.toList());
+
+    private ByteBuffer encoded;
+    private Path path;
+
+    @Setup
+    public void setUp() throws IOException {
+        final FrozenCurrencyConverter converter = new FrozenCurrencyConverter(ALL_CURRENCY_RATES);
+        encoded = ConverterSnapshotFile.encode(converter, 1, Instant.now());
+        path = Files.createTempFile("converter", ".snapshot");
+        ConverterSnapshotFile.write(path, converter, 1, Instant.now());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.delete(path);
+    }
+
+    @Benchmark
+    public FrozenCurrencyConverter derive() {
+        return new FrozenCurrencyConverter(ALL_CURRENCY_RATES);
+    }
+
+    @Benchmark
+    public FrozenCurrencyConverter restore() throws IOException {
+        return ConverterSnapshotFile.decode(encoded.duplicate(), Instant.MIN, "benchmark").getConverter();
+    }
+
+    @Benchmark
+    public FrozenCurrencyConverter readFile() throws IOException {
+        return ConverterSnapshotFile.read(path).getConverter();
+    }
+}
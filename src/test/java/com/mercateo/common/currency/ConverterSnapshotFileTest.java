@@ -0,0 +1,174 @@
+package com.mercateo.common.currency;
+
+import static com.mercateo.common.currency.ConvertableCurrency.CHF;
+import static com.mercateo.common.currency.ConvertableCurrency.EUR;
+import static com.mercateo.common.currency.ConvertableCurrency.GBP;
+import static com.mercateo.common.currency.ConvertableCurrency.HUF;
+import static com.mercateo.common.currency.ConvertableCurrency.PLN;
+import static com.mercateo.common.currency.ConvertableCurrency.USD;
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ConverterSnapshotFileTest {
+    private static final Instant CREATED_AT = Instant.parse("2025-07-01T16:00:00Z");
+    private static final Money ONE_EUR = new Money(BigDecimal.ONE, EUR);
+    private static final Money ONE_USD = new Money(BigDecimal.ONE, USD);
+
+    private static final FrozenCurrencyConverter converter = new FrozenCurrencyConverter(asList(
+            new ExchangeRate(ONE_EUR, new Money(new BigDecimal("1.09"), USD)),
+            new ExchangeRate(ONE_USD, new Money(new BigDecimal("0.9"), CHF)),
+            new ExchangeRate(new Money(new BigDecimal("3"), PLN), new Money(new BigDecimal("2"), CHF)),
+            new ExchangeRate(new Money(BigDecimal.ONE, GBP), new Money(new BigDecimal("123456789012345678901234567890.5"), HUF))));
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void restoresAllRates() throws Exception {
+        final Path path = temporaryFolder.getRoot().toPath().resolve("converter.snapshot");
+        ConverterSnapshotFile.write(path, converter, 42, CREATED_AT);
+
+        final ConverterSnapshotFile snapshotFile = ConverterSnapshotFile.read(path);
+
+        assertThat(snapshotFile.getVersion()).isEqualTo(42);
+        assertThat(snapshotFile.getCreatedAt()).isEqualTo(CREATED_AT);
+        final FrozenCurrencyConverter restored = snapshotFile.getConverter();
+        assertThat(restored.getDirectRates()).isEqualTo(converter.getDirectRates());
+        for (ConvertableCurrency from : ConvertableCurrency.values()) {
+            for (ConvertableCurrency to : ConvertableCurrency.values()) {
+                try {
+                    final ExchangeRate rate = converter.getExchangeRate(from, to);
+                    assertThat(restored.getExchangeRate(from, to)).isEqualTo(rate);
+                    assertThat(restored.getExchangeRate(from, to).getRateValue()).isEqualTo(rate.getRateValue());
+                } catch (IllegalArgumentException e) {
+                    assertThatThrownBy(() -> restored.getExchangeRate(from, to)).hasMessage(e.getMessage());
+                }
+            }
+        }
+        assertThat(temporaryFolder.getRoot().list()).containsExactly("converter.snapshot");
+    }
+
+    @Test
+    public void deletesTemporaryFileIfNotMoved() throws Exception {
+        final Path path = temporaryFolder.newFolder("converter.snapshot").toPath();
+        Files.createFile(path.resolve("rates"));
+
+        assertThatThrownBy(() -> ConverterSnapshotFile.write(path, converter, 1, CREATED_AT))
+                .isInstanceOf(IOException.class);
+
+        assertThat(temporaryFolder.getRoot().list()).containsExactly("converter.snapshot");
+    }
+
+    @Test
+    public void restoredConverterDerivesChangedRates() throws Exception {
+        final Path path = temporaryFolder.getRoot().toPath().resolve("converter.snapshot");
+        ConverterSnapshotFile.write(path, converter, 1, CREATED_AT);
+        final ExchangeRate changedRate = new ExchangeRate(ONE_EUR, new Money(new BigDecimal("1.10"), USD));
+
+        final FrozenCurrencyConverter restored = ConverterSnapshotFile.read(path).getConverter()
+                .withChangedRates(Collections.singletonList(changedRate));
+
+        final FrozenCurrencyConverter expected = converter.withChangedRates(Collections.singletonList(changedRate));
+        assertThat(restored.getExchangeRate(PLN, EUR).getRateValue()).isEqualTo(expected.getExchangeRate(PLN, EUR).getRateValue());
+        assertThat(restored.getExchangeRate(EUR, CHF).getRateValue()).isEqualTo(expected.getExchangeRate(EUR, CHF).getRateValue());
+    }
+
+    @Test
+    public void replacesConverterRestoredAtStartup() throws Exception {
+        final Path path = temporaryFolder.getRoot().toPath().resolve("converter.snapshot");
+        ConverterSnapshotFile.write(path, converter, 1, CREATED_AT);
+        final UpdateableCurrencyConverter updateable = new UpdateableCurrencyConverter(
+                ConverterSnapshotFile.read(path, CREATED_AT).getConverter());
+        final ExchangeRate fetchedRate = new ExchangeRate(ONE_EUR, new Money(new BigDecimal("1.10"), USD));
+
+        updateable.set(new FrozenCurrencyConverter(Collections.singletonList(fetchedRate)));
+
+        assertThat(updateable.getExchangeRate(EUR, USD)).isEqualTo(fetchedRate);
+    }
+
+    @Test
+    public void rejectsStaleFile() throws Exception {
+        final Path path = temporaryFolder.getRoot().toPath().resolve("converter.snapshot");
+        ConverterSnapshotFile.write(path, converter, 1, CREATED_AT);
+
+        assertThatThrownBy(() -> ConverterSnapshotFile.read(path, CREATED_AT.plusMillis(1)))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("Stale");
+    }
+
+    @Test
+    public void rejectsCorruptFile() throws Exception {
+        final Path path = temporaryFolder.getRoot().toPath().resolve("converter.snapshot");
+        ConverterSnapshotFile.write(path, converter, 1, CREATED_AT);
+        final byte[] bytes = Files.readAllBytes(path);
+        bytes[bytes.length / 2] ^= 1;
+        Files.write(path, bytes);
+
+        assertThatThrownBy(() -> ConverterSnapshotFile.read(path))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("Corrupt");
+    }
+
+    @Test
+    public void rejectsFileWithCorruptHeader() throws Exception {
+        final Path path = temporaryFolder.getRoot().toPath().resolve("converter.snapshot");
+        ConverterSnapshotFile.write(path, converter, 1, CREATED_AT);
+        final byte[] bytes = Files.readAllBytes(path);
+        for (int offset : new int[] { 6, 19, 27 }) {
+            final byte[] corrupt = bytes.clone();
+            corrupt[offset] ^= 1;
+            Files.write(path, corrupt);
+
+            assertThatThrownBy(() -> ConverterSnapshotFile.read(path))
+                    .isInstanceOf(IOException.class)
+                    .hasMessageContaining("Corrupt");
+        }
+    }
+
+    @Test
+    public void rejectsTruncatedFile() throws Exception {
+        final Path path = temporaryFolder.getRoot().toPath().resolve("converter.snapshot");
+        ConverterSnapshotFile.write(path, converter, 1, CREATED_AT);
+        final byte[] bytes = Files.readAllBytes(path);
+        Files.write(path, Arrays.copyOf(bytes, bytes.length - 1));
+
+        assertThatThrownBy(() -> ConverterSnapshotFile.read(path))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("Truncated");
+    }
+
+    @Test
+    public void rejectsOtherFiles() throws Exception {
+        final Path path = temporaryFolder.newFile("rates.json").toPath();
+        Files.write(path, "{\"rates\":[]} is a JSON document, not a converter snapshot".getBytes());
+
+        assertThatThrownBy(() -> ConverterSnapshotFile.read(path))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("No converter snapshot file");
+    }
+
+    @Test
+    public void restoresEmptyConverter() throws Exception {
+        final Path path = temporaryFolder.getRoot().toPath().resolve("converter.snapshot");
+        ConverterSnapshotFile.write(path, new FrozenCurrencyConverter(Collections.emptyList()), 1, CREATED_AT);
+
+        final FrozenCurrencyConverter restored = ConverterSnapshotFile.read(path).getConverter();
+
+        assertThat(restored.getDirectRates()).isEmpty();
+        assertThat(restored.convertToPrice(new Money(new BigDecimal("1.5"), EUR), EUR))
+                .isEqualTo(new Money(new BigDecimal("1.50"), EUR));
+    }
+}
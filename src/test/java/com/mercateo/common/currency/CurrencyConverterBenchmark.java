@@ -4,7 +4,12 @@ import org.openjdk.jmh.annotations.*;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static java.util.Arrays.asList;
 
@@ -27,6 +32,27 @@ public class CurrencyConverterBenchmark {
     private static final BigDecimal RATE_VALUE_EUR_TO_USD = new BigDecimal("1.09");
     private static final ExchangeRate RATE_USD_TO_EUR = moneyExchange.getExchangeRate(ConvertableCurrency.USD, ConvertableCurrency.EUR);
     private static final ExchangeRate RATE_GBP_TO_USD = moneyExchange.getExchangeRate(ConvertableCurrency.GBP, ConvertableCurrency.USD);
+    private static final ConvertableCurrency[] LOOKUP_CURRENCIES = {
+            ConvertableCurrency.EUR, ConvertableCurrency.HUF, ConvertableCurrency.GBP, ConvertableCurrency.USD };
+    private static final LazyRateLookup lazyLookup = new LazyRateLookup(asList(
+            new ExchangeRate(EUR_RATE, EUR_RATE), new ExchangeRate(EUR_RATE, HUF_RATE),
+            new ExchangeRate(EUR_RATE, GBP_RATE), new ExchangeRate(EUR_RATE, USD_RATE)));
+
+    private static final FrozenCurrencyConverter chainedExchange = new FrozenCurrencyConverter(asList(
+            new ExchangeRate(EUR_RATE, USD_RATE),
+            new ExchangeRate(new Money(BigDecimal.ONE, ConvertableCurrency.USD), new Money(new BigDecimal("0.9"), ConvertableCurrency.CHF)),
+            new ExchangeRate(new Money(BigDecimal.ONE, ConvertableCurrency.CHF), new Money(new BigDecimal("4.5"), ConvertableCurrency.PLN))));
+
+    private static final ExchangeRate CHANGED_USD_RATE = new ExchangeRate(EUR_RATE, new Money(new BigDecimal("1.10"), ConvertableCurrency.USD));
+    private static final List<ExchangeRate> ALL_CURRENCY_RATES = Stream.of(ConvertableCurrency.values())
+            .map(currency -> new ExchangeRate(EUR_RATE, new Money(BigDecimal.valueOf(100 + 37 * currency.ordinal(), 2), currency)))
+            .collect(Collectors.toList());
+    private static final List<ExchangeRate> CHANGED_ALL_CURRENCY_RATES = ALL_CURRENCY_RATES.stream()
+            .map(rate -> rate.getQuoteCurrency() == ConvertableCurrency.USD ? CHANGED_USD_RATE : rate)
+            .collect(Collectors.toList());
+    private static final FrozenCurrencyConverter allCurrencyExchange = new FrozenCurrencyConverter(ALL_CURRENCY_RATES);
+
+    private int lookupIndex;
 
     @Setup(Level.Iteration)
     public void setUp() {/**/}
@@ -44,6 +70,13 @@ public class CurrencyConverterBenchmark {
         return convertedPrice;
     }
 
+    @Benchmark
+    public Money moneyBigDecimalKernel_highPrecision() {
+        final Money price = new Money(new BigDecimal("3.12345"), ConvertableCurrency.GBP);
+        final Money convertedPrice = convertWithBigDecimal(RATE_GBP_TO_USD, price, DecimalPlacesStrategy.PROPORTIONAL, RoundingMode.HALF_EVEN);
+        return convertedPrice;
+    }
+
     @Benchmark
     public BigDecimal bigDecimal_highPrecision() {
         BigDecimal amount = new BigDecimal("3.12345");
@@ -65,10 +98,117 @@ public class CurrencyConverterBenchmark {
         return convertedPrice;
     }
 
+    @Benchmark
+    public Money moneyBigDecimalKernel_lowPrecision() {
+        final Money price = new Money(new BigDecimal("3.12"), ConvertableCurrency.EUR);
+        final Money convertedPrice = convertWithBigDecimal(RATE_USD_TO_EUR, price, DecimalPlacesStrategy.PROPORTIONAL, RoundingMode.HALF_EVEN);
+        return convertedPrice;
+    }
+
     @Benchmark
     public BigDecimal bigDecimal_lowPrecision() {
         BigDecimal amount = new BigDecimal("3.12");
         BigDecimal result = amount.multiply(RATE_VALUE_EUR_TO_USD).setScale(2, RoundingMode.HALF_EVEN);
         return result;
     }
-}
\ No newline at end of file
+
+    @Benchmark
+    @Threads(1)
+    public ExchangeRate lookup_lazy_1thread() {
+        return lookupLazy();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public ExchangeRate lookup_lazy_8threads() {
+        return lookupLazy();
+    }
+
+    @Benchmark
+    @Threads(32)
+    public ExchangeRate lookup_lazy_32threads() {
+        return lookupLazy();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public ExchangeRate lookup_eager_1thread() {
+        return lookupEager();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public ExchangeRate lookup_eager_8threads() {
+        return lookupEager();
+    }
+
+    @Benchmark
+    @Threads(32)
+    public ExchangeRate lookup_eager_32threads() {
+        return lookupEager();
+    }
+
+    @Benchmark
+    public Money routedConversion_1hop() {
+        return chainedExchange.convertToPrice(new Money(new BigDecimal("3.12"), ConvertableCurrency.EUR), ConvertableCurrency.USD);
+    }
+
+    @Benchmark
+    public Money routedConversion_2hops() {
+        return chainedExchange.convertToPrice(new Money(new BigDecimal("3.12"), ConvertableCurrency.EUR), ConvertableCurrency.CHF);
+    }
+
+    @Benchmark
+    public Money routedConversion_3hops() {
+        return chainedExchange.convertToPrice(new Money(new BigDecimal("3.12"), ConvertableCurrency.EUR), ConvertableCurrency.PLN);
+    }
+
+    @Benchmark
+    public FrozenCurrencyConverter rebuild_full() {
+        return new FrozenCurrencyConverter(CHANGED_ALL_CURRENCY_RATES);
+    }
+
+    @Benchmark
+    public FrozenCurrencyConverter rebuild_incremental() {
+        return allCurrencyExchange.withChangedRates(asList(CHANGED_USD_RATE));
+    }
+
+    /**
+     * Baseline replicating the former BigDecimal only {@link ExchangeRate#convert} kernel.
+     */
+    private static Money convertWithBigDecimal(ExchangeRate rate, Money from, DecimalPlacesStrategy decimalPlacesStrategy, RoundingMode roundingMode) {
+        Money rateValue = rate.getRateValue();
+        final int newScale = decimalPlacesStrategy.getRequiredScale(from, rateValue.getCurrency());
+        BigDecimal convertedAmount = from.getAmount().multiply(rateValue.getAmount());
+        return new Money(convertedAmount.setScale(newScale, roundingMode), rateValue.getCurrency());
+    }
+
+    private ExchangeRate lookupLazy() {
+        final int index = lookupIndex++ & 15;
+        return lazyLookup.getExchangeRate(LOOKUP_CURRENCIES[index >> 2], LOOKUP_CURRENCIES[index & 3]);
+    }
+
+    private ExchangeRate lookupEager() {
+        final int index = lookupIndex++ & 15;
+        return moneyExchange.getExchangeRate(LOOKUP_CURRENCIES[index >> 2], LOOKUP_CURRENCIES[index & 3]);
+    }
+
+    /**
+     * Baseline replicating the former lazily populated nested {@link EnumMap} lookup.
+     */
+    private static class LazyRateLookup {
+        private final EnumMap<ConvertableCurrency, ExchangeRate> directRates = new EnumMap<>(ConvertableCurrency.class);
+        private final EnumMap<ConvertableCurrency, EnumMap<ConvertableCurrency, ExchangeRate>> rates = new EnumMap<>(ConvertableCurrency.class);
+
+        LazyRateLookup(Collection<ExchangeRate> rateCollection) {
+            rateCollection.forEach(rate -> directRates.put(rate.getQuoteCurrency(), rate));
+        }
+
+        ExchangeRate getExchangeRate(ConvertableCurrency fromCurrency, ConvertableCurrency toCurrency) {
+            return rates.computeIfAbsent(fromCurrency, x -> new EnumMap<>(ConvertableCurrency.class))
+                    .computeIfAbsent(toCurrency, x -> fromCurrency == toCurrency
+                            ? ExchangeRate.identity(fromCurrency)
+                            : directRates.get(toCurrency).withBase(directRates.get(fromCurrency)));
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.mercateo.common.currency;
+
+import static com.mercateo.common.currency.ConvertableCurrency.EUR;
+import static com.mercateo.common.currency.ConvertableCurrency.USD;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import org.junit.Test;
+
+public class CurrencyConverterSnapshotTest {
+
+    private final CurrencyConverter mockConverter = mock(CurrencyConverter.class);
+    private final CurrencyConverterSnapshot uut = new CurrencyConverterSnapshot(42, mockConverter);
+
+    private final Money eurAmount = new Money(new BigDecimal("100.00"), EUR);
+    private final Money usdAmount = new Money(new BigDecimal("109.00"), USD);
+
+    @Test
+    public void exposesVersionAndConverter() throws Exception {
+        assertThat(uut.getVersion()).isEqualTo(42);
+        assertThat(uut.getConverter()).isSameAs(mockConverter);
+    }
+
+    @Test
+    public void convertToPrice_delegatesToPinnedConverter() throws Exception {
+        when(mockConverter.convertToPrice(eurAmount, USD)).thenReturn(usdAmount);
+
+        Money result = uut.convertToPrice(eurAmount, USD);
+
+        assertThat(result).isEqualTo(usdAmount);
+        verify(mockConverter).convertToPrice(eurAmount, USD);
+        verifyNoMoreInteractions(mockConverter);
+    }
+
+    @Test
+    public void convert_delegatesToPinnedConverter() throws Exception {
+        when(mockConverter.convert(eurAmount, USD, DecimalPlacesStrategy.TO_PRICE, RoundingMode.HALF_UP)).thenReturn(usdAmount);
+
+        Money result = uut.convert(eurAmount, USD, DecimalPlacesStrategy.TO_PRICE, RoundingMode.HALF_UP);
+
+        assertThat(result).isEqualTo(usdAmount);
+        verify(mockConverter).convert(eurAmount, USD, DecimalPlacesStrategy.TO_PRICE, RoundingMode.HALF_UP);
+        verifyNoMoreInteractions(mockConverter);
+    }
+
+    @Test
+    public void convertAll_delegatesToPinnedConverter() throws Exception {
+        long[] amounts = { 100 };
+        long[] convertedAmounts = new long[1];
+        when(mockConverter.convertAll(amounts, 2, EUR, USD, DecimalPlacesStrategy.TO_PRICE, RoundingMode.HALF_EVEN, convertedAmounts)).thenReturn(2);
+
+        int scale = uut.convertAll(amounts, 2, EUR, USD, DecimalPlacesStrategy.TO_PRICE, RoundingMode.HALF_EVEN, convertedAmounts);
+
+        assertThat(scale).isEqualTo(2);
+        verify(mockConverter).convertAll(amounts, 2, EUR, USD, DecimalPlacesStrategy.TO_PRICE, RoundingMode.HALF_EVEN, convertedAmounts);
+        verifyNoMoreInteractions(mockConverter);
+    }
+}
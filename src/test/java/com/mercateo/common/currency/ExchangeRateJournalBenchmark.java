@@ -0,0 +1,82 @@
+package com.mercateo.common.currency;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Measures replaying a day of rate changes, one change of two currencies every ten seconds,
+ * onto a converter of all currencies, and appending a change.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Fork(value = 3, warmups = 1)
+@Measurement(iterations = 5, time = 4, timeUnit = TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 4, timeUnit = TimeUnit.SECONDS)
+public class ExchangeRateJournalBenchmark {
+    private static final int CHANGES_PER_DAY = 8_640;
+    private static final ConvertableCurrency[] CURRENCIES = ConvertableCurrency.values();
+    private static final Money ONE_EUR = new Money(BigDecimal.ONE, ConvertableCurrency.EUR);
+    private static final List<ExchangeRate> ALL_CURRENCY_RATES = Stream.of(CURRENCIES)
+            .map(currency -> new ExchangeRate(ONE_EUR, new Money(BigDecimal.valueOf(100_000 + 3_737 * currency.ordinal(), 5), currency)))
+            .collect(Collectors.toList());
+
+    private FrozenCurrencyConverter snapshot;
+    private Path replayPath;
+    private ExchangeRateJournal replayJournal;
+    private Path appendPath;
+    private ExchangeRateJournal appendJournal;
+    private List<ExchangeRate> change;
+
+    @Setup
+    public void setUp() throws IOException {
+        snapshot = new FrozenCurrencyConverter(ALL_CURRENCY_RATES);
+        final Random random = new Random(42);
+        replayPath = Files.createTempFile("rates", ".journal");
+        Files.delete(replayPath);
+        try (ExchangeRateJournal journal = ExchangeRateJournal.open(replayPath)) {
+            for (int i = 0; i < CHANGES_PER_DAY; i++)
+                journal.append(List.of(randomRate(random), randomRate(random)));
+        }
+        replayJournal = ExchangeRateJournal.open(replayPath);
+        appendPath = Files.createTempFile("rates", ".journal");
+        Files.delete(appendPath);
+        appendJournal = ExchangeRateJournal.open(appendPath);
+        change = List.of(randomRate(random), randomRate(random));
+    }
+
+    private static ExchangeRate randomRate(Random random) {
+        final ConvertableCurrency currency = CURRENCIES[1 + random.nextInt(CURRENCIES.length - 1)];
+        return new ExchangeRate(ONE_EUR, new Money(BigDecimal.valueOf(100_000 + random.nextInt(1_000_000), 5), currency));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        replayJournal.close();
+        appendJournal.close();
+        Files.delete(replayPath);
+        Files.delete(appendPath);
+    }
+
+    @Benchmark
+    public FrozenCurrencyConverter replayDay() throws IOException {
+        return replayJournal.replay(snapshot, 0);
+    }
+
+    @Benchmark
+    public long append() throws IOException {
+        final long sequence = appendJournal.append(change);
+        if(sequence % 1_000 == 0)
+            appendJournal.sync();
+        return sequence;
+    }
+}
@@ -0,0 +1,450 @@
+package com.mercateo.common.currency;
+
+import static com.mercateo.common.currency.ConvertableCurrency.CHF;
+import static com.mercateo.common.currency.ConvertableCurrency.EUR;
+import static com.mercateo.common.currency.ConvertableCurrency.GBP;
+import static com.mercateo.common.currency.ConvertableCurrency.PLN;
+import static com.mercateo.common.currency.ConvertableCurrency.USD;
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ExchangeRateJournalTest {
+    private static final Money ONE_EUR = new Money(BigDecimal.ONE, EUR);
+
+    private static final FrozenCurrencyConverter snapshot = new FrozenCurrencyConverter(asList(
+            eurRate("1.09", USD), eurRate("0.84", GBP), eurRate("0.95", CHF)));
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private static ExchangeRate eurRate(String quoteAmount, ConvertableCurrency quoteCurrency) {
+        return new ExchangeRate(ONE_EUR, new Money(new BigDecimal(quoteAmount), quoteCurrency));
+    }
+
+    private Path journalPath() {
+        return temporaryFolder.getRoot().toPath().resolve("rates.journal");
+    }
+
+    @Test
+    public void replaysAppliedChangesOntoSnapshot() throws Exception {
+        final UpdateableCurrencyConverter converter = new UpdateableCurrencyConverter(snapshot);
+        try (ExchangeRateJournal journal = ExchangeRateJournal.open(journalPath())) {
+            assertThat(journal.apply(converter, asList(eurRate("1.10", USD)))).isEqualTo(1);
+            assertThat(journal.apply(converter, asList(eurRate("4.30", PLN), eurRate("0.85", GBP)))).isEqualTo(2);
+            assertThat(journal.apply(converter, asList(eurRate("1.11", USD)))).isEqualTo(3);
+        }
+
+        try (ExchangeRateJournal journal = ExchangeRateJournal.open(journalPath())) {
+            final FrozenCurrencyConverter replayed = journal.replay(snapshot, 0);
+
+            assertThat(journal.getLastSequence()).isEqualTo(3);
+            assertThat(replayed.getDirectRates()).isEqualTo(((FrozenCurrencyConverter) converter.snapshot().getConverter()).getDirectRates());
+            assertThat(replayed.getExchangeRate(USD, PLN).getRateValue()).isEqualTo(converter.getExchangeRate(USD, PLN).getRateValue());
+        }
+    }
+
+    @Test
+    public void appliesChangesOntoConverterActivatedMeanwhile() throws Exception {
+        final Clock clock = mock(Clock.class);
+        when(clock.millis()).thenReturn(0L);
+        final UpdateableCurrencyConverter converter = new UpdateableCurrencyConverter(snapshot, 1, clock);
+        converter.schedule(snapshot.withChangedRates(asList(eurRate("0.90", GBP))), Instant.ofEpochMilli(1000));
+        try (ExchangeRateJournal journal = ExchangeRateJournal.open(journalPath())) {
+            when(clock.millis()).thenReturn(1000L);
+
+            journal.apply(converter, asList(eurRate("1.10", USD)));
+        }
+
+        assertThat(converter.snapshot().getVersion()).isEqualTo(3);
+        assertThat(converter.getExchangeRate(EUR, GBP)).isEqualTo(eurRate("0.90", GBP));
+        assertThat(converter.getExchangeRate(EUR, USD)).isEqualTo(eurRate("1.10", USD));
+    }
+
+    @Test
+    public void replaysOnlyChangesAfterSnapshotVersion() throws Exception {
+        try (ExchangeRateJournal journal = ExchangeRateJournal.open(journalPath())) {
+            journal.append(asList(eurRate("1.10", USD)));
+            journal.append(asList(eurRate("0.85", GBP)));
+        }
+
+        try (ExchangeRateJournal journal = ExchangeRateJournal.open(journalPath())) {
+            final FrozenCurrencyConverter replayed = journal.replay(snapshot, 1);
+
+            assertThat(replayed.getExchangeRate(EUR, USD)).isEqualTo(eurRate("1.09", USD));
+            assertThat(replayed.getExchangeRate(EUR, GBP)).isEqualTo(eurRate("0.85", GBP));
+        }
+    }
+
+    @Test
+    public void writesAppendedChangesOnSync() throws Exception {
+        try (ExchangeRateJournal journal = ExchangeRateJournal.open(journalPath())) {
+            journal.append(asList(eurRate("1.10", USD)));
+            final long sizeBeforeSync = Files.size(journalPath());
+            assertThat(journal.getSyncedSequence()).isZero();
+
+            journal.sync();
+
+            assertThat(journal.getSyncedSequence()).isEqualTo(1);
+            assertThat(Files.size(journalPath())).isGreaterThan(sizeBeforeSync);
+            assertThat(journal.replay(snapshot, 0).getExchangeRate(EUR, USD)).isEqualTo(eurRate("1.10", USD));
+        }
+    }
+
+    @Test
+    public void writesChangesOfFailedSyncOnNextSync() throws Exception {
+        ExchangeRateJournal.open(journalPath()).close();
+        final FailingFileChannel channel = new FailingFileChannel(
+                FileChannel.open(journalPath(), StandardOpenOption.READ, StandardOpenOption.WRITE));
+        try (ExchangeRateJournal journal = ExchangeRateJournal.open(journalPath(), channel)) {
+            journal.append(asList(eurRate("1.10", USD)));
+            channel.failing = true;
+
+            assertThatThrownBy(journal::sync).isInstanceOf(IOException.class);
+
+            assertThat(journal.getSyncedSequence()).isZero();
+            journal.append(asList(eurRate("0.85", GBP)));
+            assertThatThrownBy(journal::sync).isInstanceOf(IOException.class);
+            channel.failing = false;
+            journal.append(asList(eurRate("4.30", PLN)));
+            journal.sync();
+
+            assertThat(journal.getSyncedSequence()).isEqualTo(3);
+        }
+
+        try (ExchangeRateJournal journal = ExchangeRateJournal.open(journalPath())) {
+            final FrozenCurrencyConverter replayed = journal.replay(snapshot, 0);
+
+            assertThat(journal.getLastSequence()).isEqualTo(3);
+            assertThat(replayed.getExchangeRate(EUR, USD)).isEqualTo(eurRate("1.10", USD));
+            assertThat(replayed.getExchangeRate(EUR, GBP)).isEqualTo(eurRate("0.85", GBP));
+            assertThat(replayed.getExchangeRate(EUR, PLN)).isEqualTo(eurRate("4.30", PLN));
+        }
+    }
+
+    @Test
+    public void dropsTornTail() throws Exception {
+        try (ExchangeRateJournal journal = ExchangeRateJournal.open(journalPath())) {
+            journal.append(asList(eurRate("1.10", USD)));
+            journal.append(asList(eurRate("0.85", GBP)));
+        }
+        final byte[] bytes = Files.readAllBytes(journalPath());
+        Files.write(journalPath(), Arrays.copyOf(bytes, bytes.length - 3));
+
+        try (ExchangeRateJournal journal = ExchangeRateJournal.open(journalPath())) {
+            assertThat(journal.getLastSequence()).isEqualTo(1);
+            assertThat(journal.append(asList(eurRate("4.30", PLN)))).isEqualTo(2);
+        }
+
+        try (ExchangeRateJournal journal = ExchangeRateJournal.open(journalPath())) {
+            final FrozenCurrencyConverter replayed = journal.replay(snapshot, 0);
+
+            assertThat(replayed.getExchangeRate(EUR, USD)).isEqualTo(eurRate("1.10", USD));
+            assertThat(replayed.getExchangeRate(EUR, GBP)).isEqualTo(eurRate("0.84", GBP));
+            assertThat(replayed.getExchangeRate(EUR, PLN)).isEqualTo(eurRate("4.30", PLN));
+        }
+    }
+
+    @Test
+    public void dropsCorruptRecordAndAllAfterIt() throws Exception {
+        try (ExchangeRateJournal journal = ExchangeRateJournal.open(journalPath())) {
+            journal.append(asList(eurRate("1.10", USD)));
+            journal.sync();
+            journal.append(asList(eurRate("0.85", GBP)));
+            journal.append(asList(eurRate("4.30", PLN)));
+        }
+        final byte[] bytes = Files.readAllBytes(journalPath());
+        final int secondRecord = ExchangeRateJournal.HEADER_SIZE + ExchangeRateJournal.RECORD_HEADER_SIZE
+                + ((bytes[ExchangeRateJournal.HEADER_SIZE + 2] & 0xFF) << 8 | bytes[ExchangeRateJournal.HEADER_SIZE + 3] & 0xFF);
+        bytes[secondRecord + ExchangeRateJournal.RECORD_HEADER_SIZE + 3] ^= 1;
+        Files.write(journalPath(), bytes);
+
+        try (ExchangeRateJournal journal = ExchangeRateJournal.open(journalPath())) {
+            assertThat(journal.getLastSequence()).isEqualTo(1);
+            assertThat(Files.size(journalPath())).isEqualTo(secondRecord);
+        }
+    }
+
+    @Test
+    public void continuesAfterSnapshotVersion() throws Exception {
+        final UpdateableCurrencyConverter converter = new UpdateableCurrencyConverter(snapshot);
+        try (ExchangeRateJournal journal = ExchangeRateJournal.open(journalPath())) {
+            journal.replay(snapshot, 7);
+
+            assertThat(journal.apply(converter, asList(eurRate("1.10", USD)))).isEqualTo(8);
+        }
+    }
+
+    @Test
+    public void rejectsJournalStartingAfterSnapshotVersion() throws Exception {
+        try (ExchangeRateJournal journal = ExchangeRateJournal.create(journalPath(), 10)) {
+            assertThatThrownBy(() -> journal.replay(snapshot, 5))
+                    .isInstanceOf(IOException.class)
+                    .hasMessageContaining("missing changes after snapshot version 5");
+        }
+    }
+
+    @Test
+    public void rejectsOtherFiles() throws Exception {
+        Files.write(journalPath(), "{\"rates\":[]} is a JSON document, not a journal".getBytes());
+
+        assertThatThrownBy(() -> ExchangeRateJournal.open(journalPath()))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("No exchange rate journal");
+    }
+
+    @Test
+    public void doesNotJournalConflictingChanges() throws Exception {
+        final UpdateableCurrencyConverter converter = new UpdateableCurrencyConverter(snapshot);
+        try (ExchangeRateJournal journal = ExchangeRateJournal.open(journalPath())) {
+            assertThatThrownBy(() -> journal.apply(converter, asList(eurRate("1.10", USD), eurRate("1.11", USD))))
+                    .isInstanceOf(IllegalStateException.class);
+
+            assertThat(journal.getLastSequence()).isZero();
+            assertThat(converter.snapshot().getVersion()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    public void restoresSnapshotWrittenFromJournal() throws Exception {
+        final Path snapshotPath = temporaryFolder.getRoot().toPath().resolve("converter.snapshot");
+        final UpdateableCurrencyConverter converter = new UpdateableCurrencyConverter(snapshot);
+        try (ExchangeRateJournal journal = ExchangeRateJournal.open(journalPath())) {
+            journal.apply(converter, asList(eurRate("1.10", USD)));
+            journal.writeSnapshot(snapshotPath, converter, Instant.now());
+            journal.apply(converter, Collections.singletonList(eurRate("0.85", GBP)));
+        }
+
+        final ConverterSnapshotFile snapshotFile = ConverterSnapshotFile.read(snapshotPath);
+        try (ExchangeRateJournal journal = ExchangeRateJournal.open(journalPath())) {
+            final FrozenCurrencyConverter replayed = journal.replay(snapshotFile.getConverter(), snapshotFile.getVersion());
+
+            assertThat(snapshotFile.getVersion()).isEqualTo(1);
+            assertThat(replayed.getExchangeRate(EUR, USD)).isEqualTo(eurRate("1.10", USD));
+            assertThat(replayed.getExchangeRate(EUR, GBP)).isEqualTo(eurRate("0.85", GBP));
+        }
+    }
+
+    @Test
+    public void keepsOnlyChangesAfterWrittenSnapshot() throws Exception {
+        final Path snapshotPath = temporaryFolder.getRoot().toPath().resolve("converter.snapshot");
+        final UpdateableCurrencyConverter converter = new UpdateableCurrencyConverter(snapshot);
+        try (ExchangeRateJournal journal = ExchangeRateJournal.open(journalPath())) {
+            for (int i = 0; i < 100; i++)
+                journal.apply(converter, asList(eurRate("1." + (10 + i), USD)));
+            journal.apply(converter, asList(eurRate("4.30", PLN)));
+            journal.sync();
+            final long sizeBeforeSnapshot = Files.size(journalPath());
+
+            journal.writeSnapshot(snapshotPath, converter, Instant.now());
+            journal.apply(converter, asList(eurRate("0.85", GBP)));
+            journal.sync();
+
+            assertThat(Files.size(journalPath())).isLessThan(sizeBeforeSnapshot / 10);
+            assertThat(temporaryFolder.getRoot().list()).containsExactlyInAnyOrder("rates.journal", "converter.snapshot");
+        }
+
+        final ConverterSnapshotFile snapshotFile = ConverterSnapshotFile.read(snapshotPath);
+        try (ExchangeRateJournal journal = ExchangeRateJournal.open(journalPath())) {
+            final FrozenCurrencyConverter replayed = journal.replay(snapshotFile.getConverter(), snapshotFile.getVersion());
+
+            assertThat(snapshotFile.getVersion()).isEqualTo(101);
+            assertThat(journal.getLastSequence()).isEqualTo(102);
+            assertThat(replayed.getDirectRates()).isEqualTo(((FrozenCurrencyConverter) converter.snapshot().getConverter()).getDirectRates());
+            assertThatThrownBy(() -> journal.replay(snapshot, 0))
+                    .isInstanceOf(IOException.class)
+                    .hasMessageContaining("missing changes after snapshot version 0");
+        }
+    }
+
+    @Test
+    public void compactsJournalOnlyAfterSnapshotIsDurable() throws Exception {
+        final Path journalPath = temporaryFolder.newFolder("journal").toPath().resolve("rates.journal");
+        final Path snapshotPath = temporaryFolder.newFolder("snapshot").toPath().resolve("converter.snapshot");
+        final UpdateableCurrencyConverter converter = new UpdateableCurrencyConverter(snapshot);
+        final List<String> forcedDirectories = new ArrayList<>();
+        try (ExchangeRateJournal journal = ExchangeRateJournal.open(journalPath)) {
+            journal.directoryForce = directory -> {
+                forcedDirectories.add(directory.getFileName() + " with journal starting after " + baseSequence(journalPath));
+                ConverterSnapshotFile.forceDirectory(directory);
+            };
+            journal.apply(converter, asList(eurRate("1.10", USD)));
+
+            journal.writeSnapshot(snapshotPath, converter, Instant.now());
+        }
+
+        assertThat(forcedDirectories).containsExactly("snapshot with journal starting after 0", "journal with journal starting after 1");
+    }
+
+    @Test
+    public void keepsJournalIfSnapshotIsNotDurable() throws Exception {
+        final Path snapshotPath = temporaryFolder.getRoot().toPath().resolve("converter.snapshot");
+        final UpdateableCurrencyConverter converter = new UpdateableCurrencyConverter(snapshot);
+        try (ExchangeRateJournal journal = ExchangeRateJournal.open(journalPath())) {
+            journal.directoryForce = directory -> {
+                throw new IOException("Input/output error");
+            };
+            journal.apply(converter, asList(eurRate("1.10", USD)));
+
+            assertThatThrownBy(() -> journal.writeSnapshot(snapshotPath, converter, Instant.now()))
+                    .isInstanceOf(IOException.class);
+            journal.apply(converter, asList(eurRate("0.85", GBP)));
+        }
+
+        assertThat(baseSequence(journalPath())).isZero();
+        try (ExchangeRateJournal journal = ExchangeRateJournal.open(journalPath())) {
+            final FrozenCurrencyConverter replayed = journal.replay(snapshot, 0);
+
+            assertThat(replayed.getExchangeRate(EUR, USD)).isEqualTo(eurRate("1.10", USD));
+            assertThat(replayed.getExchangeRate(EUR, GBP)).isEqualTo(eurRate("0.85", GBP));
+        }
+    }
+
+    private static long baseSequence(Path journalPath) throws IOException {
+        return ByteBuffer.wrap(Files.readAllBytes(journalPath)).getLong(12);
+    }
+
+    @Test
+    public void replaysChangeOfPairInOppositeDirection() throws Exception {
+        final UpdateableCurrencyConverter converter = new UpdateableCurrencyConverter(snapshot);
+        try (ExchangeRateJournal journal = ExchangeRateJournal.open(journalPath())) {
+            journal.apply(converter, asList(eurRate("1.10", USD)));
+            journal.apply(converter, asList(new ExchangeRate(new Money(BigDecimal.ONE, USD), new Money(new BigDecimal("0.92"), EUR))));
+        }
+
+        try (ExchangeRateJournal journal = ExchangeRateJournal.open(journalPath())) {
+            final FrozenCurrencyConverter replayed = journal.replay(snapshot, 0);
+
+            assertThat(replayed.getDirectRates()).isEqualTo(((FrozenCurrencyConverter) converter.snapshot().getConverter()).getDirectRates());
+            assertThat(replayed.getExchangeRate(USD, EUR).getRateValue()).isEqualTo(converter.getExchangeRate(USD, EUR).getRateValue());
+        }
+    }
+
+    /**
+     * A file channel that writes only part of a buffer and then fails while {@link #failing} is set.
+     */
+    private static class FailingFileChannel extends FileChannel {
+        private final FileChannel channel;
+        volatile boolean failing;
+
+        FailingFileChannel(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public int write(ByteBuffer src, long position) throws IOException {
+            if(!failing)
+                return channel.write(src, position);
+            final ByteBuffer part = src.duplicate();
+            part.limit(part.position() + part.remaining() / 2);
+            channel.write(part, position);
+            throw new IOException("No space left on device");
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            return channel.read(dst);
+        }
+
+        @Override
+        public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+            return channel.read(dsts, offset, length);
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            return channel.write(src);
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+            return channel.write(srcs, offset, length);
+        }
+
+        @Override
+        public long position() throws IOException {
+            return channel.position();
+        }
+
+        @Override
+        public FileChannel position(long newPosition) throws IOException {
+            channel.position(newPosition);
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException {
+            return channel.size();
+        }
+
+        @Override
+        public FileChannel truncate(long size) throws IOException {
+            channel.truncate(size);
+            return this;
+        }
+
+        @Override
+        public void force(boolean metaData) throws IOException {
+            channel.force(metaData);
+        }
+
+        @Override
+        public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+            return channel.transferTo(position, count, target);
+        }
+
+        @Override
+        public long transferFrom(ReadableByteChannel src, long position, long count) throws IOException {
+            return channel.transferFrom(src, position, count);
+        }
+
+        @Override
+        public int read(ByteBuffer dst, long position) throws IOException {
+            return channel.read(dst, position);
+        }
+
+        @Override
+        public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
+            return channel.map(mode, position, size);
+        }
+
+        @Override
+        public FileLock lock(long position, long size, boolean shared) throws IOException {
+            return channel.lock(position, size, shared);
+        }
+
+        @Override
+        public FileLock tryLock(long position, long size, boolean shared) throws IOException {
+            return channel.tryLock(position, size, shared);
+        }
+
+        @Override
+        protected void implCloseChannel() throws IOException {
+            channel.close();
+        }
+    }
+}
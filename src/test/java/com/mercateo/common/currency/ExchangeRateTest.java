@@ -0,0 +1,102 @@
+package com.mercateo.common.currency;
+
+import static com.mercateo.common.currency.ConvertableCurrency.EUR;
+import static com.mercateo.common.currency.ConvertableCurrency.GBP;
+import static com.mercateo.common.currency.ConvertableCurrency.HUF;
+import static com.mercateo.common.currency.ConvertableCurrency.USD;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import org.junit.Test;
+
+public class ExchangeRateTest {
+    private static final Money EUR_RATE = new Money(BigDecimal.ONE, EUR);
+
+    @Test
+    public void computesRateValueAtConstruction() throws Exception {
+        ExchangeRate uut = new ExchangeRate(new Money(new BigDecimal("0.84"), GBP), new Money(new BigDecimal("1.09"), USD));
+
+        assertThat(uut.getRateValue()).isEqualTo(new Money(new BigDecimal("1.2976190476"), USD));
+        assertThat(uut.getRateValue()).isSameAs(uut.getRateValue());
+    }
+
+    @Test
+    public void exposesCompactRate() throws Exception {
+        ExchangeRate uut = new ExchangeRate(new Money(new BigDecimal("0.84"), GBP), new Money(new BigDecimal("1.09"), USD));
+
+        assertThat(uut.hasCompactRate()).isTrue();
+        assertThat(uut.getRateUnscaledValue()).isEqualTo(12976190476L);
+        assertThat(uut.getRateScale()).isEqualTo(10);
+    }
+
+    @Test
+    public void exposesCompactRateWithNegativeScale() throws Exception {
+        ExchangeRate uut = new ExchangeRate(EUR_RATE, new Money(new BigDecimal("400"), HUF));
+
+        assertThat(uut.hasCompactRate()).isTrue();
+        assertThat(uut.getRateUnscaledValue()).isEqualTo(4L);
+        assertThat(uut.getRateScale()).isEqualTo(-2);
+    }
+
+    @Test
+    public void detectsRateExceedingLongRange() throws Exception {
+        ExchangeRate uut = new ExchangeRate(EUR_RATE, new Money(new BigDecimal("12345678901234567890.5"), HUF));
+
+        assertThat(uut.hasCompactRate()).isFalse();
+        assertThat(uut.getRateValue().getAmount()).isEqualTo(new BigDecimal("12345678901234567890.5"));
+    }
+
+    @Test
+    public void convertsAmountsExceedingLongRange() throws Exception {
+        ExchangeRate uut = new ExchangeRate(EUR_RATE, new Money(new BigDecimal("1.09"), USD));
+        Money amount = new Money(new BigDecimal("98765432109876543210.125"), EUR);
+
+        Money converted = uut.convert(amount, DecimalPlacesStrategy.PROPORTIONAL, RoundingMode.HALF_EVEN);
+
+        assertThat(converted).isEqualTo(new Money(new BigDecimal("107654320999765432099.036"), USD));
+    }
+
+    @Test
+    public void convertsWithNegativeResultScale() throws Exception {
+        ExchangeRate uut = new ExchangeRate(EUR_RATE, new Money(new BigDecimal("400"), HUF));
+        Money amount = new Money(new BigDecimal("1"), EUR);
+
+        Money converted = uut.convert(amount, DecimalPlacesStrategy.PROPORTIONAL, RoundingMode.UP);
+
+        assertThat(converted).isEqualTo(new Money(new BigDecimal("4E+2"), HUF));
+    }
+
+    @Test
+    public void composesRatesSharingIntermediateValue() throws Exception {
+        Money usdValue = new Money(new BigDecimal("1.09"), USD);
+        ExchangeRate usdToEur = new ExchangeRate(usdValue, EUR_RATE);
+        ExchangeRate eurToGbp = new ExchangeRate(EUR_RATE, new Money(new BigDecimal("0.84"), GBP));
+
+        ExchangeRate composed = usdToEur.compose(eurToGbp);
+
+        assertThat(composed).isEqualTo(new ExchangeRate(usdValue, new Money(new BigDecimal("0.84"), GBP)));
+    }
+
+    @Test
+    public void composesRatesExactly() throws Exception {
+        ExchangeRate eurToUsd = new ExchangeRate(EUR_RATE, new Money(new BigDecimal("1.09"), USD));
+        ExchangeRate usdToHuf = new ExchangeRate(new Money(new BigDecimal("3"), USD), new Money(new BigDecimal("1100"), HUF));
+
+        ExchangeRate composed = eurToUsd.compose(usdToHuf);
+
+        assertThat(composed.getBaseCurrency()).isEqualTo(EUR);
+        assertThat(composed.getQuoteCurrency()).isEqualTo(HUF);
+        assertThat(composed.getRateValue().getAmount()).isEqualByComparingTo(new BigDecimal("399.6666666667"));
+    }
+
+    @Test
+    public void failsToComposeUnchainedRates() throws Exception {
+        ExchangeRate eurToUsd = new ExchangeRate(EUR_RATE, new Money(new BigDecimal("1.09"), USD));
+
+        assertThatThrownBy(() -> eurToUsd.compose(eurToUsd))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,106 @@
+package com.mercateo.common.currency;
+
+import static com.mercateo.common.currency.ConvertableCurrency.EUR;
+import static com.mercateo.common.currency.ConvertableCurrency.GBP;
+import static com.mercateo.common.currency.ConvertableCurrency.HUF;
+import static com.mercateo.common.currency.ConvertableCurrency.MXN;
+import static com.mercateo.common.currency.ConvertableCurrency.USD;
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import org.junit.Test;
+
+public class FastMoneyTest {
+    private static final Money EUR_RATE = new Money(BigDecimal.ONE, EUR);
+    private static final FrozenCurrencyConverter converter = new FrozenCurrencyConverter(asList(
+            new ExchangeRate(EUR_RATE, new Money(new BigDecimal("400"), HUF)),
+            new ExchangeRate(EUR_RATE, new Money(new BigDecimal("0.84"), GBP)),
+            new ExchangeRate(EUR_RATE, new Money(new BigDecimal("1.09"), USD))));
+
+    @Test
+    public void packsAllCurrencies() throws Exception {
+        assertThat(ConvertableCurrency.values().length).isLessThanOrEqualTo(1 << FastMoney.CURRENCY_BITS);
+        for (ConvertableCurrency currency : ConvertableCurrency.values()) {
+            long fastMoney = FastMoney.of(-12345, 2, currency);
+
+            assertThat(FastMoney.getCurrency(fastMoney)).isEqualTo(currency);
+            assertThat(FastMoney.getScale(fastMoney)).isEqualTo(2);
+            assertThat(FastMoney.getUnscaledAmount(fastMoney)).isEqualTo(-12345);
+        }
+    }
+
+    @Test
+    public void roundTripsMoney() throws Exception {
+        Money money = new Money(new BigDecimal("99.99"), MXN);
+
+        assertThat(FastMoney.toMoney(FastMoney.of(money))).isEqualTo(money);
+    }
+
+    @Test
+    public void roundTripsRangeLimits() throws Exception {
+        long max = FastMoney.of(FastMoney.MAX_UNSCALED_AMOUNT, FastMoney.MAX_SCALE, MXN);
+        long min = FastMoney.of(FastMoney.MIN_UNSCALED_AMOUNT, 0, EUR);
+
+        assertThat(FastMoney.getUnscaledAmount(max)).isEqualTo(FastMoney.MAX_UNSCALED_AMOUNT);
+        assertThat(FastMoney.getScale(max)).isEqualTo(FastMoney.MAX_SCALE);
+        assertThat(FastMoney.getCurrency(max)).isEqualTo(MXN);
+        assertThat(FastMoney.getUnscaledAmount(min)).isEqualTo(FastMoney.MIN_UNSCALED_AMOUNT);
+        assertThat(FastMoney.getCurrency(min)).isEqualTo(EUR);
+    }
+
+    @Test
+    public void normalizesNegativeScale() throws Exception {
+        long fastMoney = FastMoney.of(new Money(new BigDecimal("4E+2"), HUF));
+
+        assertThat(FastMoney.getAmount(fastMoney)).isEqualTo(new BigDecimal("400"));
+    }
+
+    @Test
+    public void rejectsAmountsOutOfRange() throws Exception {
+        assertThat(FastMoney.isRepresentable(new Money(new BigDecimal("12345678901234567"), EUR))).isFalse();
+        assertThat(FastMoney.isRepresentable(new Money(new BigDecimal("1E-32"), EUR))).isFalse();
+        assertThatThrownBy(() -> FastMoney.of(FastMoney.MAX_UNSCALED_AMOUNT + 1, 0, EUR))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void convertsLikeMoney() throws Exception {
+        Money price = new Money(new BigDecimal("3.12345"), GBP);
+        long fastMoney = FastMoney.of(price);
+
+        assertThat(FastMoney.toMoney(FastMoney.convertToPrice(fastMoney, USD, converter)))
+            .isEqualTo(converter.convertToPrice(price, USD));
+        assertThat(FastMoney.toMoney(FastMoney.convertProportionally(fastMoney, USD, converter)))
+            .isEqualTo(converter.convertProportionally(price, USD));
+        assertThat(FastMoney.toMoney(FastMoney.convert(fastMoney, HUF, converter, DecimalPlacesStrategy.TO_PRICE, RoundingMode.UP)))
+            .isEqualTo(converter.convert(price, HUF, DecimalPlacesStrategy.TO_PRICE, RoundingMode.UP));
+    }
+
+    @Test
+    public void convertsToSameCurrency() throws Exception {
+        long fastMoney = FastMoney.of(new Money(new BigDecimal("1.0101"), USD));
+
+        assertThat(FastMoney.toMoney(FastMoney.convertToPrice(fastMoney, USD, converter)))
+            .isEqualTo(new Money(new BigDecimal("1.01"), USD));
+    }
+
+    @Test
+    public void failsOnConvertedAmountOutOfRange() throws Exception {
+        long fastMoney = FastMoney.of(FastMoney.MAX_UNSCALED_AMOUNT, 0, EUR);
+
+        assertThatThrownBy(() -> FastMoney.convertToPrice(fastMoney, HUF, converter))
+            .isInstanceOf(ArithmeticException.class);
+    }
+
+    @Test
+    public void failsOnUnknownExchangeRates() throws Exception {
+        long fastMoney = FastMoney.of(new Money(BigDecimal.ONE, EUR));
+
+        assertThatThrownBy(() -> FastMoney.convertToPrice(fastMoney, MXN, converter))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,152 @@
+package com.mercateo.common.currency;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.tngtech.java.junit.dataprovider.DataProvider;
+import com.tngtech.java.junit.dataprovider.DataProviderRunner;
+import com.tngtech.java.junit.dataprovider.UseDataProvider;
+
+@RunWith(DataProviderRunner.class)
+public class FixedPointTest {
+
+    @DataProvider
+    public static Object[][] roundingModes() {
+        RoundingMode[] roundingModes = { RoundingMode.UP, RoundingMode.DOWN, RoundingMode.CEILING,
+                RoundingMode.FLOOR, RoundingMode.HALF_UP, RoundingMode.HALF_DOWN, RoundingMode.HALF_EVEN };
+        Object[][] data = new Object[roundingModes.length][];
+        for (int i = 0; i < roundingModes.length; i++)
+            data[i] = new Object[] { roundingModes[i] };
+        return data;
+    }
+
+    @Test
+    @UseDataProvider("roundingModes")
+    public void multiply_matchesBigDecimal(RoundingMode roundingMode) throws Exception {
+        Random random = new Random(4217);
+        for (int i = 0; i < 100_000; i++) {
+            long amount = random.nextLong() >> random.nextInt(64);
+            int amountScale = random.nextInt(10) - 2;
+            long rate = random.nextLong() >> random.nextInt(64);
+            int rateScale = random.nextInt(14) - 3;
+            int newScale = random.nextInt(10) - 3;
+
+            long result = FixedPoint.multiply(amount, amountScale, rate, rateScale, newScale, roundingMode);
+
+            BigDecimal product = BigDecimal.valueOf(amount, amountScale).multiply(BigDecimal.valueOf(rate, rateScale));
+            BigDecimal expected = product.setScale(newScale, roundingMode);
+            if(result == FixedPoint.OVERFLOW)
+                assertThat(product.unscaledValue().bitLength() >= 63
+                        || expected.unscaledValue().bitLength() >= 63
+                        || Math.abs(product.scale() - newScale) > 18).isTrue();
+            else
+                assertThat(BigDecimal.valueOf(result, newScale)).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    @UseDataProvider("roundingModes")
+    public void rescale_roundsTiesLikeBigDecimal(RoundingMode roundingMode) throws Exception {
+        for (long unscaled = -35; unscaled <= 35; unscaled++) {
+            long result = FixedPoint.rescale(unscaled, 1, 0, roundingMode);
+
+            assertThat(BigDecimal.valueOf(result)).isEqualTo(BigDecimal.valueOf(unscaled, 1).setScale(0, roundingMode));
+        }
+    }
+
+    @Test
+    public void multiply_detectsOverflow() throws Exception {
+        assertThat(FixedPoint.multiply(Long.MAX_VALUE, 0, 2, 0, 0, RoundingMode.HALF_EVEN)).isEqualTo(FixedPoint.OVERFLOW);
+        assertThat(FixedPoint.multiply(Long.MAX_VALUE, 0, 2, 0, 1, RoundingMode.HALF_EVEN)).isEqualTo(FixedPoint.OVERFLOW);
+        assertThat(FixedPoint.multiply(5, 0, 1, 0, -20, RoundingMode.HALF_EVEN)).isEqualTo(FixedPoint.OVERFLOW);
+    }
+
+    @Test
+    public void multiply_failsOnNecessaryRounding() throws Exception {
+        assertThat(FixedPoint.multiply(125, 2, 2, 0, 1, RoundingMode.UNNECESSARY)).isEqualTo(25);
+        assertThatThrownBy(() -> FixedPoint.multiply(125, 2, 1, 0, 1, RoundingMode.UNNECESSARY))
+            .isInstanceOf(ArithmeticException.class);
+    }
+
+    @Test
+    public void unscaledValue_detectsOverflow() throws Exception {
+        assertThat(FixedPoint.unscaledValue(new BigDecimal("-123.45"))).isEqualTo(-12345);
+        assertThat(FixedPoint.unscaledValue(new BigDecimal("1E+3"))).isEqualTo(1);
+        assertThat(FixedPoint.unscaledValue(new BigDecimal("12345678901234567890"))).isEqualTo(FixedPoint.OVERFLOW);
+    }
+
+    @DataProvider
+    public static Object[][] batchRoundingModes() {
+        return new Object[][] { { RoundingMode.HALF_EVEN }, { RoundingMode.UP } };
+    }
+
+    @Test
+    @UseDataProvider("batchRoundingModes")
+    public void multiplyAll_matchesMultiply(RoundingMode roundingMode) throws Exception {
+        Random random = new Random(4217);
+        int batchRuns = 0;
+        for (int run = 0; run < 2_000; run++) {
+            long rate = random.nextLong() >> random.nextInt(64);
+            int rateScale = random.nextInt(12);
+            int newScale = random.nextInt(4);
+            long[] amounts = new long[50];
+            for (int i = 0; i < amounts.length; i++)
+                amounts[i] = random.nextLong() >> (10 + random.nextInt(54));
+            long[] products = new long[amounts.length];
+
+            if(FixedPoint.multiplyAll(amounts, 6, rate, rateScale, newScale, roundingMode, products)) {
+                batchRuns++;
+                for (int i = 0; i < amounts.length; i++)
+                    assertThat(products[i]).isEqualTo(FixedPoint.multiply(amounts[i], 6, rate, rateScale, newScale, roundingMode));
+            }
+        }
+        assertThat(batchRuns).isGreaterThan(100);
+    }
+
+    @Test
+    public void multiplyAll_roundsTiesLikeMultiply() throws Exception {
+        long[] amounts = new long[2001];
+        for (int i = 0; i < amounts.length; i++)
+            amounts[i] = i - 1000;
+        long[] products = new long[amounts.length];
+        for (RoundingMode roundingMode : new RoundingMode[] { RoundingMode.HALF_EVEN, RoundingMode.UP }) {
+            for (int scaleReduction = 1; scaleReduction <= 18; scaleReduction++) {
+                assertThat(FixedPoint.multiplyAll(amounts, scaleReduction, 5, 0, 0, roundingMode, products)).isTrue();
+                for (int i = 0; i < amounts.length; i++)
+                    assertThat(products[i]).isEqualTo(FixedPoint.multiply(amounts[i], scaleReduction, 5, 0, 0, roundingMode));
+            }
+        }
+    }
+
+    @Test
+    public void multiplyAll_rejectsUnsupportedInput() throws Exception {
+        long[] products = new long[1];
+
+        assertThat(FixedPoint.multiplyAll(new long[] { 1 }, 2, 3, 0, 0, RoundingMode.HALF_UP, products)).isFalse();
+        assertThat(FixedPoint.multiplyAll(new long[] { 1 }, 0, 3, 0, 2, RoundingMode.HALF_EVEN, products)).isFalse();
+        assertThat(FixedPoint.multiplyAll(new long[] { Long.MIN_VALUE }, 2, 1, 0, 0, RoundingMode.UP, products)).isFalse();
+        assertThat(FixedPoint.multiplyAll(new long[] { 1L << 40 }, 2, 1L << 21, 0, 0, RoundingMode.UP, products)).isFalse();
+        assertThat(products).containsExactly(0);
+    }
+
+    @Test
+    public void multiplyAll_handlesLargestSupportedProducts() throws Exception {
+        long[] amounts = { (1L << 61) - 1, -((1L << 61) - 1) };
+        long[] products = new long[2];
+
+        assertThat(FixedPoint.multiplyAll(amounts, 18, 1, 0, 0, RoundingMode.HALF_EVEN, products)).isFalse();
+        amounts[0]--;
+        amounts[1]++;
+        assertThat(FixedPoint.multiplyAll(amounts, 18, 1, 0, 0, RoundingMode.HALF_EVEN, products)).isTrue();
+        assertThat(products).containsExactly(
+                FixedPoint.multiply(amounts[0], 18, 1, 0, 0, RoundingMode.HALF_EVEN),
+                FixedPoint.multiply(amounts[1], 18, 1, 0, 0, RoundingMode.HALF_EVEN));
+    }
+}
@@ -6,10 +6,12 @@
 package com.mercateo.common.currency;
 
 import static com.mercateo.common.currency.ConvertableCurrency.BRL;
+import static com.mercateo.common.currency.ConvertableCurrency.CHF;
 import static com.mercateo.common.currency.ConvertableCurrency.DEM;
 import static com.mercateo.common.currency.ConvertableCurrency.EUR;
 import static com.mercateo.common.currency.ConvertableCurrency.GBP;
 import static com.mercateo.common.currency.ConvertableCurrency.HUF;
+import static com.mercateo.common.currency.ConvertableCurrency.PLN;
 import static com.mercateo.common.currency.ConvertableCurrency.USD;
 import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -136,6 +138,40 @@ public class FrozenCurrencyConverterTest {
         assertThat(convertedPrice).isEqualTo(new Money(new BigDecimal("1"),DEM));
     }
 
+    @Test
+    public void convertsAllAmountsLikeSingleAmounts() throws Exception {
+        long[] amounts = { 312345, -312345, 100, 0, 99999999, Long.MAX_VALUE / 10 };
+        long[] convertedAmounts = new long[amounts.length];
+
+        int scale = uut.convertAll(amounts, 5, GBP, USD, DecimalPlacesStrategy.TO_PRICE, RoundingMode.HALF_EVEN, convertedAmounts);
+
+        assertThat(scale).isEqualTo(2);
+        for (int i = 0; i < amounts.length; i++) {
+            Money expected = uut.convertToPrice(new Money(BigDecimal.valueOf(amounts[i], 5), GBP), USD);
+            assertThat(new Money(BigDecimal.valueOf(convertedAmounts[i], scale), USD)).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    public void convertsAllAmountsToSameCurrency() throws Exception {
+        long[] convertedAmounts = new long[2];
+
+        int scale = uut.convertAll(new long[] { 10101, 10150 }, 4, USD, USD, DecimalPlacesStrategy.TO_PRICE, RoundingMode.HALF_EVEN, convertedAmounts);
+
+        assertThat(scale).isEqualTo(2);
+        assertThat(convertedAmounts).containsExactly(101, 102);
+    }
+
+    @Test
+    public void failsToConvertAllAmountsExceedingLongRange() throws Exception {
+        assertThatThrownBy(() -> uut.convertAll(new long[] { Long.MAX_VALUE }, 0, EUR, HUF,
+                DecimalPlacesStrategy.TO_PRICE, RoundingMode.UP, new long[1]))
+            .isInstanceOf(ArithmeticException.class);
+        assertThatThrownBy(() -> uut.convertAll(new long[] { 1, 2 }, 0, EUR, HUF,
+                DecimalPlacesStrategy.TO_PRICE, RoundingMode.UP, new long[1]))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
     @Test
     public void calculatesExchangeRates() throws Exception {
         assertThat(uut.getExchangeRate(EUR, EUR).getRateValue().getAmount()).isEqualTo(BigDecimal.ONE);
@@ -154,6 +190,13 @@ public class FrozenCurrencyConverterTest {
         assertThat(uut.getExchangeRate(USD, GBP).getRateValue().getAmount()).isEqualByComparingTo(new BigDecimal("0.7706422018"));
     }
 
+    @Test
+    public void returnsPrecomputedExchangeRates() throws Exception {
+        assertThat(uut.getExchangeRate(GBP, USD)).isSameAs(uut.getExchangeRate(GBP, USD));
+        assertThat(uut.getExchangeRate(USD, HUF)).isSameAs(uut.getExchangeRate(USD, HUF));
+        assertThat(uut.getExchangeRate(BRL, BRL)).isSameAs(uut.getExchangeRate(BRL, BRL));
+    }
+
     @Test
     public void ignoresRepeatedExchangeRatesInConstructor() throws Exception {
         FrozenCurrencyConverter uut = new FrozenCurrencyConverter(asList(
@@ -190,4 +233,201 @@ public class FrozenCurrencyConverterTest {
         assertThatThrownBy(() ->uut.convertToPrice(GBP_RATE, EUR))
         .isInstanceOf(IllegalArgumentException.class);
     }
+
+    @Test
+    public void derivesRatesAlongMultiHopRoutes() throws Exception {
+        FrozenCurrencyConverter uut = new FrozenCurrencyConverter(asList(
+                new ExchangeRate(EUR_RATE, USD_RATE),
+                new ExchangeRate(new Money(BigDecimal.ONE, USD), new Money(new BigDecimal("0.9"), CHF)),
+                new ExchangeRate(new Money(BigDecimal.ONE, CHF), new Money(new BigDecimal("4.5"), PLN))));
+
+        assertThat(uut.getExchangeRate(EUR, PLN).getRateValue().getAmount()).isEqualByComparingTo(new BigDecimal("4.4145"));
+        assertThat(uut.getExchangeRate(PLN, EUR).getRateValue().getAmount()).isEqualByComparingTo(new BigDecimal("0.2265262204"));
+        assertThat(uut.convertProportionally(new Money(new BigDecimal("100.00"), EUR), PLN))
+            .isEqualTo(new Money(new BigDecimal("441.45"), PLN));
+    }
+
+    @Test
+    public void prefersRoutesWithFewestHops() throws Exception {
+        FrozenCurrencyConverter uut = new FrozenCurrencyConverter(asList(
+                new ExchangeRate(EUR_RATE, USD_RATE),
+                new ExchangeRate(new Money(BigDecimal.ONE, USD), new Money(new BigDecimal("0.9"), CHF)),
+                new ExchangeRate(new Money(BigDecimal.ONE, CHF), new Money(new BigDecimal("4.5"), PLN)),
+                new ExchangeRate(EUR_RATE, new Money(new BigDecimal("4.4"), PLN))));
+
+        assertThat(uut.getExchangeRate(EUR, PLN).getRateValue().getAmount()).isEqualByComparingTo(new BigDecimal("4.4"));
+        assertThat(uut.getExchangeRate(USD, PLN).getRateValue().getAmount()).isEqualByComparingTo(new BigDecimal("4.0366972477"));
+    }
+
+    @Test
+    public void prefersGivenRatesOverInverseRates() throws Exception {
+        FrozenCurrencyConverter uut = new FrozenCurrencyConverter(asList(
+                new ExchangeRate(EUR_RATE, USD_RATE),
+                new ExchangeRate(new Money(BigDecimal.ONE, USD), new Money(new BigDecimal("0.9"), EUR))));
+
+        assertThat(uut.getExchangeRate(EUR, USD).getRateValue().getAmount()).isEqualByComparingTo(USD_RATE.getAmount());
+        assertThat(uut.getExchangeRate(USD, EUR).getRateValue().getAmount()).isEqualByComparingTo(new BigDecimal("0.9"));
+    }
+
+    @Test
+    public void failsWithoutExchangeRatePath() throws Exception {
+        FrozenCurrencyConverter uut = new FrozenCurrencyConverter(asList(
+                new ExchangeRate(EUR_RATE, HUF_RATE),
+                new ExchangeRate(new Money(BigDecimal.ONE, USD), GBP_RATE)));
+        assertThatThrownBy(() -> uut.getExchangeRate(HUF, GBP))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessage("No exchange rate path from HUF to GBP");
+        assertThatThrownBy(() -> uut.getExchangeRate(HUF, PLN))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessage("Unknown Currency PLN");
+    }
+
+    @Test
+    public void changesRatesLikeRebuiltConverter() throws Exception {
+        ExchangeRate changedRate = new ExchangeRate(EUR_RATE, new Money(new BigDecimal("1.10"), USD));
+        FrozenCurrencyConverter rebuilt = new FrozenCurrencyConverter(asList(
+                new ExchangeRate(EUR_RATE, HUF_RATE),
+                new ExchangeRate(EUR_RATE, GBP_RATE),
+                changedRate,
+                new ExchangeRate(EUR_RATE, DEM_RATE)));
+
+        FrozenCurrencyConverter changed = uut.withChangedRates(asList(changedRate));
+
+        for (ConvertableCurrency fromCurrency : asList(EUR, HUF, GBP, USD, DEM)) {
+            for (ConvertableCurrency toCurrency : asList(EUR, HUF, GBP, USD, DEM))
+                assertThat(changed.getExchangeRate(fromCurrency, toCurrency)).isEqualTo(rebuilt.getExchangeRate(fromCurrency, toCurrency));
+        }
+        assertThat(uut.getExchangeRate(EUR, USD).getRateValue().getAmount()).isEqualByComparingTo(USD_RATE.getAmount());
+    }
+
+    @Test
+    public void sharesRatesUnaffectedByChangedRates() throws Exception {
+        FrozenCurrencyConverter changed = uut.withChangedRates(asList(
+                new ExchangeRate(EUR_RATE, new Money(new BigDecimal("1.10"), USD))));
+
+        assertThat(changed.getExchangeRate(GBP, HUF)).isSameAs(uut.getExchangeRate(GBP, HUF));
+        assertThat(changed.getExchangeRate(EUR, DEM)).isSameAs(uut.getExchangeRate(EUR, DEM));
+        assertThat(changed.getExchangeRate(BRL, BRL)).isSameAs(uut.getExchangeRate(BRL, BRL));
+        assertThat(changed.getExchangeRate(GBP, USD)).isNotEqualTo(uut.getExchangeRate(GBP, USD));
+        assertThat(changed.getExchangeRate(USD, GBP)).isNotEqualTo(uut.getExchangeRate(USD, GBP));
+    }
+
+    @Test
+    public void addsChangedRatesForNewCurrencyPairs() throws Exception {
+        FrozenCurrencyConverter changed = uut.withChangedRates(asList(
+                new ExchangeRate(new Money(BigDecimal.ONE, USD), new Money(new BigDecimal("4"), PLN))));
+
+        assertThat(changed.getExchangeRate(EUR, PLN).getRateValue().getAmount()).isEqualByComparingTo(new BigDecimal("4.36"));
+        assertThat(changed.getExchangeRate(HUF, GBP)).isSameAs(uut.getExchangeRate(HUF, GBP));
+        assertThatThrownBy(() -> uut.getExchangeRate(EUR, PLN))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void keepsConverterForUnchangedRates() throws Exception {
+        FrozenCurrencyConverter changed = uut.withChangedRates(asList(new ExchangeRate(EUR_RATE, USD_RATE)));
+
+        assertThat(changed.getExchangeRate(GBP, USD)).isSameAs(uut.getExchangeRate(GBP, USD));
+        assertThat(changed.getExchangeRate(USD, EUR)).isSameAs(uut.getExchangeRate(USD, EUR));
+    }
+
+    @Test
+    public void replacesGivenRateByChangedRateInOppositeDirection() throws Exception {
+        final ExchangeRate changedRate = new ExchangeRate(new Money(BigDecimal.ONE, USD), new Money(new BigDecimal("0.9"), EUR));
+
+        FrozenCurrencyConverter changed = uut.withChangedRates(asList(changedRate));
+
+        assertThat(changed.getDirectRates()).containsExactly(rates.get(0), rates.get(1), changedRate, rates.get(3));
+        assertThat(changed.getExchangeRate(USD, EUR)).isEqualTo(changedRate);
+        assertThat(changed.getExchangeRate(EUR, USD).getRateValue().getAmount()).isEqualByComparingTo(new BigDecimal("1.1111111111"));
+        assertThat(changed.getExchangeRate(GBP, USD).getRateValue().getAmount()).isEqualByComparingTo(new BigDecimal("1.3227513228"));
+    }
+
+    @Test
+    public void replacesGivenRatesInBothDirectionsByChangedRate() throws Exception {
+        final ExchangeRate eurToUsd = new ExchangeRate(EUR_RATE, USD_RATE);
+        final ExchangeRate usdToEur = new ExchangeRate(new Money(BigDecimal.ONE, USD), new Money(new BigDecimal("0.92"), EUR));
+        final ExchangeRate changedRate = new ExchangeRate(EUR_RATE, new Money(new BigDecimal("1.10"), USD));
+        FrozenCurrencyConverter uut = new FrozenCurrencyConverter(asList(eurToUsd, usdToEur));
+
+        FrozenCurrencyConverter changed = uut.withChangedRates(asList(changedRate));
+
+        assertThat(changed.getDirectRates()).containsExactly(changedRate);
+        assertThat(changed.getExchangeRate(USD, EUR).getRateValue().getAmount()).isEqualByComparingTo(new BigDecimal("0.9090909091"));
+    }
+
+    @Test
+    public void failsOnConflictingChangedRates() throws Exception {
+        assertThatThrownBy(() -> uut.withChangedRates(asList(
+                new ExchangeRate(EUR_RATE, new Money(new BigDecimal("1.10"), USD)),
+                new ExchangeRate(EUR_RATE, new Money(new BigDecimal("1.11"), USD)))))
+            .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    public void reroutesOnChangedRatesShorteningRoutes() throws Exception {
+        FrozenCurrencyConverter uut = new FrozenCurrencyConverter(asList(
+                new ExchangeRate(EUR_RATE, USD_RATE),
+                new ExchangeRate(new Money(BigDecimal.ONE, USD), new Money(new BigDecimal("0.9"), CHF)),
+                new ExchangeRate(new Money(BigDecimal.ONE, CHF), new Money(new BigDecimal("4.5"), PLN))));
+
+        FrozenCurrencyConverter changed = uut.withChangedRates(asList(new ExchangeRate(EUR_RATE, new Money(new BigDecimal("4.4"), PLN))));
+
+        assertThat(changed.getExchangeRate(EUR, PLN).getRateValue().getAmount()).isEqualByComparingTo(new BigDecimal("4.4"));
+        assertThat(changed.getExchangeRate(PLN, EUR).getRateValue().getAmount()).isEqualByComparingTo(new BigDecimal("0.2272727273"));
+        assertThat(changed.getExchangeRate(USD, CHF)).isSameAs(uut.getExchangeRate(USD, CHF));
+        assertThat(changed.getExchangeRate(EUR, CHF)).isSameAs(uut.getExchangeRate(EUR, CHF));
+    }
+
+    @Test
+    public void buildsConverterFromAddedRates() throws Exception {
+        FrozenCurrencyConverter.Builder builder = FrozenCurrencyConverter.builder();
+        rates.forEach(builder::add);
+        builder.add(new ExchangeRate(EUR_RATE, USD_RATE));
+
+        FrozenCurrencyConverter built = builder.build();
+
+        assertThat(builder.size()).isEqualTo(rates.size());
+        assertThat(built.getExchangeRate(GBP, HUF)).isEqualTo(uut.getExchangeRate(GBP, HUF));
+        assertThat(built.toString()).isEqualTo(uut.toString());
+    }
+
+    @Test
+    public void builderFailsOnConflictingRates() throws Exception {
+        FrozenCurrencyConverter.Builder builder = FrozenCurrencyConverter.builder().addAll(rates);
+
+        assertThatThrownBy(() -> builder.add(new ExchangeRate(EUR_RATE, new Money(new BigDecimal("1.10"), USD))))
+            .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    public void builderKeepsCollectingAfterConflictingRate() throws Exception {
+        FrozenCurrencyConverter.Builder builder = FrozenCurrencyConverter.builder().addAll(rates);
+        assertThatThrownBy(() -> builder.add(new ExchangeRate(EUR_RATE, new Money(new BigDecimal("1.10"), USD))))
+            .isInstanceOf(IllegalStateException.class);
+
+        FrozenCurrencyConverter converter = builder
+                .add(new ExchangeRate(EUR_RATE, USD_RATE))
+                .add(new ExchangeRate(new Money(BigDecimal.ONE, USD), new Money(new BigDecimal("0.9"), CHF)))
+                .build();
+
+        assertThat(builder.size()).isEqualTo(5);
+        assertThat(converter.getExchangeRate(EUR, USD).getRateValue().getAmount()).isEqualByComparingTo(USD_RATE.getAmount());
+        assertThat(converter.getExchangeRate(EUR, CHF).getRateValue().getAmount()).isEqualByComparingTo(new BigDecimal("0.981"));
+    }
+
+    @Test
+    public void builderSharesRatesWithPreviousConverter() throws Exception {
+        FrozenCurrencyConverter refreshed = FrozenCurrencyConverter.builder(uut)
+                .add(new ExchangeRate(EUR_RATE, new Money(new BigDecimal("400"), HUF)))
+                .add(new ExchangeRate(EUR_RATE, new Money(new BigDecimal("0.84"), GBP)))
+                .add(new ExchangeRate(EUR_RATE, new Money(new BigDecimal("1.10"), USD)))
+                .build();
+
+        assertThat(refreshed.getExchangeRate(GBP, HUF)).isSameAs(uut.getExchangeRate(GBP, HUF));
+        assertThat(refreshed.getExchangeRate(GBP, USD).getRateValue().getAmount()).isEqualByComparingTo("1.3095238095");
+        assertThatThrownBy(() -> refreshed.getExchangeRate(EUR, DEM))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessage("Unknown Currency DEM");
+    }
 }
@@ -0,0 +1,131 @@
+package com.mercateo.common.currency;
+
+import static com.mercateo.common.currency.ConvertableCurrency.BRL;
+import static com.mercateo.common.currency.ConvertableCurrency.EUR;
+import static com.mercateo.common.currency.ConvertableCurrency.GBP;
+import static com.mercateo.common.currency.ConvertableCurrency.HUF;
+import static com.mercateo.common.currency.ConvertableCurrency.USD;
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigDecimal;
+
+import org.junit.Test;
+
+public class MoneyBagTest {
+    private static final Money EUR_RATE = new Money(BigDecimal.ONE, EUR);
+    private static final FrozenCurrencyConverter converter = new FrozenCurrencyConverter(asList(
+            new ExchangeRate(EUR_RATE, new Money(new BigDecimal("400"), HUF)),
+            new ExchangeRate(EUR_RATE, new Money(new BigDecimal("0.84"), GBP)),
+            new ExchangeRate(EUR_RATE, new Money(new BigDecimal("1.09"), USD))));
+
+    @Test
+    public void accumulatesExactSubtotalsPerCurrency() throws Exception {
+        MoneyBag uut = new MoneyBag()
+                .add(new Money(new BigDecimal("1.005"), EUR))
+                .add(new Money(new BigDecimal("2.10"), EUR))
+                .add(new Money(new BigDecimal("1000"), HUF));
+
+        assertThat(uut.getSubtotal(EUR)).isEqualTo(new Money(new BigDecimal("3.105"), EUR));
+        assertThat(uut.getSubtotal(HUF)).isEqualTo(new Money(new BigDecimal("1000"), HUF));
+        assertThat(uut.getSubtotal(USD)).isEqualTo(new Money(BigDecimal.ZERO, USD));
+    }
+
+    @Test
+    public void subtractsAmounts() throws Exception {
+        MoneyBag uut = new MoneyBag()
+                .add(new Money(new BigDecimal("10.00"), EUR))
+                .subtract(new Money(new BigDecimal("2.505"), EUR))
+                .subtract(new Money(new BigDecimal("5"), HUF))
+                .add(150, 2, USD)
+                .subtract(50, 2, USD);
+
+        assertThat(uut.getSubtotal(EUR)).isEqualTo(new Money(new BigDecimal("7.495"), EUR));
+        assertThat(uut.getSubtotal(HUF)).isEqualTo(new Money(new BigDecimal("-5"), HUF));
+        assertThat(uut.getSubtotal(USD)).isEqualTo(new Money(new BigDecimal("1.00"), USD));
+    }
+
+    @Test
+    public void keepsScalesLikeBigDecimalAddition() throws Exception {
+        BigDecimal[] amounts = { new BigDecimal("1E+3"), new BigDecimal("2.5"), new BigDecimal("-0.125"), new BigDecimal("7") };
+        MoneyBag uut = new MoneyBag();
+        BigDecimal expected = BigDecimal.ZERO.setScale(-3);
+        for (BigDecimal amount : amounts) {
+            uut.add(new Money(amount, EUR));
+            expected = expected.add(amount);
+        }
+
+        assertThat(uut.getSubtotal(EUR)).isEqualTo(new Money(expected, EUR));
+    }
+
+    @Test
+    public void continuesBeyondLongRange() throws Exception {
+        MoneyBag uut = new MoneyBag()
+                .add(Long.MAX_VALUE - 1, 0, EUR)
+                .add(new Money(new BigDecimal("2.5"), EUR))
+                .add(new Money(new BigDecimal("123456789012345678901234567890"), USD))
+                .add(Long.MIN_VALUE, 2, GBP)
+                .subtract(Long.MIN_VALUE, 2, GBP);
+
+        assertThat(uut.getSubtotal(EUR)).isEqualTo(new Money(new BigDecimal("9223372036854775808.5"), EUR));
+        assertThat(uut.getSubtotal(USD)).isEqualTo(new Money(new BigDecimal("123456789012345678901234567890"), USD));
+        assertThat(uut.getSubtotal(GBP)).isEqualTo(new Money(new BigDecimal("0.00"), GBP));
+
+        uut.subtract(new Money(new BigDecimal("0.5"), EUR));
+
+        assertThat(uut.getSubtotal(EUR)).isEqualTo(new Money(new BigDecimal("9223372036854775808.0"), EUR));
+    }
+
+    @Test
+    public void mergesBags() throws Exception {
+        MoneyBag uut = new MoneyBag().add(new Money(new BigDecimal("1.00"), EUR));
+        MoneyBag other = new MoneyBag()
+                .add(new Money(new BigDecimal("2.50"), EUR))
+                .add(new Money(new BigDecimal("3.00"), USD));
+
+        uut.merge(other);
+
+        assertThat(uut.getSubtotal(EUR)).isEqualTo(new Money(new BigDecimal("3.50"), EUR));
+        assertThat(uut.getSubtotal(USD)).isEqualTo(new Money(new BigDecimal("3.00"), USD));
+    }
+
+    @Test
+    public void mergesLargeSubtotals() throws Exception {
+        MoneyBag uut = new MoneyBag().add(Long.MAX_VALUE, 0, EUR);
+        MoneyBag other = new MoneyBag().add(Long.MAX_VALUE, 0, EUR).add(Long.MAX_VALUE, 0, EUR);
+
+        uut.merge(other);
+
+        assertThat(uut.getSubtotal(EUR).getAmount()).isEqualTo(BigDecimal.valueOf(Long.MAX_VALUE).multiply(BigDecimal.valueOf(3)));
+    }
+
+    @Test
+    public void convertsEachSubtotalOnce() throws Exception {
+        MoneyBag uut = new MoneyBag()
+                .add(new Money(new BigDecimal("0.005"), EUR))
+                .add(new Money(new BigDecimal("0.005"), EUR))
+                .add(new Money(new BigDecimal("1.00"), GBP));
+
+        Money total = uut.totalIn(USD, converter);
+
+        Money expected = new Money(converter.convertProportionally(new Money(new BigDecimal("0.010"), EUR), USD).getAmount()
+                .add(converter.convertProportionally(new Money(new BigDecimal("1.00"), GBP), USD).getAmount()), USD);
+        assertThat(total).isEqualTo(expected);
+    }
+
+    @Test
+    public void totalsEmptyBagAsZero() throws Exception {
+        MoneyBag uut = new MoneyBag();
+
+        assertThat(uut.isEmpty()).isTrue();
+        assertThat(uut.totalIn(USD, converter)).isEqualTo(new Money(BigDecimal.ZERO, USD));
+    }
+
+    @Test
+    public void failsOnUnknownExchangeRates() throws Exception {
+        MoneyBag uut = new MoneyBag().add(new Money(BigDecimal.ONE, EUR));
+
+        assertThatThrownBy(() -> uut.totalIn(BRL, converter)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
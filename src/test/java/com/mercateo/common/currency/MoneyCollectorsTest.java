@@ -0,0 +1,60 @@
+package com.mercateo.common.currency;
+
+import static com.mercateo.common.currency.ConvertableCurrency.EUR;
+import static com.mercateo.common.currency.ConvertableCurrency.GBP;
+import static com.mercateo.common.currency.ConvertableCurrency.HUF;
+import static com.mercateo.common.currency.ConvertableCurrency.USD;
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+public class MoneyCollectorsTest {
+    private static final Money EUR_RATE = new Money(BigDecimal.ONE, EUR);
+    private static final FrozenCurrencyConverter converter = new FrozenCurrencyConverter(asList(
+            new ExchangeRate(EUR_RATE, new Money(new BigDecimal("400"), HUF)),
+            new ExchangeRate(EUR_RATE, new Money(new BigDecimal("0.84"), GBP)),
+            new ExchangeRate(EUR_RATE, new Money(new BigDecimal("1.09"), USD))));
+    private static final ConvertableCurrency[] LINE_CURRENCIES = { EUR, GBP, HUF, USD };
+
+    private static final List<Money> lines = IntStream.range(0, 10_000)
+            .mapToObj(i -> new Money(BigDecimal.valueOf(i, 2), LINE_CURRENCIES[i % LINE_CURRENCIES.length]))
+            .collect(Collectors.toList());
+
+    @Test
+    public void collectsSubtotals() throws Exception {
+        MoneyBag bag = lines.stream().collect(MoneyCollectors.toMoneyBag());
+
+        assertThat(bag.getSubtotal(EUR).getAmount()).isEqualByComparingTo(sumOf(EUR));
+        assertThat(bag.getSubtotal(HUF).getAmount()).isEqualByComparingTo(sumOf(HUF));
+    }
+
+    @Test
+    public void sumsInTargetCurrency() throws Exception {
+        Money total = lines.stream().collect(MoneyCollectors.summingIn(USD, converter));
+
+        Money expected = lines.stream().collect(MoneyCollectors.toMoneyBag()).totalIn(USD, converter);
+        assertThat(total).isEqualTo(expected);
+    }
+
+    @Test
+    public void sumsParallelStreamsLikeSequentialStreams() throws Exception {
+        Money sequentialTotal = lines.stream()
+                .collect(MoneyCollectors.summingIn(EUR, converter, DecimalPlacesStrategy.TO_PRICE, RoundingMode.HALF_EVEN));
+        Money parallelTotal = lines.parallelStream()
+                .collect(MoneyCollectors.summingIn(EUR, converter, DecimalPlacesStrategy.TO_PRICE, RoundingMode.HALF_EVEN));
+
+        assertThat(parallelTotal).isEqualTo(sequentialTotal);
+    }
+
+    private static BigDecimal sumOf(ConvertableCurrency currency) {
+        return lines.stream().filter(line -> line.getCurrency() == currency)
+                .map(Money::getAmount).reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+}
@@ -0,0 +1,126 @@
+package com.mercateo.common.currency;
+
+import static com.mercateo.common.currency.ConvertableCurrency.BRL;
+import static com.mercateo.common.currency.ConvertableCurrency.EUR;
+import static com.mercateo.common.currency.ConvertableCurrency.GBP;
+import static com.mercateo.common.currency.ConvertableCurrency.HUF;
+import static com.mercateo.common.currency.ConvertableCurrency.USD;
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class MoneyColumnTest {
+    private static final Money EUR_RATE = new Money(BigDecimal.ONE, EUR);
+    private static final FrozenCurrencyConverter converter = new FrozenCurrencyConverter(asList(
+            new ExchangeRate(EUR_RATE, new Money(new BigDecimal("400"), HUF)),
+            new ExchangeRate(EUR_RATE, new Money(new BigDecimal("0.84"), GBP)),
+            new ExchangeRate(EUR_RATE, new Money(new BigDecimal("1.09"), USD))));
+
+    private static final List<Money> amounts = asList(
+            new Money(new BigDecimal("3.12345"), GBP),
+            new Money(new BigDecimal("1000"), HUF),
+            new Money(new BigDecimal("1.00"), USD),
+            new Money(new BigDecimal("-2.50"), EUR),
+            new Money(new BigDecimal("4E+2"), HUF));
+
+    @Test
+    public void appendsAndReadsAmounts() throws Exception {
+        MoneyColumn uut = columnOf(amounts);
+
+        assertThat(uut.size()).isEqualTo(amounts.size());
+        for (int i = 0; i < amounts.size(); i++)
+            assertThat(uut.getMoney(i)).isEqualTo(amounts.get(i));
+        assertThat(uut.getCurrency(0)).isEqualTo(GBP);
+        assertThat(uut.getUnscaledAmount(0)).isEqualTo(312345);
+        assertThat(uut.getScale(0)).isEqualTo(5);
+    }
+
+    @Test
+    public void growsBeyondInitialCapacity() throws Exception {
+        MoneyColumn uut = new MoneyColumn(1);
+        for (int i = 0; i < 100; i++)
+            uut.append(i, 2, EUR);
+
+        assertThat(uut.size()).isEqualTo(100);
+        assertThat(uut.getUnscaledAmount(99)).isEqualTo(99);
+    }
+
+    @Test
+    public void iteratesAmounts() throws Exception {
+        List<Money> iterated = new ArrayList<>();
+
+        columnOf(amounts).forEach((currency, unscaledAmount, scale) ->
+            iterated.add(new Money(BigDecimal.valueOf(unscaledAmount, scale), currency)));
+
+        assertThat(iterated).isEqualTo(amounts);
+    }
+
+    @Test
+    public void slicesAmounts() throws Exception {
+        MoneyColumn uut = columnOf(amounts).slice(1, 3);
+
+        assertThat(uut.size()).isEqualTo(2);
+        assertThat(uut.getMoney(0)).isEqualTo(amounts.get(1));
+        assertThat(uut.getMoney(1)).isEqualTo(amounts.get(2));
+        assertThatThrownBy(() -> uut.getMoney(2)).isInstanceOf(IndexOutOfBoundsException.class);
+        assertThatThrownBy(() -> columnOf(amounts).slice(3, 6)).isInstanceOf(IndexOutOfBoundsException.class);
+    }
+
+    @Test
+    public void convertsAllAmountsLikeConverter() throws Exception {
+        MoneyColumn converted = columnOf(amounts).convertAllTo(USD, converter);
+
+        for (int i = 0; i < amounts.size(); i++)
+            assertThat(converted.getMoney(i)).isEqualTo(converter.convertToPrice(amounts.get(i), USD));
+    }
+
+    @Test
+    public void convertsAllAmountsProportionally() throws Exception {
+        MoneyColumn converted = columnOf(amounts).convertAllTo(HUF, converter,
+                DecimalPlacesStrategy.PROPORTIONAL, HUF.getRoundingMode());
+
+        for (int i = 0; i < amounts.size(); i++)
+            assertThat(converted.getMoney(i)).isEqualTo(converter.convertProportionally(amounts.get(i), HUF));
+    }
+
+    @Test
+    public void fetchesEachExchangeRateOnce() throws Exception {
+        CurrencyConverter spiedConverter = spy(converter);
+
+        columnOf(amounts).convertAllTo(EUR, spiedConverter);
+
+        verify(spiedConverter, times(1)).getExchangeRate(HUF, EUR);
+        verify(spiedConverter, times(1)).getExchangeRate(GBP, EUR);
+        verify(spiedConverter, times(1)).getExchangeRate(USD, EUR);
+    }
+
+    @Test
+    public void failsOnUnknownExchangeRates() throws Exception {
+        MoneyColumn uut = columnOf(amounts);
+
+        assertThatThrownBy(() -> uut.convertAllTo(BRL, converter)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void failsOnAmountsExceedingLongRange() throws Exception {
+        MoneyColumn uut = new MoneyColumn();
+
+        assertThatThrownBy(() -> uut.append(new Money(new BigDecimal("12345678901234567890"), EUR)))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static MoneyColumn columnOf(List<Money> amounts) {
+        MoneyColumn column = new MoneyColumn();
+        amounts.forEach(column::append);
+        return column;
+    }
+}
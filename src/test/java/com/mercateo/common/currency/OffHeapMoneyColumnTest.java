@@ -0,0 +1,89 @@
+package com.mercateo.common.currency;
+
+import static com.mercateo.common.currency.ConvertableCurrency.BRL;
+import static com.mercateo.common.currency.ConvertableCurrency.EUR;
+import static com.mercateo.common.currency.ConvertableCurrency.GBP;
+import static com.mercateo.common.currency.ConvertableCurrency.HUF;
+import static com.mercateo.common.currency.ConvertableCurrency.USD;
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class OffHeapMoneyColumnTest {
+    private static final Money EUR_RATE = new Money(BigDecimal.ONE, EUR);
+    private static final FrozenCurrencyConverter converter = new FrozenCurrencyConverter(asList(
+            new ExchangeRate(EUR_RATE, new Money(new BigDecimal("400"), HUF)),
+            new ExchangeRate(EUR_RATE, new Money(new BigDecimal("0.84"), GBP)),
+            new ExchangeRate(EUR_RATE, new Money(new BigDecimal("1.09"), USD))));
+
+    private static final List<Money> amounts = asList(
+            new Money(new BigDecimal("3.12345"), GBP),
+            new Money(new BigDecimal("1000"), HUF),
+            new Money(new BigDecimal("1.00"), USD),
+            new Money(new BigDecimal("-2.50"), EUR),
+            new Money(new BigDecimal("4E+2"), HUF));
+
+    @Test
+    public void appendsAndReadsAmountsAcrossChunks() throws Exception {
+        OffHeapMoneyColumn uut = columnOf(amounts);
+
+        assertThat(uut.size()).isEqualTo(amounts.size());
+        for (int i = 0; i < amounts.size(); i++)
+            assertThat(uut.getMoney(i)).isEqualTo(amounts.get(i));
+        assertThatThrownBy(() -> uut.getMoney(amounts.size())).isInstanceOf(IndexOutOfBoundsException.class);
+    }
+
+    @Test
+    public void iteratesAmounts() throws Exception {
+        List<Money> iterated = new ArrayList<>();
+
+        columnOf(amounts).forEach((currency, unscaledAmount, scale) ->
+            iterated.add(new Money(BigDecimal.valueOf(unscaledAmount, scale), currency)));
+
+        assertThat(iterated).isEqualTo(amounts);
+    }
+
+    @Test
+    public void convertsAllAmountsInPlace() throws Exception {
+        OffHeapMoneyColumn uut = columnOf(amounts);
+
+        uut.convertAllInPlace(USD, converter);
+
+        for (int i = 0; i < amounts.size(); i++)
+            assertThat(uut.getMoney(i)).isEqualTo(converter.convertToPrice(amounts.get(i), USD));
+    }
+
+    @Test
+    public void convertsAllAmountsProportionallyInPlace() throws Exception {
+        OffHeapMoneyColumn uut = columnOf(amounts);
+
+        uut.convertAllInPlace(HUF, converter, DecimalPlacesStrategy.PROPORTIONAL, HUF.getRoundingMode());
+
+        for (int i = 0; i < amounts.size(); i++)
+            assertThat(uut.getMoney(i)).isEqualTo(converter.convertProportionally(amounts.get(i), HUF));
+    }
+
+    @Test
+    public void failsOnUnknownExchangeRates() throws Exception {
+        OffHeapMoneyColumn uut = columnOf(amounts);
+
+        assertThatThrownBy(() -> uut.convertAllInPlace(BRL, converter)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void failsOnInvalidChunkSize() throws Exception {
+        assertThatThrownBy(() -> new OffHeapMoneyColumn(Integer.MAX_VALUE)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static OffHeapMoneyColumn columnOf(List<Money> amounts) {
+        OffHeapMoneyColumn column = new OffHeapMoneyColumn(2);
+        amounts.forEach(column::append);
+        return column;
+    }
+}
@@ -8,6 +8,7 @@ package com.mercateo.common.currency;
 import static com.mercateo.common.currency.ConvertableCurrency.EUR;
 import static com.mercateo.common.currency.ConvertableCurrency.USD;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -16,6 +17,12 @@ import static org.mockito.Mockito.when;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.junit.Test;
 
@@ -77,6 +84,20 @@ public class UpdateableCurrencyConverterTest {
         verifyNoMoreInteractions(mockConverter);
     }
 
+    @Test
+    public void convertAll_delegatesToUnderlyingConverter() throws Exception {
+        long[] amounts = { 10000 };
+        long[] convertedAmounts = new long[1];
+        when(mockConverter.convertAll(amounts, 2, EUR, USD, DecimalPlacesStrategy.TO_PRICE, RoundingMode.HALF_EVEN, convertedAmounts))
+            .thenReturn(2);
+
+        int result = uut.convertAll(amounts, 2, EUR, USD, DecimalPlacesStrategy.TO_PRICE, RoundingMode.HALF_EVEN, convertedAmounts);
+
+        assertThat(result).isEqualTo(2);
+        verify(mockConverter).convertAll(amounts, 2, EUR, USD, DecimalPlacesStrategy.TO_PRICE, RoundingMode.HALF_EVEN, convertedAmounts);
+        verifyNoMoreInteractions(mockConverter);
+    }
+
     @Test
     public void set_updatesUnderlyingConverter() throws Exception {
         CurrencyConverter newMockConverter = mock(CurrencyConverter.class);
@@ -119,4 +140,254 @@ public class UpdateableCurrencyConverterTest {
         verify(secondConverter).convertToPrice(eurAmount, USD);
     }
 
-} 
\ No newline at end of file
+    @Test
+    public void snapshot_keepsConverterAfterUpdate() throws Exception {
+        CurrencyConverter newConverter = mock(CurrencyConverter.class);
+        when(mockConverter.convertToPrice(eurAmount, USD)).thenReturn(usdAmount);
+
+        CurrencyConverterSnapshot snapshot = uut.snapshot();
+        uut.set(newConverter);
+        Money result = snapshot.convertToPrice(eurAmount, USD);
+
+        assertThat(result).isEqualTo(usdAmount);
+        assertThat(snapshot.getConverter()).isSameAs(mockConverter);
+        assertThat(uut.snapshot().getConverter()).isSameAs(newConverter);
+        verifyNoMoreInteractions(newConverter);
+    }
+
+    @Test
+    public void snapshot_versionIncreasesWithEveryUpdate() throws Exception {
+        assertThat(uut.snapshot().getVersion()).isEqualTo(1);
+        assertThat(uut.snapshot()).isSameAs(uut.snapshot());
+
+        uut.set(mockConverter);
+        uut.set(mock(CurrencyConverter.class));
+
+        assertThat(uut.snapshot().getVersion()).isEqualTo(3);
+    }
+
+    @Test
+    public void snapshot_findsRetainedVersions() throws Exception {
+        CurrencyConverter secondConverter = mock(CurrencyConverter.class);
+        CurrencyConverter thirdConverter = mock(CurrencyConverter.class);
+        UpdateableCurrencyConverter uut = new UpdateableCurrencyConverter(mockConverter, 3);
+
+        uut.set(secondConverter);
+        uut.set(thirdConverter);
+
+        assertThat(uut.snapshot(1).getConverter()).isSameAs(mockConverter);
+        assertThat(uut.snapshot(2).getConverter()).isSameAs(secondConverter);
+        assertThat(uut.snapshot(3)).isSameAs(uut.snapshot());
+        assertThat(uut.getOldestVersion()).isEqualTo(1);
+    }
+
+    @Test
+    public void snapshot_evictsOldestVersions() throws Exception {
+        UpdateableCurrencyConverter uut = new UpdateableCurrencyConverter(mockConverter, 2);
+
+        uut.set(mock(CurrencyConverter.class));
+        uut.set(mock(CurrencyConverter.class));
+
+        assertThat(uut.getHistorySize()).isEqualTo(2);
+        assertThat(uut.getOldestVersion()).isEqualTo(2);
+        assertThat(uut.snapshot(2).getVersion()).isEqualTo(2);
+        assertThatThrownBy(() -> uut.snapshot(1))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessage("Evicted version 1, oldest retained version is 2");
+    }
+
+    @Test
+    public void snapshot_findsEveryPublishedVersionWhileUpdatedConcurrently() throws Exception {
+        UpdateableCurrencyConverter uut = new UpdateableCurrencyConverter(mockConverter, 100_000);
+        Map<Long, CurrencyConverter> convertersByVersion = new ConcurrentHashMap<>();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        AtomicBoolean updating = new AtomicBoolean(true);
+        Runnable reader = () -> {
+            try {
+                while (updating.get()) {
+                    CurrencyConverterSnapshot snapshot = uut.snapshot();
+                    assertThat(uut.snapshot(snapshot.getVersion()).getConverter()).isSameAs(snapshot.getConverter());
+                    CurrencyConverter known = convertersByVersion.putIfAbsent(snapshot.getVersion(), snapshot.getConverter());
+                    assertThat(known == null ? snapshot.getConverter() : known).isSameAs(snapshot.getConverter());
+                }
+            } catch (Throwable e) {
+                failure.compareAndSet(null, e);
+            }
+        };
+        Thread[] readers = { new Thread(reader), new Thread(reader), new Thread(reader) };
+        for (Thread thread : readers)
+            thread.start();
+
+        for (int i = 0; i < 20_000; i++) {
+            if(i % 2 == 0)
+                uut.set(mock(CurrencyConverter.class));
+            else
+                uut.schedule(mock(CurrencyConverter.class), Instant.now().plusMillis(1));
+        }
+        Thread.sleep(5);
+        updating.set(false);
+        for (Thread thread : readers)
+            thread.join();
+
+        assertThat(failure.get()).isNull();
+        for (long version = 1; version <= uut.snapshot().getVersion(); version++) {
+            CurrencyConverter known = convertersByVersion.get(version);
+            if(known != null)
+                assertThat(uut.snapshot(version).getConverter()).isSameAs(known);
+        }
+    }
+
+    @Test
+    public void snapshot_failsOnUnknownVersions() throws Exception {
+        assertThatThrownBy(() -> uut.snapshot(2))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessage("Unknown version 2, current version is 1");
+        assertThatThrownBy(() -> uut.snapshot(0))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new UpdateableCurrencyConverter(mockConverter, 0))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void snapshot_retainsOnlyCurrentVersionByDefault() throws Exception {
+        uut.set(mock(CurrencyConverter.class));
+
+        assertThat(uut.getHistorySize()).isEqualTo(1);
+        assertThat(uut.snapshot(2)).isSameAs(uut.snapshot());
+        assertThatThrownBy(() -> uut.snapshot(1))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void update_derivesFromDueScheduledConverter() throws Exception {
+        Clock clock = mock(Clock.class);
+        when(clock.millis()).thenReturn(0L);
+        CurrencyConverter scheduledConverter = mock(CurrencyConverter.class);
+        CurrencyConverter derivedConverter = mock(CurrencyConverter.class);
+        AtomicReference<CurrencyConverter> changedConverter = new AtomicReference<>();
+        UpdateableCurrencyConverter uut = new UpdateableCurrencyConverter(mockConverter, 3, clock);
+        uut.schedule(scheduledConverter, Instant.ofEpochMilli(1000));
+        when(clock.millis()).thenReturn(1000L);
+
+        CurrencyConverterSnapshot snapshot = uut.update(current -> {
+            changedConverter.set(current);
+            return derivedConverter;
+        });
+
+        assertThat(changedConverter.get()).isSameAs(scheduledConverter);
+        assertThat(snapshot.getVersion()).isEqualTo(3);
+        assertThat(uut.snapshot()).isSameAs(snapshot);
+        assertThat(uut.snapshot().getConverter()).isSameAs(derivedConverter);
+        assertThat(uut.snapshot(2).getConverter()).isSameAs(scheduledConverter);
+    }
+
+    @Test
+    public void update_keepsConverterIfChangeFails() throws Exception {
+        assertThatThrownBy(() -> uut.update(current -> {
+            throw new IllegalStateException("conflicting rates");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(uut.snapshot().getConverter()).isSameAs(mockConverter);
+        assertThat(uut.snapshot().getVersion()).isEqualTo(1);
+    }
+
+    @Test
+    public void schedule_activatesConverterAtActivationInstant() throws Exception {
+        Clock clock = mock(Clock.class);
+        when(clock.millis()).thenReturn(999L);
+        CurrencyConverter scheduledConverter = mock(CurrencyConverter.class);
+        UpdateableCurrencyConverter uut = new UpdateableCurrencyConverter(mockConverter, 2, clock);
+
+        uut.schedule(scheduledConverter, Instant.ofEpochMilli(1000));
+
+        assertThat(uut.snapshot().getConverter()).isSameAs(mockConverter);
+        assertThat(uut.getScheduledCount()).isEqualTo(1);
+
+        when(clock.millis()).thenReturn(1000L);
+
+        assertThat(uut.snapshot().getConverter()).isSameAs(scheduledConverter);
+        assertThat(uut.snapshot().getVersion()).isEqualTo(2);
+        assertThat(uut.snapshot(1).getConverter()).isSameAs(mockConverter);
+        assertThat(uut.getScheduledCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void schedule_delegatesToActivatedConverter() throws Exception {
+        Clock clock = mock(Clock.class);
+        when(clock.millis()).thenReturn(0L);
+        CurrencyConverter scheduledConverter = mock(CurrencyConverter.class);
+        when(scheduledConverter.convertToPrice(eurAmount, USD)).thenReturn(usdAmount);
+        UpdateableCurrencyConverter uut = new UpdateableCurrencyConverter(mockConverter, 1, clock);
+
+        uut.schedule(scheduledConverter, Instant.ofEpochMilli(1000));
+        when(clock.millis()).thenReturn(1500L);
+        Money result = uut.convertToPrice(eurAmount, USD);
+
+        assertThat(result).isEqualTo(usdAmount);
+        verifyNoMoreInteractions(mockConverter);
+    }
+
+    @Test
+    public void schedule_neverActivatesBeforeSubMillisecondInstant() throws Exception {
+        Clock clock = mock(Clock.class);
+        when(clock.millis()).thenReturn(1000L);
+        UpdateableCurrencyConverter uut = new UpdateableCurrencyConverter(mockConverter, 1, clock);
+
+        uut.schedule(mock(CurrencyConverter.class), Instant.ofEpochSecond(1, 1));
+
+        assertThat(uut.snapshot().getConverter()).isSameAs(mockConverter);
+    }
+
+    @Test
+    public void schedule_activatesConvertersInOrderOfActivationInstants() throws Exception {
+        Clock clock = mock(Clock.class);
+        when(clock.millis()).thenReturn(0L);
+        CurrencyConverter firstConverter = mock(CurrencyConverter.class);
+        CurrencyConverter secondConverter = mock(CurrencyConverter.class);
+        UpdateableCurrencyConverter uut = new UpdateableCurrencyConverter(mockConverter, 3, clock);
+
+        uut.schedule(secondConverter, Instant.ofEpochMilli(2000));
+        uut.schedule(firstConverter, Instant.ofEpochMilli(1000));
+        when(clock.millis()).thenReturn(1000L);
+        assertThat(uut.snapshot().getConverter()).isSameAs(firstConverter);
+        when(clock.millis()).thenReturn(5000L);
+
+        assertThat(uut.snapshot().getConverter()).isSameAs(secondConverter);
+        assertThat(uut.snapshot().getVersion()).isEqualTo(3);
+        assertThat(uut.snapshot(2).getConverter()).isSameAs(firstConverter);
+    }
+
+    @Test
+    public void schedule_versionsSkippedActivationsInOrder() throws Exception {
+        Clock clock = mock(Clock.class);
+        when(clock.millis()).thenReturn(0L);
+        CurrencyConverter firstConverter = mock(CurrencyConverter.class);
+        CurrencyConverter secondConverter = mock(CurrencyConverter.class);
+        UpdateableCurrencyConverter uut = new UpdateableCurrencyConverter(mockConverter, 3, clock);
+
+        uut.schedule(firstConverter, Instant.ofEpochMilli(1000));
+        uut.schedule(secondConverter, Instant.ofEpochMilli(2000));
+        when(clock.millis()).thenReturn(5000L);
+
+        assertThat(uut.snapshot().getConverter()).isSameAs(secondConverter);
+        assertThat(uut.snapshot(2).getConverter()).isSameAs(firstConverter);
+    }
+
+    @Test
+    public void schedule_keepsScheduledConvertersOnSet() throws Exception {
+        Clock clock = mock(Clock.class);
+        when(clock.millis()).thenReturn(0L);
+        CurrencyConverter setConverter = mock(CurrencyConverter.class);
+        CurrencyConverter scheduledConverter = mock(CurrencyConverter.class);
+        UpdateableCurrencyConverter uut = new UpdateableCurrencyConverter(mockConverter, 1, clock);
+
+        uut.schedule(scheduledConverter, Instant.ofEpochMilli(1000));
+        uut.set(setConverter);
+        assertThat(uut.snapshot().getConverter()).isSameAs(setConverter);
+        when(clock.millis()).thenReturn(1000L);
+
+        assertThat(uut.snapshot().getConverter()).isSameAs(scheduledConverter);
+        assertThat(uut.snapshot().getVersion()).isEqualTo(3);
+    }
+
+}
@@ -0,0 +1,157 @@
+package com.mercateo.common.currency.binary;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.mercateo.common.currency.ConvertableCurrency;
+import com.mercateo.common.currency.ExchangeRate;
+import com.mercateo.common.currency.FrozenCurrencyConverter;
+import com.mercateo.common.currency.Money;
+import com.mercateo.common.currency.json.ExchangeRateJsonReader;
+import com.mercateo.common.currency.json.MoneyJacksonModule;
+
+/**
+ * Compares {@link MoneyBinaryCodec} with {@link MoneyJacksonModule} for single prices,
+ * 10k prices and converter snapshots of all currencies.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Fork(value = 3, warmups = 1)
+@Measurement(iterations = 5, time = 4, timeUnit = TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 4, timeUnit = TimeUnit.SECONDS)
+public class MoneyBinaryCodecBenchmark {
+    private static final int PRICE_COUNT = 10_000;
+
+    private ObjectMapper objectMapper;
+    private ObjectWriter moneyWriter;
+    private ObjectReader moneyReader;
+    private ObjectWriter pricesWriter;
+    private ObjectReader pricesReader;
+
+    private Money money;
+    private Money[] prices;
+    private FrozenCurrencyConverter converter;
+    private ByteBuffer buffer;
+    private byte[] moneyJson;
+    private byte[] pricesJson;
+    private byte[] converterJson;
+    private ByteBuffer moneyBinary;
+    private ByteBuffer pricesBinary;
+    private ByteBuffer converterBinary;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        objectMapper = new ObjectMapper().registerModule(new MoneyJacksonModule());
+        moneyWriter = objectMapper.writerFor(Money.class);
+        moneyReader = objectMapper.readerFor(Money.class);
+        pricesWriter = objectMapper.writerFor(Money[].class);
+        pricesReader = objectMapper.readerFor(Money[].class);
+
+        ConvertableCurrency[] currencies = ConvertableCurrency.values();
+        money = new Money(new BigDecimal("1234.56"), ConvertableCurrency.EUR);
+        prices = new Money[PRICE_COUNT];
+        for (int i = 0; i < PRICE_COUNT; i++)
+            prices[i] = new Money(BigDecimal.valueOf(100 + 37L * i, 2), currencies[i % currencies.length]);
+        Money baseValue = new Money(BigDecimal.ONE, ConvertableCurrency.EUR);
+        List<ExchangeRate> rates = Stream.of(currencies)
+                .filter(currency -> currency != ConvertableCurrency.EUR)
+                .map(currency -> new ExchangeRate(baseValue, new Money(BigDecimal.valueOf(100_000 + 37 * currency.ordinal(), 5), currency)))
+                .collect(Collectors.toList());
+        converter = new FrozenCurrencyConverter(rates);
+
+        buffer = ByteBuffer.allocate(1 << 20);
+        moneyJson = moneyWriter.writeValueAsBytes(money);
+        pricesJson = pricesWriter.writeValueAsBytes(prices);
+        converterJson = objectMapper.writeValueAsBytes(converter.getDirectRates());
+        moneyBinary = ByteBuffer.wrap(encode(buffer -> MoneyBinaryCodec.writeMoney(buffer, money)));
+        pricesBinary = ByteBuffer.wrap(encode(this::writePrices));
+        converterBinary = ByteBuffer.wrap(encode(buffer -> MoneyBinaryCodec.writeConverter(buffer, converter)));
+    }
+
+    private byte[] encode(Consumer<ByteBuffer> writer) {
+        buffer.clear();
+        writer.accept(buffer);
+        buffer.flip();
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private ByteBuffer writePrices(ByteBuffer target) {
+        for (Money price : prices)
+            MoneyBinaryCodec.writeMoney(target, price);
+        return target;
+    }
+
+    @Benchmark
+    public byte[] jackson_serializeMoney() throws IOException {
+        return moneyWriter.writeValueAsBytes(money);
+    }
+
+    @Benchmark
+    public ByteBuffer binary_serializeMoney() {
+        buffer.clear();
+        MoneyBinaryCodec.writeMoney(buffer, money);
+        return buffer;
+    }
+
+    @Benchmark
+    public Money jackson_deserializeMoney() throws IOException {
+        return moneyReader.readValue(moneyJson);
+    }
+
+    @Benchmark
+    public Money binary_deserializeMoney() {
+        return MoneyBinaryCodec.readMoney(moneyBinary.clear());
+    }
+
+    @Benchmark
+    public byte[] jackson_serializePrices() throws IOException {
+        return pricesWriter.writeValueAsBytes(prices);
+    }
+
+    @Benchmark
+    public ByteBuffer binary_serializePrices() {
+        buffer.clear();
+        return writePrices(buffer);
+    }
+
+    @Benchmark
+    public Money[] jackson_deserializePrices() throws IOException {
+        return pricesReader.readValue(pricesJson);
+    }
+
+    @Benchmark
+    public Money[] binary_deserializePrices() {
+        pricesBinary.clear();
+        Money[] decoded = new Money[PRICE_COUNT];
+        for (int i = 0; i < PRICE_COUNT; i++)
+            decoded[i] = MoneyBinaryCodec.readMoney(pricesBinary);
+        return decoded;
+    }
+
+    @Benchmark
+    public FrozenCurrencyConverter jackson_deserializeConverter() throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(converterJson)) {
+            return ExchangeRateJsonReader.readConverter(parser);
+        }
+    }
+
+    @Benchmark
+    public FrozenCurrencyConverter binary_deserializeConverter() {
+        return MoneyBinaryCodec.readConverter(converterBinary.clear());
+    }
+}
@@ -0,0 +1,121 @@
+package com.mercateo.common.currency.binary;
+
+import static com.mercateo.common.currency.ConvertableCurrency.EUR;
+import static com.mercateo.common.currency.ConvertableCurrency.GBP;
+import static com.mercateo.common.currency.ConvertableCurrency.HUF;
+import static com.mercateo.common.currency.ConvertableCurrency.MXN;
+import static com.mercateo.common.currency.ConvertableCurrency.USD;
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.mercateo.common.currency.ExchangeRate;
+import com.mercateo.common.currency.FrozenCurrencyConverter;
+import com.mercateo.common.currency.Money;
+
+public class MoneyBinaryCodecTest {
+    private static final Money EUR_RATE = new Money(BigDecimal.ONE, EUR);
+    private static final List<ExchangeRate> RATES = asList(
+            new ExchangeRate(EUR_RATE, new Money(new BigDecimal("1.09"), USD)),
+            new ExchangeRate(EUR_RATE, new Money(new BigDecimal("0.84"), GBP)),
+            new ExchangeRate(new Money(new BigDecimal("100"), HUF), new Money(new BigDecimal("0.27"), USD)));
+
+    private static ByteBuffer encode(Money money) {
+        ByteBuffer buffer = ByteBuffer.allocate(MoneyBinaryCodec.sizeOf(money));
+        MoneyBinaryCodec.writeMoney(buffer, money);
+        assertThat(buffer.hasRemaining()).isFalse();
+        return buffer.flip();
+    }
+
+    @Test
+    public void encodesMoneyAsOrdinalZigZagUnscaledAmountAndScale() throws Exception {
+        ByteBuffer buffer = encode(new Money(new BigDecimal("12.34"), EUR));
+
+        assertThat(buffer.array()).containsExactly(0x00, 0xA4 - 256, 0x13, 0x04);
+        assertThat(encode(new Money(new BigDecimal("-0.5"), USD)).array()).containsExactly(0x01, 0x09, 0x02);
+    }
+
+    @Test
+    public void roundTripsMoney() throws Exception {
+        for (String amount : asList("0", "0.00", "-1", "12.34", "1E+3", "-9223372036854775808", "9223372036854775807",
+                "9223372036854775808", "-123456789012345678901234567890.123", "1E-300")) {
+            Money money = new Money(new BigDecimal(amount), MXN);
+
+            Money decoded = MoneyBinaryCodec.readMoney(encode(money));
+
+            assertThat(decoded).isEqualTo(money);
+        }
+    }
+
+    @Test
+    public void readsMoneyFromDirectBuffers() throws Exception {
+        Money money = new Money(new BigDecimal("123456789012345678901234567890.12"), HUF);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(2 * MoneyBinaryCodec.sizeOf(money));
+        MoneyBinaryCodec.writeMoney(buffer, money);
+        MoneyBinaryCodec.writeMoney(buffer, money);
+        buffer.flip();
+
+        assertThat(MoneyBinaryCodec.readMoney(buffer)).isEqualTo(money);
+        assertThat(MoneyBinaryCodec.readMoney(buffer)).isEqualTo(money);
+        assertThat(buffer.hasRemaining()).isFalse();
+    }
+
+    @Test
+    public void roundTripsExchangeRates() throws Exception {
+        ByteBuffer buffer = ByteBuffer.allocate(MoneyBinaryCodec.sizeOf(RATES.get(2)));
+        MoneyBinaryCodec.writeExchangeRate(buffer, RATES.get(2));
+        buffer.flip();
+
+        assertThat(MoneyBinaryCodec.readExchangeRate(buffer)).isEqualTo(RATES.get(2));
+    }
+
+    @Test
+    public void roundTripsConverters() throws Exception {
+        FrozenCurrencyConverter converter = new FrozenCurrencyConverter(RATES);
+        ByteBuffer buffer = ByteBuffer.allocate(MoneyBinaryCodec.sizeOf(converter));
+        MoneyBinaryCodec.writeConverter(buffer, converter);
+        buffer.flip();
+
+        FrozenCurrencyConverter decoded = MoneyBinaryCodec.readConverter(buffer);
+
+        assertThat(decoded.getDirectRates()).isEqualTo(converter.getDirectRates());
+        assertThat(decoded.getExchangeRate(GBP, HUF)).isEqualTo(converter.getExchangeRate(GBP, HUF));
+        assertThat(decoded.getDirectRates().get(1).getBaseValue()).isSameAs(decoded.getDirectRates().get(0).getBaseValue());
+    }
+
+    @Test
+    public void readsConvertersSharingRatesWithPreviousConverter() throws Exception {
+        FrozenCurrencyConverter converter = new FrozenCurrencyConverter(RATES);
+        ByteBuffer buffer = ByteBuffer.allocate(MoneyBinaryCodec.sizeOf(converter));
+        MoneyBinaryCodec.writeConverter(buffer, converter);
+        buffer.flip();
+
+        FrozenCurrencyConverter decoded = MoneyBinaryCodec.readConverter(buffer, converter);
+
+        assertThat(decoded.getExchangeRate(GBP, HUF)).isSameAs(converter.getExchangeRate(GBP, HUF));
+    }
+
+    @Test
+    public void rejectsInvalidEncodings() throws Exception {
+        assertThatThrownBy(() -> MoneyBinaryCodec.readMoney(ByteBuffer.wrap(new byte[] { 0x7F, 0x00, 0x00 })))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessage("Unknown currency ordinal 127");
+        assertThatThrownBy(() -> MoneyBinaryCodec.readMoney(ByteBuffer.wrap(new byte[] { 0x00, (byte) 0x80 })))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessage("Truncated encoded value");
+        assertThatThrownBy(() -> MoneyBinaryCodec.readConverter(ByteBuffer.wrap(new byte[] { 0x4D, 0x43, 0x43, 0x53, 1, 0 })))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessage("No encoded converter, magic number 4d434353");
+        assertThatThrownBy(() -> MoneyBinaryCodec.readConverter(ByteBuffer.wrap(new byte[] { 0x4D, 0x43, 0x43, 0x52, 2, 0 })))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessage("Unsupported converter format version 2");
+        assertThatThrownBy(() -> MoneyBinaryCodec.readConverter(ByteBuffer.wrap(new byte[] { 0x4D, 0x43, 0x43, 0x52, 1, 3, 0 })))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+}
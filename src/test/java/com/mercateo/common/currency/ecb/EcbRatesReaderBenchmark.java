@@ -0,0 +1,63 @@
+package com.mercateo.common.currency.ecb;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.mercateo.common.currency.FrozenCurrencyConverter;
+import com.mercateo.common.currency.history.ExchangeRateHistory;
+
+/**
+ * Reads a file shaped like the full ECB history: business days since 1999, newest first,
+ * with 30 currencies per day of which about a third are no ConvertableCurrency.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Fork(value = 3, warmups = 1)
+@Measurement(iterations = 5, time = 4, timeUnit = TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 4, timeUnit = TimeUnit.SECONDS)
+public class EcbRatesReaderBenchmark {
+
+    private static final LocalDate FIRST_DATE = LocalDate.of(1999, 1, 4);
+    private static final LocalDate LAST_DATE = LocalDate.of(2025, 12, 31);
+    private static final String[] CURRENCY_CODES = { "USD", "JPY", "BGN", "CZK", "DKK", "GBP", "HUF", "PLN", "RON", "SEK",
+            "CHF", "ISK", "NOK", "TRY", "AUD", "BRL", "CAD", "CNY", "HKD", "IDR", "ILS", "INR", "KRW", "MXN", "MYR", "NZD",
+            "PHP", "SGD", "THB", "ZAR" };
+
+    private byte[] historyFile;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        StringBuilder file = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<gesmes:Envelope xmlns:gesmes=\"http://www.gesmes.org/xml/2002-08-01\" xmlns=\"http://www.ecb.int/vocabulary/2002-08-01/eurofxref\">\n"
+                + "<Cube>\n");
+        for (LocalDate date = LAST_DATE; ! date.isBefore(FIRST_DATE); date = date.minusDays(1)) {
+            if(date.getDayOfWeek() == DayOfWeek.SATURDAY || date.getDayOfWeek() == DayOfWeek.SUNDAY)
+                continue;
+            file.append("<Cube time=\"").append(date).append("\">\n");
+            for (int i = 0; i < CURRENCY_CODES.length; i++) {
+                file.append("<Cube currency=\"").append(CURRENCY_CODES[i]).append("\" rate=\"")
+                    .append(1 + i).append('.').append(1000 + date.getDayOfYear()).append("\"/>\n");
+            }
+            file.append("</Cube>\n");
+        }
+        file.append("</Cube>\n</gesmes:Envelope>\n");
+        historyFile = file.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public ExchangeRateHistory readHistory() throws IOException {
+        return EcbRatesReader.readHistory(new ByteArrayInputStream(historyFile));
+    }
+
+    @Benchmark
+    public FrozenCurrencyConverter readLatest() throws IOException {
+        return EcbRatesReader.readLatest(new ByteArrayInputStream(historyFile));
+    }
+}
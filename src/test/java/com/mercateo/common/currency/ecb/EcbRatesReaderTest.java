@@ -0,0 +1,115 @@
+package com.mercateo.common.currency.ecb;
+
+import static com.mercateo.common.currency.ConvertableCurrency.EUR;
+import static com.mercateo.common.currency.ConvertableCurrency.GBP;
+import static com.mercateo.common.currency.ConvertableCurrency.USD;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.mercateo.common.currency.ConvertableCurrency;
+import com.mercateo.common.currency.ExchangeRate;
+import com.mercateo.common.currency.FrozenCurrencyConverter;
+import com.mercateo.common.currency.Money;
+import com.mercateo.common.currency.history.ExchangeRateHistory;
+
+public class EcbRatesReaderTest {
+    private static final String HEADER = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<gesmes:Envelope xmlns:gesmes=\"http://www.gesmes.org/xml/2002-08-01\" xmlns=\"http://www.ecb.int/vocabulary/2002-08-01/eurofxref\">\n"
+            + "<gesmes:subject>Reference rates</gesmes:subject>\n"
+            + "<gesmes:Sender><gesmes:name>European Central Bank</gesmes:name></gesmes:Sender>\n"
+            + "<Cube>\n";
+    private static final String FOOTER = "</Cube>\n</gesmes:Envelope>\n";
+    private static final String DAILY_FILE = HEADER
+            + "<Cube time=\"2025-03-04\">\n"
+            + "<Cube currency=\"USD\" rate=\"1.0550\"/>\n"
+            + "<Cube currency=\"JPY\" rate=\"156.68\"/>\n"
+            + "<Cube currency=\"GBP\" rate=\"0.82735\"/>\n"
+            + "</Cube>\n"
+            + FOOTER;
+    private static final String HISTORY_FILE = HEADER
+            + "<Cube time=\"2025-03-04\"><Cube currency=\"USD\" rate=\"1.0550\"/><Cube currency=\"GBP\" rate=\"0.82735\"/></Cube>\n"
+            + "<Cube time=\"2025-03-03\"><Cube currency=\"USD\" rate=\"1.0465\"/><Cube currency=\"ISK\" rate=\"145.5\"/></Cube>\n"
+            + "<Cube time=\"2025-02-28\"><Cube currency=\"USD\" rate=\"1.0405\"/><Cube currency=\"GBP\" rate=\"0.8260\"/></Cube>\n"
+            + FOOTER;
+
+    private static InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static ExchangeRate rate(String value, ConvertableCurrency currency) {
+        return new ExchangeRate(new Money(BigDecimal.ONE, EUR), new Money(new BigDecimal(value), currency));
+    }
+
+    @Test
+    public void readsDailyRatesSkippingUnknownCurrencies() throws Exception {
+        Map<LocalDate, List<ExchangeRate>> dailyRates = new LinkedHashMap<>();
+
+        EcbRatesReader.read(stream(DAILY_FILE), dailyRates::put);
+
+        assertThat(dailyRates).containsOnlyKeys(LocalDate.of(2025, 3, 4));
+        assertThat(dailyRates.get(LocalDate.of(2025, 3, 4))).containsExactly(rate("1.0550", USD), rate("0.82735", GBP));
+    }
+
+    @Test
+    public void readsHistoryDatesInFileOrder() throws Exception {
+        Map<LocalDate, List<ExchangeRate>> dailyRates = new LinkedHashMap<>();
+
+        EcbRatesReader.read(stream(HISTORY_FILE), dailyRates::put);
+
+        assertThat(dailyRates.keySet()).containsExactly(LocalDate.of(2025, 3, 4), LocalDate.of(2025, 3, 3), LocalDate.of(2025, 2, 28));
+        assertThat(dailyRates.get(LocalDate.of(2025, 3, 3))).containsExactly(rate("1.0465", USD));
+    }
+
+    @Test
+    public void readsConverterOfLatestDate() throws Exception {
+        FrozenCurrencyConverter converter = EcbRatesReader.readLatest(stream(HISTORY_FILE));
+
+        assertThat(converter.getExchangeRate(EUR, USD)).isEqualTo(rate("1.0550", USD));
+        assertThat(converter.getExchangeRate(EUR, GBP)).isEqualTo(rate("0.82735", GBP));
+        assertThat(EcbRatesReader.readLatest(stream(DAILY_FILE)).getExchangeRate(EUR, USD)).isEqualTo(rate("1.0550", USD));
+    }
+
+    @Test
+    public void readsHistory() throws Exception {
+        ExchangeRateHistory history = EcbRatesReader.readHistory(stream(HISTORY_FILE));
+
+        assertThat(history.getFirstDate()).isEqualTo(LocalDate.of(2025, 2, 28));
+        assertThat(history.getLastDate()).isEqualTo(LocalDate.of(2025, 3, 4));
+        assertThat(history.getExchangeRate(EUR, GBP, LocalDate.of(2025, 3, 3)).getRateValue().getAmount())
+            .isEqualByComparingTo("0.8260");
+    }
+
+    @Test
+    public void failsOnInvalidFiles() throws Exception {
+        assertThatThrownBy(() -> EcbRatesReader.read(stream(HEADER), (date, rates) -> {}))
+            .isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> EcbRatesReader.readLatest(stream(HEADER + "<Cube time=\"2025-13-01\"/>" + FOOTER)))
+            .isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> EcbRatesReader.readLatest(stream(HEADER + "<Cube currency=\"USD\" rate=\"1.05\"/>" + FOOTER)))
+            .isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> EcbRatesReader.readLatest(stream(HEADER + FOOTER)))
+            .isInstanceOf(IOException.class)
+            .hasMessage("No exchange rates in file");
+    }
+
+    @Test
+    public void doesNotResolveExternalEntities() throws Exception {
+        String file = "<?xml version=\"1.0\"?>\n<!DOCTYPE Cube [<!ENTITY rate SYSTEM \"file:///etc/hostname\">]>\n"
+                + "<Cube><Cube time=\"2025-03-04\"><Cube currency=\"USD\" rate=\"&rate;\"/></Cube></Cube>";
+
+        assertThatThrownBy(() -> EcbRatesReader.readLatest(stream(file)))
+            .isInstanceOf(IOException.class);
+    }
+}
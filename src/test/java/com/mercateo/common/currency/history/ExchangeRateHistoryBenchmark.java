@@ -0,0 +1,91 @@
+package com.mercateo.common.currency.history;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.mercateo.common.currency.ConvertableCurrency;
+import com.mercateo.common.currency.ExchangeRate;
+import com.mercateo.common.currency.Money;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Fork(value = 3, warmups = 1)
+@Measurement(iterations = 5, time = 4, timeUnit = TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 4, timeUnit = TimeUnit.SECONDS)
+public class ExchangeRateHistoryBenchmark {
+
+    private static final LocalDate FIRST_DATE = LocalDate.of(2015, 1, 1);
+    private static final int YEARS = 10;
+
+    private ExchangeRateHistory history;
+    private Path historyFile;
+    private MappedExchangeRateHistory mappedHistory;
+    private LocalDate[] recentDates;
+    private int lookupIndex;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Money baseValue = new Money(BigDecimal.ONE, ConvertableCurrency.EUR);
+        Map<LocalDate, List<ExchangeRate>> dailyRates = new TreeMap<>();
+        for (LocalDate date = FIRST_DATE; date.isBefore(FIRST_DATE.plusYears(YEARS)); date = date.plusDays(1)) {
+            List<ExchangeRate> rates = new ArrayList<>();
+            for (ConvertableCurrency currency : ConvertableCurrency.values()) {
+                if(currency != ConvertableCurrency.EUR)
+                    rates.add(new ExchangeRate(baseValue, new Money(BigDecimal.valueOf(100_000 + 37 * currency.ordinal() + date.getDayOfYear(), 5), currency)));
+            }
+            dailyRates.put(date, rates);
+        }
+        history = new ExchangeRateHistory(ConvertableCurrency.EUR, dailyRates);
+        historyFile = Files.createTempFile("rates", ".bin");
+        Files.delete(historyFile);
+        try (ExchangeRateHistoryWriter writer = ExchangeRateHistoryWriter.create(historyFile, ConvertableCurrency.EUR)) {
+            for (Map.Entry<LocalDate, List<ExchangeRate>> dailyEntry : dailyRates.entrySet())
+                writer.append(dailyEntry.getKey(), dailyEntry.getValue());
+        }
+        mappedHistory = MappedExchangeRateHistory.open(historyFile);
+        recentDates = new LocalDate[8];
+        for (int i = 0; i < recentDates.length; i++)
+            recentDates[i] = FIRST_DATE.plusYears(YEARS).minusDays(1 + i);
+    }
+
+    @Benchmark
+    public ExchangeRate getExchangeRate_sameDate() {
+        return history.getExchangeRate(ConvertableCurrency.GBP, ConvertableCurrency.USD, recentDates[0]);
+    }
+
+    @Benchmark
+    public ExchangeRate getExchangeRate_recentDates() {
+        return history.getExchangeRate(ConvertableCurrency.GBP, ConvertableCurrency.USD, recentDates[lookupIndex++ & 7]);
+    }
+
+    @Benchmark
+    public BigDecimal mapped_getRateValue() {
+        return mappedHistory.getRateValue(ConvertableCurrency.USD, recentDates[lookupIndex++ & 7]);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int mapped_open() throws IOException {
+        try (MappedExchangeRateHistory opened = MappedExchangeRateHistory.open(historyFile)) {
+            return opened.getRecordCount();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        mappedHistory.close();
+        Files.delete(historyFile);
+    }
+}
@@ -0,0 +1,141 @@
+package com.mercateo.common.currency.history;
+
+import static com.mercateo.common.currency.ConvertableCurrency.EUR;
+import static com.mercateo.common.currency.ConvertableCurrency.GBP;
+import static com.mercateo.common.currency.ConvertableCurrency.HUF;
+import static com.mercateo.common.currency.ConvertableCurrency.USD;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.mercateo.common.currency.ConvertableCurrency;
+import com.mercateo.common.currency.ExchangeRate;
+import com.mercateo.common.currency.FrozenCurrencyConverter;
+import com.mercateo.common.currency.Money;
+
+public class ExchangeRateHistoryTest {
+    private static final Money EUR_RATE = new Money(BigDecimal.ONE, EUR);
+    private static final LocalDate FRIDAY = LocalDate.of(2025, 3, 14);
+    private static final LocalDate MONDAY = LocalDate.of(2025, 3, 17);
+
+    private final ExchangeRateHistory uut = new ExchangeRateHistory(EUR, dailyRates());
+
+    private static Map<LocalDate, List<ExchangeRate>> dailyRates() {
+        Map<LocalDate, List<ExchangeRate>> dailyRates = new HashMap<>();
+        dailyRates.put(MONDAY, asList(
+                rate(USD, "1.10"),
+                rate(GBP, "0.85")));
+        dailyRates.put(FRIDAY, asList(
+                rate(USD, "1.09"),
+                rate(GBP, "0.84"),
+                rate(HUF, "400")));
+        return dailyRates;
+    }
+
+    private static ExchangeRate rate(ConvertableCurrency currency, String value) {
+        return new ExchangeRate(EUR_RATE, new Money(new BigDecimal(value), currency));
+    }
+
+    @Test
+    public void findsRatesOfTheDate() throws Exception {
+        assertThat(uut.getExchangeRate(EUR, USD, FRIDAY).getRateValue().getAmount()).isEqualByComparingTo("1.09");
+        assertThat(uut.getExchangeRate(EUR, USD, MONDAY).getRateValue().getAmount()).isEqualByComparingTo("1.10");
+        assertThat(uut.getExchangeRate(GBP, USD, MONDAY).getRateValue().getAmount()).isEqualByComparingTo("1.2941176471");
+    }
+
+    @Test
+    public void findsLatestRatesBeforeTheDate() throws Exception {
+        assertThat(uut.getExchangeRate(EUR, USD, FRIDAY.plusDays(2)).getRateValue().getAmount()).isEqualByComparingTo("1.09");
+        assertThat(uut.getExchangeRate(EUR, HUF, MONDAY.plusYears(1)).getRateValue().getAmount()).isEqualByComparingTo("400");
+        assertThat(uut.getExchangeRate(USD, EUR, MONDAY.plusDays(3)).getRateValue().getAmount()).isEqualByComparingTo("0.9090909091");
+    }
+
+    @Test
+    public void convertsLikeConverterOfTheDailyRates() throws Exception {
+        FrozenCurrencyConverter expected = new FrozenCurrencyConverter(dailyRates().get(FRIDAY));
+        Money price = new Money(new BigDecimal("12.34"), GBP);
+
+        assertThat(uut.converterAsOf(FRIDAY).convertToPrice(price, HUF)).isEqualTo(expected.convertToPrice(price, HUF));
+        assertThat(uut.converterAsOf(FRIDAY).convertToPrice(price, USD)).isEqualTo(expected.convertToPrice(price, USD));
+    }
+
+    @Test
+    public void cachesConverters() throws Exception {
+        FrozenCurrencyConverter fridayConverter = uut.converterAsOf(FRIDAY);
+
+        assertThat(uut.converterAsOf(MONDAY)).isNotSameAs(fridayConverter);
+        assertThat(uut.converterAsOf(FRIDAY.plusDays(1))).isSameAs(fridayConverter);
+        assertThat(uut.converterAsOf(MONDAY.plusDays(1))).isSameAs(uut.converterAsOf(MONDAY));
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedConverters() throws Exception {
+        ExchangeRateHistory uut = new ExchangeRateHistory(EUR, dailyRates(), 1);
+        FrozenCurrencyConverter fridayConverter = uut.converterAsOf(FRIDAY);
+
+        uut.converterAsOf(MONDAY);
+
+        assertThat(uut.converterAsOf(FRIDAY)).isNotSameAs(fridayConverter);
+    }
+
+    @Test
+    public void acceptsInverseRates() throws Exception {
+        Map<LocalDate, List<ExchangeRate>> dailyRates = new HashMap<>();
+        dailyRates.put(FRIDAY, singletonList(new ExchangeRate(new Money(new BigDecimal("4"), HUF), new Money(new BigDecimal("0.01"), EUR))));
+
+        ExchangeRateHistory uut = new ExchangeRateHistory(EUR, dailyRates);
+
+        assertThat(uut.getExchangeRate(EUR, HUF, FRIDAY).getRateValue().getAmount()).isEqualByComparingTo("400");
+    }
+
+    @Test
+    public void exposesDateRange() throws Exception {
+        assertThat(uut.getFirstDate()).isEqualTo(FRIDAY);
+        assertThat(uut.getLastDate()).isEqualTo(MONDAY);
+        assertThat(new ExchangeRateHistory(EUR, new HashMap<>()).getFirstDate()).isNull();
+    }
+
+    @Test
+    public void failsBeforeFirstDate() throws Exception {
+        assertThatThrownBy(() -> uut.converterAsOf(FRIDAY.minusDays(1)))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessage("No exchange rates as of 2025-03-13");
+    }
+
+    @Test
+    public void failsOnCurrencyWithoutRateBeforeTheDate() throws Exception {
+        Map<LocalDate, List<ExchangeRate>> dailyRates = dailyRates();
+        dailyRates.put(FRIDAY, singletonList(rate(USD, "1.09")));
+        ExchangeRateHistory uut = new ExchangeRateHistory(EUR, dailyRates);
+
+        assertThatThrownBy(() -> uut.getExchangeRate(EUR, GBP, FRIDAY))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void failsOnRatesNotRelativeToBaseCurrency() throws Exception {
+        Map<LocalDate, List<ExchangeRate>> dailyRates = new HashMap<>();
+        dailyRates.put(FRIDAY, singletonList(new ExchangeRate(new Money(BigDecimal.ONE, USD), new Money(new BigDecimal("0.77"), GBP))));
+
+        assertThatThrownBy(() -> new ExchangeRateHistory(EUR, dailyRates))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void failsOnConflictingRatesOfTheSameDate() throws Exception {
+        Map<LocalDate, List<ExchangeRate>> dailyRates = new HashMap<>();
+        dailyRates.put(FRIDAY, asList(rate(USD, "1.09"), rate(USD, "1.10")));
+
+        assertThatThrownBy(() -> new ExchangeRateHistory(EUR, dailyRates))
+            .isInstanceOf(IllegalStateException.class);
+    }
+}
@@ -0,0 +1,106 @@
+package com.mercateo.common.currency.history;
+
+import static com.mercateo.common.currency.ConvertableCurrency.EUR;
+import static com.mercateo.common.currency.ConvertableCurrency.GBP;
+import static com.mercateo.common.currency.ConvertableCurrency.USD;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.mercateo.common.currency.ExchangeRate;
+import com.mercateo.common.currency.Money;
+
+public class ExchangeRateHistoryWriterTest {
+    private static final Money EUR_RATE = new Money(BigDecimal.ONE, EUR);
+    private static final LocalDate FRIDAY = LocalDate.of(2025, 3, 14);
+    private static final ExchangeRate USD_RATE = new ExchangeRate(EUR_RATE, new Money(new BigDecimal("1.09"), USD));
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private Path newPath() {
+        return temporaryFolder.getRoot().toPath().resolve("rates.bin");
+    }
+
+    @Test
+    public void writesHeaderAndFixedWidthRecords() throws Exception {
+        Path path = newPath();
+        try (ExchangeRateHistoryWriter uut = ExchangeRateHistoryWriter.create(path, EUR)) {
+            uut.append(FRIDAY, asList(USD_RATE, new ExchangeRate(new Money(new BigDecimal("0.84"), GBP), EUR_RATE)));
+            assertThat(uut.getRecordCount()).isEqualTo(2);
+        }
+
+        ByteBuffer file = ByteBuffer.wrap(Files.readAllBytes(path));
+        assertThat(file.limit()).isEqualTo(HistoryFileFormat.HEADER_SIZE + 2 * HistoryFileFormat.RECORD_SIZE);
+        assertThat(file.getInt(0)).isEqualTo(HistoryFileFormat.MAGIC);
+        assertThat(file.getLong(HistoryFileFormat.RECORD_COUNT_OFFSET)).isEqualTo(2);
+        assertThat(file.getInt(16)).isEqualTo((int) FRIDAY.toEpochDay());
+        assertThat(file.get(20)).isEqualTo((byte) USD.ordinal());
+        assertThat(file.get(21)).isEqualTo((byte) 2);
+        assertThat(file.getLong(24)).isEqualTo(109L);
+        assertThat(file.get(36)).isEqualTo((byte) GBP.ordinal());
+    }
+
+    @Test
+    public void ignoresUncommittedRecords() throws Exception {
+        Path path = newPath();
+        try (ExchangeRateHistoryWriter uut = ExchangeRateHistoryWriter.create(path, EUR)) {
+            uut.append(FRIDAY, singletonList(USD_RATE));
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.allocate(HistoryFileFormat.RECORD_SIZE + 3));
+        }
+
+        try (ExchangeRateHistoryWriter uut = ExchangeRateHistoryWriter.open(path)) {
+            assertThat(uut.getRecordCount()).isEqualTo(1);
+            uut.append(FRIDAY.plusDays(1), singletonList(USD_RATE));
+        }
+        try (MappedExchangeRateHistory history = MappedExchangeRateHistory.open(path)) {
+            assertThat(history.getRecordCount()).isEqualTo(2);
+            assertThat(history.getLastDate()).isEqualTo(FRIDAY.plusDays(1));
+        }
+    }
+
+    @Test
+    public void failsToAppendEarlierDates() throws Exception {
+        try (ExchangeRateHistoryWriter uut = ExchangeRateHistoryWriter.create(newPath(), EUR)) {
+            uut.append(FRIDAY, singletonList(USD_RATE));
+
+            assertThatThrownBy(() -> uut.append(FRIDAY.minusDays(1), singletonList(USD_RATE)))
+                .isInstanceOf(IllegalArgumentException.class);
+            assertThat(uut.getRecordCount()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    public void failsToAppendRatesNotRelativeToBaseCurrency() throws Exception {
+        try (ExchangeRateHistoryWriter uut = ExchangeRateHistoryWriter.create(newPath(), EUR)) {
+            assertThatThrownBy(() -> uut.append(FRIDAY, singletonList(
+                    new ExchangeRate(new Money(BigDecimal.ONE, USD), new Money(new BigDecimal("0.77"), GBP)))))
+                .isInstanceOf(IllegalArgumentException.class);
+            assertThat(uut.getRecordCount()).isZero();
+        }
+    }
+
+    @Test
+    public void failsToCreateExistingFile() throws Exception {
+        Path path = temporaryFolder.newFile().toPath();
+
+        assertThatThrownBy(() -> ExchangeRateHistoryWriter.create(path, EUR))
+            .isInstanceOf(IOException.class);
+    }
+}
@@ -0,0 +1,121 @@
+package com.mercateo.common.currency.history;
+
+import static com.mercateo.common.currency.ConvertableCurrency.EUR;
+import static com.mercateo.common.currency.ConvertableCurrency.GBP;
+import static com.mercateo.common.currency.ConvertableCurrency.HUF;
+import static com.mercateo.common.currency.ConvertableCurrency.USD;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.mercateo.common.currency.ConvertableCurrency;
+import com.mercateo.common.currency.ExchangeRate;
+import com.mercateo.common.currency.Money;
+
+public class ExchangeRatePeriodIndexTest {
+    private static final Money EUR_RATE = new Money(BigDecimal.ONE, EUR);
+    private static final LocalDate MARCH_3 = LocalDate.of(2025, 3, 3);
+    private static final LocalDate MARCH_4 = LocalDate.of(2025, 3, 4);
+    private static final LocalDate MARCH_5 = LocalDate.of(2025, 3, 5);
+    private static final LocalDate MARCH_6 = LocalDate.of(2025, 3, 6);
+
+    private final ExchangeRatePeriodIndex uut = new ExchangeRatePeriodIndex(new ExchangeRateHistory(EUR, dailyRates()));
+
+    private static Map<LocalDate, List<ExchangeRate>> dailyRates() {
+        Map<LocalDate, List<ExchangeRate>> dailyRates = new HashMap<>();
+        dailyRates.put(MARCH_3, asList(rate(USD, "1.04"), rate(GBP, "0.83")));
+        dailyRates.put(MARCH_4, asList(rate(USD, "1.06"), rate(GBP, "0.82")));
+        dailyRates.put(MARCH_5, asList(rate(USD, "1.08")));
+        dailyRates.put(MARCH_6, asList(rate(USD, "1.07"), rate(GBP, "0.84")));
+        return dailyRates;
+    }
+
+    private static ExchangeRate rate(ConvertableCurrency currency, String value) {
+        return new ExchangeRate(EUR_RATE, new Money(new BigDecimal(value), currency));
+    }
+
+    @Test
+    public void averagesRatesWithinRange() throws Exception {
+        assertThat(uut.getAverageRateValue(USD, MARCH_3, MARCH_6)).isEqualTo(new BigDecimal("1.0625"));
+        assertThat(uut.getAverageRateValue(USD, MARCH_4, MARCH_5)).isEqualTo(new BigDecimal("1.07"));
+        assertThat(uut.getAverageRateValue(GBP, MARCH_3, MARCH_6)).isEqualTo(new BigDecimal("0.83"));
+        assertThat(uut.getAverageRateValue(GBP, MARCH_4, MARCH_5)).isEqualTo(new BigDecimal("0.82"));
+        assertThat(uut.getAverageRateValue(EUR, MARCH_4, MARCH_5)).isEqualTo(BigDecimal.ONE);
+    }
+
+    @Test
+    public void roundsAveragesHalfEven() throws Exception {
+        Map<LocalDate, List<ExchangeRate>> dailyRates = new HashMap<>();
+        dailyRates.put(MARCH_3, singletonList(rate(USD, "1")));
+        dailyRates.put(MARCH_4, singletonList(rate(USD, "1")));
+        dailyRates.put(MARCH_5, singletonList(rate(USD, "2")));
+        ExchangeRatePeriodIndex uut = new ExchangeRatePeriodIndex(new ExchangeRateHistory(EUR, dailyRates));
+
+        assertThat(uut.getAverageRateValue(USD, MARCH_3, MARCH_5)).isEqualTo(new BigDecimal("1.3333333333"));
+    }
+
+    @Test
+    public void averagesRatesExceedingLongRangeExactly() throws Exception {
+        Map<LocalDate, List<ExchangeRate>> dailyRates = new HashMap<>();
+        dailyRates.put(MARCH_3, singletonList(rate(HUF, "900000000")));
+        dailyRates.put(MARCH_4, singletonList(rate(HUF, "900000000.0000000001")));
+        dailyRates.put(MARCH_5, singletonList(rate(HUF, "900000000.0000000002")));
+        ExchangeRatePeriodIndex uut = new ExchangeRatePeriodIndex(new ExchangeRateHistory(EUR, dailyRates));
+
+        assertThat(uut.getAverageRateValue(HUF, MARCH_3, MARCH_5)).isEqualTo(new BigDecimal("900000000.0000000001"));
+        assertThat(uut.getAverageRateValue(HUF, MARCH_4, MARCH_5)).isEqualTo(new BigDecimal("900000000.0000000002"));
+    }
+
+    @Test
+    public void findsMinimumAndMaximumWithinRange() throws Exception {
+        assertThat(uut.getMinimumRateValue(USD, MARCH_3, MARCH_6)).isEqualTo(new BigDecimal("1.04"));
+        assertThat(uut.getMaximumRateValue(USD, MARCH_3, MARCH_6)).isEqualTo(new BigDecimal("1.08"));
+        assertThat(uut.getMinimumRateValue(USD, MARCH_4, MARCH_4.plusYears(1))).isEqualTo(new BigDecimal("1.06"));
+        assertThat(uut.getMaximumRateValue(GBP, MARCH_3.minusYears(1), MARCH_5)).isEqualTo(new BigDecimal("0.83"));
+        assertThat(uut.getMaximumRateValue(USD, MARCH_6, MARCH_6)).isEqualTo(new BigDecimal("1.07"));
+    }
+
+    @Test
+    public void countsObservationsWithinRange() throws Exception {
+        assertThat(uut.getObservationCount(USD, MARCH_3, MARCH_6)).isEqualTo(4);
+        assertThat(uut.getObservationCount(GBP, MARCH_4, MARCH_6)).isEqualTo(2);
+        assertThat(uut.getObservationCount(GBP, MARCH_5, MARCH_5)).isZero();
+        assertThat(uut.getObservationCount(USD, MARCH_6, MARCH_3)).isZero();
+    }
+
+    @Test
+    public void calculatesAverageExchangeRatesBetweenQuotedCurrencies() throws Exception {
+        assertThat(uut.getAverageExchangeRate(GBP, USD, MARCH_3, MARCH_6).getRateValue().getAmount())
+            .isEqualByComparingTo("1.2801204819");
+    }
+
+    @Test
+    public void createsConverterForPeriodAverage() throws Exception {
+        Money price = new Money(new BigDecimal("100.00"), EUR);
+
+        assertThat(uut.converterForPeriodAverage(MARCH_3, MARCH_6).convertToPrice(price, USD))
+            .isEqualTo(new Money(new BigDecimal("106.25"), USD));
+        assertThatThrownBy(() -> uut.converterForPeriodAverage(MARCH_5, MARCH_5).convertToPrice(price, GBP))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void failsOnRangesWithoutRates() throws Exception {
+        assertThatThrownBy(() -> uut.getAverageRateValue(GBP, MARCH_5, MARCH_5))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessage("No exchange rates for GBP between 2025-03-05 and 2025-03-05");
+        assertThatThrownBy(() -> uut.getMinimumRateValue(HUF, MARCH_3, MARCH_6))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> uut.converterForPeriodAverage(MARCH_3.minusDays(7), MARCH_3.minusDays(1)))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,131 @@
+package com.mercateo.common.currency.history;
+
+import static com.mercateo.common.currency.ConvertableCurrency.EUR;
+import static com.mercateo.common.currency.ConvertableCurrency.GBP;
+import static com.mercateo.common.currency.ConvertableCurrency.HUF;
+import static com.mercateo.common.currency.ConvertableCurrency.USD;
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.mercateo.common.currency.ConvertableCurrency;
+import com.mercateo.common.currency.ExchangeRate;
+import com.mercateo.common.currency.FrozenCurrencyConverter;
+import com.mercateo.common.currency.Money;
+
+public class MappedExchangeRateHistoryTest {
+    private static final Money EUR_RATE = new Money(BigDecimal.ONE, EUR);
+    private static final LocalDate FRIDAY = LocalDate.of(2025, 3, 14);
+    private static final LocalDate MONDAY = LocalDate.of(2025, 3, 17);
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private Path path;
+    private MappedExchangeRateHistory uut;
+
+    @Before
+    public void writeHistory() throws Exception {
+        path = temporaryFolder.getRoot().toPath().resolve("rates.bin");
+        try (ExchangeRateHistoryWriter writer = ExchangeRateHistoryWriter.create(path, EUR)) {
+            writer.append(FRIDAY, asList(rate(USD, "1.09"), rate(GBP, "0.84"), rate(HUF, "400")));
+            writer.append(MONDAY, asList(rate(USD, "1.10"), rate(GBP, "0.85")));
+        }
+        uut = MappedExchangeRateHistory.open(path);
+    }
+
+    @After
+    public void closeHistory() throws Exception {
+        uut.close();
+    }
+
+    private static ExchangeRate rate(ConvertableCurrency currency, String value) {
+        return new ExchangeRate(EUR_RATE, new Money(new BigDecimal(value), currency));
+    }
+
+    @Test
+    public void readsHeader() throws Exception {
+        assertThat(uut.getBaseCurrency()).isEqualTo(EUR);
+        assertThat(uut.getRecordCount()).isEqualTo(5);
+        assertThat(uut.getFirstDate()).isEqualTo(FRIDAY);
+        assertThat(uut.getLastDate()).isEqualTo(MONDAY);
+    }
+
+    @Test
+    public void findsLatestRatesOnOrBeforeTheDate() throws Exception {
+        assertThat(uut.getRateValue(USD, FRIDAY)).isEqualTo(new BigDecimal("1.09"));
+        assertThat(uut.getRateValue(USD, MONDAY.minusDays(1))).isEqualTo(new BigDecimal("1.09"));
+        assertThat(uut.getRateValue(USD, MONDAY)).isEqualTo(new BigDecimal("1.1"));
+        assertThat(uut.getRateValue(HUF, MONDAY)).isEqualTo(new BigDecimal("400"));
+        assertThat(uut.getRateValue(EUR, MONDAY)).isEqualTo(BigDecimal.ONE);
+    }
+
+    @Test
+    public void findsExchangeRates() throws Exception {
+        assertThat(uut.getExchangeRate(GBP, USD, MONDAY).getRateValue().getAmount()).isEqualByComparingTo("1.2941176471");
+        assertThat(uut.getExchangeRate(HUF, EUR, MONDAY).getRateValue().getAmount()).isEqualByComparingTo("0.0025");
+    }
+
+    @Test
+    public void convertsLikeConverterOfTheDailyRates() throws Exception {
+        FrozenCurrencyConverter expected = new FrozenCurrencyConverter(asList(rate(USD, "1.09"), rate(GBP, "0.84"), rate(HUF, "400")));
+        Money price = new Money(new BigDecimal("12.34"), GBP);
+
+        assertThat(uut.converterAsOf(FRIDAY).convertToPrice(price, HUF)).isEqualTo(expected.convertToPrice(price, HUF));
+        assertThat(uut.converterAsOf(FRIDAY).convertToPrice(price, USD)).isEqualTo(expected.convertToPrice(price, USD));
+        assertThat(uut.converterAsOf(FRIDAY.plusDays(1))).isSameAs(uut.converterAsOf(FRIDAY));
+    }
+
+    @Test
+    public void usesRatesAppendedLaterForTheSameDate() throws Exception {
+        try (ExchangeRateHistoryWriter writer = ExchangeRateHistoryWriter.open(path)) {
+            writer.append(MONDAY, asList(rate(USD, "1.11")));
+        }
+
+        try (MappedExchangeRateHistory reopened = MappedExchangeRateHistory.open(path)) {
+            assertThat(reopened.getRateValue(USD, MONDAY)).isEqualTo(new BigDecimal("1.11"));
+            assertThat(uut.getRateValue(USD, MONDAY)).isEqualTo(new BigDecimal("1.1"));
+        }
+    }
+
+    @Test
+    public void failsWithoutRatesBeforeTheDate() throws Exception {
+        assertThatThrownBy(() -> uut.getRateValue(USD, FRIDAY.minusDays(1)))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> uut.converterAsOf(FRIDAY.minusDays(1)))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessage("No exchange rates as of 2025-03-13");
+    }
+
+    @Test
+    public void failsOnOtherFiles() throws Exception {
+        Path otherFile = temporaryFolder.newFile().toPath();
+        Files.write(otherFile, new byte[32]);
+
+        assertThatThrownBy(() -> MappedExchangeRateHistory.open(otherFile))
+            .isInstanceOf(IOException.class);
+    }
+
+    @Test
+    public void opensEmptyHistory() throws Exception {
+        Path emptyFile = temporaryFolder.getRoot().toPath().resolve("empty.bin");
+        ExchangeRateHistoryWriter.create(emptyFile, EUR).close();
+
+        try (MappedExchangeRateHistory empty = MappedExchangeRateHistory.open(emptyFile)) {
+            assertThat(empty.getRecordCount()).isZero();
+            assertThat(empty.getFirstDate()).isNull();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.mercateo.common.currency.json;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mercateo.common.currency.ConvertableCurrency;
+import com.mercateo.common.currency.ExchangeRate;
+import com.mercateo.common.currency.FrozenCurrencyConverter;
+import com.mercateo.common.currency.Money;
+
+/**
+ * Compares loading a converter from a rate snapshot of all currencies through data binding
+ * and through {@link ExchangeRateJsonReader}, the latter also sharing rates with a previous
+ * converter differing in one rate.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Fork(value = 3, warmups = 1)
+@Measurement(iterations = 5, time = 4, timeUnit = TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 4, timeUnit = TimeUnit.SECONDS)
+public class ExchangeRateJsonReaderBenchmark {
+    private static final TypeReference<List<ExchangeRate>> RATE_LIST = new TypeReference<List<ExchangeRate>>() {/**/};
+
+    private ObjectMapper objectMapper;
+    private byte[] snapshot;
+    private FrozenCurrencyConverter previous;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        objectMapper = new ObjectMapper().registerModule(new MoneyJacksonModule());
+        Money baseValue = new Money(BigDecimal.ONE, ConvertableCurrency.EUR);
+        List<ExchangeRate> rates = Stream.of(ConvertableCurrency.values())
+                .filter(currency -> currency != ConvertableCurrency.EUR)
+                .map(currency -> new ExchangeRate(baseValue, new Money(BigDecimal.valueOf(100_000 + 37 * currency.ordinal(), 5), currency)))
+                .collect(Collectors.toList());
+        snapshot = objectMapper.writeValueAsBytes(rates);
+        previous = new FrozenCurrencyConverter(rates.stream()
+                .map(rate -> rate.getQuoteValue().getCurrency() == ConvertableCurrency.USD
+                        ? new ExchangeRate(baseValue, new Money(new BigDecimal("1.1"), ConvertableCurrency.USD))
+                        : rate)
+                .collect(Collectors.toList()));
+    }
+
+    @Benchmark
+    public FrozenCurrencyConverter dataBinding() throws IOException {
+        return new FrozenCurrencyConverter(objectMapper.readValue(snapshot, RATE_LIST));
+    }
+
+    @Benchmark
+    public FrozenCurrencyConverter streaming() throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(snapshot)) {
+            return ExchangeRateJsonReader.readConverter(parser);
+        }
+    }
+
+    @Benchmark
+    public FrozenCurrencyConverter streaming_sharingPrevious() throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(snapshot)) {
+            return ExchangeRateJsonReader.readRates(parser, FrozenCurrencyConverter.builder(previous)).build();
+        }
+    }
+}
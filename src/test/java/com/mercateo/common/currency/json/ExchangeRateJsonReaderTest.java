@@ -0,0 +1,111 @@
+package com.mercateo.common.currency.json;
+
+import static com.mercateo.common.currency.ConvertableCurrency.EUR;
+import static com.mercateo.common.currency.ConvertableCurrency.GBP;
+import static com.mercateo.common.currency.ConvertableCurrency.HUF;
+import static com.mercateo.common.currency.ConvertableCurrency.USD;
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mercateo.common.currency.ExchangeRate;
+import com.mercateo.common.currency.FrozenCurrencyConverter;
+import com.mercateo.common.currency.Money;
+
+@SuppressWarnings("null")
+public class ExchangeRateJsonReaderTest {
+    private static final Money EUR_RATE = new Money(BigDecimal.ONE, EUR);
+    private static final List<ExchangeRate> RATES = asList(
+            new ExchangeRate(EUR_RATE, new Money(new BigDecimal("1.09"), USD)),
+            new ExchangeRate(EUR_RATE, new Money(new BigDecimal("0.84"), GBP)),
+            new ExchangeRate(EUR_RATE, new Money(new BigDecimal("400"), HUF)));
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new MoneyJacksonModule());
+
+    private static FrozenCurrencyConverter read(String json) throws IOException {
+        return ExchangeRateJsonReader.readConverter(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void readsConverterFromSerializedRates() throws Exception {
+        FrozenCurrencyConverter converter = read(objectMapper.writeValueAsString(RATES));
+
+        assertThat(converter.toString()).isEqualTo(new FrozenCurrencyConverter(RATES).toString());
+        assertThat(converter.getExchangeRate(GBP, HUF)).isEqualTo(new FrozenCurrencyConverter(RATES).getExchangeRate(GBP, HUF));
+    }
+
+    @Test
+    public void readsCompactMoneyFormats() throws Exception {
+        for (MoneyFormat format : MoneyFormat.values()) {
+            ObjectMapper formatMapper = new ObjectMapper().registerModule(new MoneyJacksonModule(format));
+
+            assertThat(read(formatMapper.writeValueAsString(RATES)).getExchangeRate(GBP, HUF))
+                .isEqualTo(new FrozenCurrencyConverter(RATES).getExchangeRate(GBP, HUF));
+        }
+    }
+
+    @Test
+    public void sharesEqualBaseValues() throws Exception {
+        FrozenCurrencyConverter converter = read(objectMapper.writeValueAsString(RATES));
+
+        assertThat(converter.getExchangeRate(EUR, GBP).getBaseValue()).isSameAs(converter.getExchangeRate(EUR, USD).getBaseValue());
+    }
+
+    @Test
+    public void acceptsStringAmountsAndSkipsUnknownProperties() throws Exception {
+        FrozenCurrencyConverter converter = read("[{\"id\":7,\"baseValue\":{\"amount\":\"1\",\"currency\":\"EUR\",\"tags\":[{}]},"
+                + "\"quoteValue\":{\"currency\":\"USD\",\"amount\":\"1.09\"},\"source\":{\"name\":\"ECB\"}}]");
+
+        assertThat(converter.getExchangeRate(EUR, USD)).isEqualTo(RATES.get(0));
+    }
+
+    @Test
+    public void readsRatesEmbeddedInDocuments() throws Exception {
+        String json = "{\"version\":3,\"rates\":" + objectMapper.writeValueAsString(RATES) + ",\"complete\":true}";
+        try (JsonParser parser = objectMapper.getFactory().createParser(json)) {
+            assertThat(parser.nextToken()).isEqualTo(JsonToken.START_OBJECT);
+            assertThat(parser.nextFieldName()).isEqualTo("version");
+            parser.nextToken();
+            assertThat(parser.nextFieldName()).isEqualTo("rates");
+            parser.nextToken();
+
+            FrozenCurrencyConverter.Builder builder = ExchangeRateJsonReader.readRates(parser, FrozenCurrencyConverter.builder());
+
+            assertThat(builder.size()).isEqualTo(3);
+            assertThat(parser.currentToken()).isEqualTo(JsonToken.END_ARRAY);
+            assertThat(parser.nextFieldName()).isEqualTo("complete");
+        }
+    }
+
+    @Test
+    public void failsOnInvalidRates() throws Exception {
+        assertThatThrownBy(() -> read("{}"))
+            .isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> read("[{\"baseValue\":{\"amount\":1,\"currency\":\"EUR\"}}]"))
+            .isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> read("[{\"baseValue\":{\"amount\":1,\"currency\":\"EUR\"},\"quoteValue\":{\"amount\":1,\"currency\":\"XXX\"}}]"))
+            .isInstanceOf(IOException.class)
+            .hasMessageStartingWith("Unknown Currency XXX");
+        assertThatThrownBy(() -> read("[{\"baseValue\":{\"amount\":\"one\",\"currency\":\"EUR\"},\"quoteValue\":{\"amount\":1,\"currency\":\"USD\"}}]"))
+            .isInstanceOf(IOException.class);
+    }
+
+    @Test
+    public void failsOnConflictingRates() throws Exception {
+        List<ExchangeRate> conflictingRates = asList(RATES.get(0), new ExchangeRate(EUR_RATE, new Money(new BigDecimal("1.10"), USD)));
+
+        assertThatThrownBy(() -> read(objectMapper.writeValueAsString(conflictingRates)))
+            .isInstanceOf(IllegalStateException.class);
+    }
+}
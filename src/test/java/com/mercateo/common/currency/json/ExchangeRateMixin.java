@@ -8,6 +8,8 @@ import com.mercateo.common.currency.Money;
 /**
  * Jackson mixin class for ExchangeRate serialization/deserialization.
  * This mixin provides JSON annotations without modifying the original ExchangeRate class.
+ * It was used by {@link MoneyJacksonModule} before its dedicated serializers and is kept
+ * as baseline for comparisons.
  */
 abstract class ExchangeRateMixin {
 
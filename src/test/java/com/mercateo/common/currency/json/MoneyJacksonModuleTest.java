@@ -2,12 +2,21 @@ package com.mercateo.common.currency.json;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
 import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
 
 import org.junit.Before;
 import org.junit.Test;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+import com.fasterxml.jackson.databind.exc.UnrecognizedPropertyException;
+import com.fasterxml.jackson.databind.jsontype.impl.LaissezFaireSubTypeValidator;
 import com.mercateo.common.currency.ConvertableCurrency;
 import com.mercateo.common.currency.ExchangeRate;
 import com.mercateo.common.currency.Money;
@@ -49,4 +58,137 @@ public class MoneyJacksonModuleTest {
         assertThat(json).doesNotContain("rateValue");
         assertThat(deserialized).isEqualTo(exchangeRate);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shouldWriteSameJsonAsMixins() throws Exception {
+        ObjectMapper mixinMapper = new ObjectMapper()
+                .addMixIn(Money.class, MoneyMixin.class)
+                .addMixIn(ExchangeRate.class, ExchangeRateMixin.class);
+        List<Object> values = Arrays.asList(
+                new Money(new BigDecimal("12.30"), ConvertableCurrency.EUR),
+                new Money(new BigDecimal("1E+3"), ConvertableCurrency.HUF),
+                new ExchangeRate(new Money(BigDecimal.ONE, ConvertableCurrency.EUR), new Money(new BigDecimal("1.10"), ConvertableCurrency.USD)));
+
+        assertThat(objectMapper.writeValueAsString(values)).isEqualTo(mixinMapper.writeValueAsString(values));
+    }
+
+    @Test
+    public void shouldDeserializeStringAmountsAndAnyPropertyOrder() throws Exception {
+        Money deserialized = objectMapper.readValue("{\"currency\":\"USD\",\"amount\":\"1.50\"}", Money.class);
+
+        assertThat(deserialized).isEqualTo(new Money(new BigDecimal("1.50"), ConvertableCurrency.USD));
+    }
+
+    @Test
+    public void shouldDeserializeArraysOfMoney() throws Exception {
+        List<Money> deserialized = objectMapper.readValue("[{\"amount\":1,\"currency\":\"EUR\"},{\"amount\":2.5,\"currency\":\"GBP\"}]",
+                new TypeReference<List<Money>>() {/**/});
+
+        assertThat(deserialized).containsExactly(new Money(BigDecimal.ONE, ConvertableCurrency.EUR),
+                new Money(new BigDecimal("2.5"), ConvertableCurrency.GBP));
+    }
+
+    @Test
+    public void shouldHandleUnknownPropertiesLikeDataBinding() throws Exception {
+        String json = "{\"amount\":1,\"currency\":\"EUR\",\"formatted\":{\"de\":\"1 €\"}}";
+
+        assertThatThrownBy(() -> objectMapper.readValue(json, Money.class))
+            .isInstanceOf(UnrecognizedPropertyException.class)
+            .hasMessageContaining("formatted");
+        assertThat(objectMapper.copy().disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES).readValue(json, Money.class))
+            .isEqualTo(new Money(BigDecimal.ONE, ConvertableCurrency.EUR));
+    }
+
+    @Test
+    public void shouldIgnoreRateValueOfExchangeRate() throws Exception {
+        ExchangeRate exchangeRate = new ExchangeRate(new Money(BigDecimal.ONE, ConvertableCurrency.EUR),
+                new Money(new BigDecimal("1.10"), ConvertableCurrency.USD));
+
+        assertThat(objectMapper.readValue("{\"baseValue\":{\"amount\":1,\"currency\":\"EUR\"},\"rateValue\":1.10,"
+                + "\"quoteValue\":{\"amount\":1.10,\"currency\":\"USD\"}}", ExchangeRate.class)).isEqualTo(exchangeRate);
+        assertThat(objectMapper.readValue("{\"rateValue\":{\"amount\":1.1},\"baseValue\":{\"amount\":1,\"currency\":\"EUR\"},"
+                + "\"quoteValue\":{\"amount\":1.10,\"currency\":\"USD\"}}", ExchangeRate.class)).isEqualTo(exchangeRate);
+    }
+
+    @Test
+    public void shouldRejectInvalidMoney() throws Exception {
+        assertThatThrownBy(() -> objectMapper.readValue("{\"amount\":1,\"currency\":\"XXX\"}", Money.class))
+            .isInstanceOf(MismatchedInputException.class)
+            .hasMessageStartingWith("Unknown Currency XXX");
+        assertThatThrownBy(() -> objectMapper.readValue("{\"amount\":1,\"currency\":\"usd\"}", Money.class))
+            .isInstanceOf(MismatchedInputException.class);
+        assertThatThrownBy(() -> objectMapper.readValue("{\"amount\":\"1,5\",\"currency\":\"EUR\"}", Money.class))
+            .isInstanceOf(MismatchedInputException.class);
+        assertThatThrownBy(() -> objectMapper.readValue("{\"currency\":\"EUR\"}", Money.class))
+            .isInstanceOf(MismatchedInputException.class);
+        assertThatThrownBy(() -> objectMapper.readValue("{\"baseValue\":{\"amount\":1,\"currency\":\"EUR\"}}", ExchangeRate.class))
+            .isInstanceOf(MismatchedInputException.class);
+    }
+
+    @Test
+    public void shouldSupportPolymorphicTyping() throws Exception {
+        ObjectMapper typingMapper = objectMapper.copy()
+                .activateDefaultTyping(LaissezFaireSubTypeValidator.instance, ObjectMapper.DefaultTyping.NON_FINAL);
+        ExchangeRate exchangeRate = new ExchangeRate(new Money(BigDecimal.ONE, ConvertableCurrency.EUR),
+                new Money(new BigDecimal("0.84"), ConvertableCurrency.GBP));
+
+        String json = typingMapper.writeValueAsString(exchangeRate);
+
+        assertThat(typingMapper.readValue(json, Object.class)).isEqualTo(exchangeRate);
+    }
+
+    @Test
+    public void shouldWriteCompactFormats() throws Exception {
+        Money money = new Money(new BigDecimal("12.30"), ConvertableCurrency.EUR);
+        ObjectMapper stringMapper = new ObjectMapper().registerModule(new MoneyJacksonModule(MoneyFormat.STRING));
+        ObjectMapper arrayMapper = new ObjectMapper().registerModule(new MoneyJacksonModule(MoneyFormat.ARRAY));
+
+        assertThat(objectMapper.writeValueAsString(money)).isEqualTo("{\"amount\":12.30,\"currency\":\"EUR\"}");
+        assertThat(stringMapper.writeValueAsString(money)).isEqualTo("\"12.30 EUR\"");
+        assertThat(arrayMapper.writeValueAsString(money)).isEqualTo("[12.30,\"EUR\"]");
+        assertThat(stringMapper.writeValueAsString(new ExchangeRate(new Money(BigDecimal.ONE, ConvertableCurrency.EUR), money)))
+            .isEqualTo("{\"baseValue\":\"1 EUR\",\"quoteValue\":\"12.30 EUR\"}");
+    }
+
+    @Test
+    public void shouldReadAllFormatsRegardlessOfConfiguredFormat() throws Exception {
+        Money money = new Money(new BigDecimal("1E+3"), ConvertableCurrency.HUF);
+
+        for (MoneyFormat format : MoneyFormat.values()) {
+            ObjectMapper formatMapper = new ObjectMapper().registerModule(new MoneyJacksonModule(format));
+            String json = formatMapper.writeValueAsString(Arrays.asList(money, money));
+
+            assertThat(objectMapper.readValue(json, new TypeReference<List<Money>>() {/**/})).containsExactly(money, money);
+        }
+        assertThat(objectMapper.readValue("[\"1.5\",\"USD\"]", Money.class)).isEqualTo(new Money(new BigDecimal("1.5"), ConvertableCurrency.USD));
+    }
+
+    @Test
+    public void shouldRejectInvalidCompactMoney() throws Exception {
+        assertThatThrownBy(() -> objectMapper.readValue("\"12.30EUR\"", Money.class))
+            .isInstanceOf(MismatchedInputException.class);
+        assertThatThrownBy(() -> objectMapper.readValue("\" EUR\"", Money.class))
+            .isInstanceOf(MismatchedInputException.class);
+        assertThatThrownBy(() -> objectMapper.readValue("\"12.30 XXX\"", Money.class))
+            .isInstanceOf(MismatchedInputException.class)
+            .hasMessageStartingWith("Unknown Currency XXX");
+        assertThatThrownBy(() -> objectMapper.readValue("\"12,30 EUR\"", Money.class))
+            .isInstanceOf(MismatchedInputException.class);
+        assertThatThrownBy(() -> objectMapper.readValue("[12.30,\"EUR\",1]", Money.class))
+            .isInstanceOf(MismatchedInputException.class);
+        assertThatThrownBy(() -> objectMapper.readValue("[12.30]", Money.class))
+            .isInstanceOf(MismatchedInputException.class);
+    }
+
+    @Test
+    public void shouldSupportPolymorphicTypingOfCompactFormats() throws Exception {
+        Money money = new Money(new BigDecimal("0.84"), ConvertableCurrency.GBP);
+
+        for (MoneyFormat format : MoneyFormat.values()) {
+            ObjectMapper typingMapper = new ObjectMapper().registerModule(new MoneyJacksonModule(format))
+                    .activateDefaultTyping(LaissezFaireSubTypeValidator.instance, ObjectMapper.DefaultTyping.NON_FINAL);
+
+            assertThat(typingMapper.readValue(typingMapper.writeValueAsString(money), Object.class)).isEqualTo(money);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.mercateo.common.currency.json;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.mercateo.common.currency.ConvertableCurrency;
+import com.mercateo.common.currency.ExchangeRate;
+import com.mercateo.common.currency.Money;
+
+/**
+ * Compares the serializers of {@link MoneyJacksonModule} in every {@link MoneyFormat} with the
+ * mixins it used before, for single objects and arrays of 10k prices.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Fork(value = 3, warmups = 1)
+@Measurement(iterations = 5, time = 4, timeUnit = TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 4, timeUnit = TimeUnit.SECONDS)
+public class MoneyJsonBenchmark {
+    private static final int PRICE_COUNT = 10_000;
+
+    /**
+     * Name of the module's money format, or {@code mixin}.
+     */
+    @Param({ "OBJECT", "STRING", "ARRAY", "mixin" })
+    public String mapping;
+
+    private ObjectWriter moneyWriter;
+    private ObjectWriter exchangeRateWriter;
+    private ObjectWriter pricesWriter;
+    private ObjectReader moneyReader;
+    private ObjectReader exchangeRateReader;
+    private ObjectReader pricesReader;
+
+    private Money money;
+    private ExchangeRate exchangeRate;
+    private Money[] prices;
+    private byte[] moneyJson;
+    private byte[] exchangeRateJson;
+    private byte[] pricesJson;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        if("mixin".equals(mapping)) {
+            objectMapper.addMixIn(Money.class, MoneyMixin.class);
+            objectMapper.addMixIn(ExchangeRate.class, ExchangeRateMixin.class);
+        }
+        else
+            objectMapper.registerModule(new MoneyJacksonModule(MoneyFormat.valueOf(mapping)));
+        moneyWriter = objectMapper.writerFor(Money.class);
+        exchangeRateWriter = objectMapper.writerFor(ExchangeRate.class);
+        pricesWriter = objectMapper.writerFor(Money[].class);
+        moneyReader = objectMapper.readerFor(Money.class);
+        exchangeRateReader = objectMapper.readerFor(ExchangeRate.class);
+        pricesReader = objectMapper.readerFor(new TypeReference<List<Money>>() {/**/});
+
+        ConvertableCurrency[] currencies = ConvertableCurrency.values();
+        money = new Money(new BigDecimal("1234.56"), ConvertableCurrency.EUR);
+        exchangeRate = new ExchangeRate(new Money(BigDecimal.ONE, ConvertableCurrency.EUR), new Money(new BigDecimal("1.0834"), ConvertableCurrency.USD));
+        prices = new Money[PRICE_COUNT];
+        for (int i = 0; i < PRICE_COUNT; i++)
+            prices[i] = new Money(BigDecimal.valueOf(100 + 37L * i, 2), currencies[i % currencies.length]);
+        moneyJson = moneyWriter.writeValueAsBytes(money);
+        exchangeRateJson = exchangeRateWriter.writeValueAsBytes(exchangeRate);
+        pricesJson = pricesWriter.writeValueAsBytes(prices);
+    }
+
+    @Benchmark
+    public byte[] serializeMoney() throws IOException {
+        return moneyWriter.writeValueAsBytes(money);
+    }
+
+    @Benchmark
+    public Money deserializeMoney() throws IOException {
+        return moneyReader.readValue(moneyJson);
+    }
+
+    @Benchmark
+    public byte[] serializeExchangeRate() throws IOException {
+        return exchangeRateWriter.writeValueAsBytes(exchangeRate);
+    }
+
+    @Benchmark
+    public ExchangeRate deserializeExchangeRate() throws IOException {
+        return exchangeRateReader.readValue(exchangeRateJson);
+    }
+
+    @Benchmark
+    public byte[] serializePrices() throws IOException {
+        return pricesWriter.writeValueAsBytes(prices);
+    }
+
+    @Benchmark
+    public List<Money> deserializePrices() throws IOException {
+        return pricesReader.readValue(pricesJson);
+    }
+}
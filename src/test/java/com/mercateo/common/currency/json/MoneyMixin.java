@@ -10,6 +10,8 @@ import com.mercateo.common.currency.ConvertableCurrency;
 /**
  * Jackson mixin class for Money serialization/deserialization.
  * This mixin provides JSON annotations without modifying the original Money class.
+ * It was used by {@link MoneyJacksonModule} before its dedicated serializers and is kept
+ * as baseline for comparisons.
  */
 abstract class MoneyMixin {
     @JsonProperty("amount")